@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.exception.CallNotPermittedException;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 隔离舱，限制同时进行中的调用数，超过上限的调用直接以{@link CallNotPermittedException}失败（或者最多等待指定时长），避免单个慢依赖耗尽调用方的线程；
+ * <p>
+ * 使用方式与{@link LockTask}类似，获取许可后执行，执行完毕后释放许可；异步调用在返回的结果完成时释放许可
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class Bulkhead {
+
+    /**
+     * 隔离舱名称
+     */
+    private final String name;
+
+    /**
+     * 调用被拒绝时的异常信息，提前构建，保证拒绝路径足够快
+     */
+    private final String notPermittedMessage;
+
+    /**
+     * 最大并发调用数
+     */
+    private final int maxConcurrentCalls;
+
+    /**
+     * 调用许可，非公平模式下无竞争的获取只是一次CAS
+     */
+    private final Semaphore permits;
+
+    /**
+     * 构造器
+     *
+     * @param name
+     *            隔离舱名称
+     * @param maxConcurrentCalls
+     *            最大并发调用数，必须大于0
+     */
+    public Bulkhead(final String name, final int maxConcurrentCalls) {
+        Assert.notBlank(name, "隔离舱名称不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(maxConcurrentCalls > 0, "隔离舱最大并发调用数必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.name = name;
+        this.notPermittedMessage = StrUtil.format("隔离舱 [{}] 已满，调用被拒绝", name);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * 尝试获取调用许可，不等待；获取成功后必须调用{@link #release()}释放
+     *
+     * @return true表示获取成功
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    /**
+     * 尝试获取调用许可，最多等待指定时长；获取成功后必须调用{@link #release()}释放
+     *
+     * @param timeout
+     *            最大等待时长
+     * @param unit
+     *            时间单位
+     *
+     * @return true表示获取成功
+     *
+     * @throws InterruptedException
+     *             等待期间被中断
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return permits.tryAcquire(timeout, unit);
+    }
+
+    /**
+     * 释放调用许可
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 在隔离舱内执行指定函数，没有空闲许可时直接失败
+     *
+     * @param supplier
+     *            指定函数
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     *
+     * @throws CallNotPermittedException
+     *             没有空闲许可时抛出
+     */
+    public <T> T call(Supplier<T> supplier) {
+        Assert.argNotNull(supplier, "supplier");
+        if (!tryAcquire()) {
+            throw notPermitted();
+        }
+
+        try {
+            return supplier.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * 在隔离舱内执行指定任务，没有空闲许可时直接失败
+     *
+     * @param runnable
+     *            指定任务
+     *
+     * @throws CallNotPermittedException
+     *             没有空闲许可时抛出
+     */
+    public void run(Runnable runnable) {
+        Assert.argNotNull(runnable, "runnable");
+        call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 在隔离舱内执行指定的异步函数，许可在异步函数完成时释放
+     *
+     * @param action
+     *            异步函数
+     * @param <T>
+     *            结果类型
+     *
+     * @return 执行结果，没有空闲许可时以{@link CallNotPermittedException}完成
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<? extends CompletionStage<T>> action) {
+        Assert.argNotNull(action, "action");
+        if (!tryAcquire()) {
+            return CompletableFuture.failedFuture(notPermitted());
+        }
+
+        CompletableFuture<T> future;
+        try {
+            // 异步函数返回null或者转换失败时同样要释放许可，否则许可将永久泄漏
+            CompletionStage<T> stage = action.get();
+            if (stage == null) {
+                throw new NullPointerException("异步函数返回的CompletionStage不能为空");
+            }
+            future = stage.toCompletableFuture();
+        } catch (Throwable throwable) {
+            release();
+            return CompletableFuture.failedFuture(throwable);
+        }
+        return future.whenComplete((value, error) -> release());
+    }
+
+    /**
+     * 获取隔离舱名称
+     *
+     * @return 隔离舱名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取当前空闲许可数
+     *
+     * @return 空闲许可数
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * 获取当前进行中的调用数
+     *
+     * @return 进行中的调用数
+     */
+    public int inFlight() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    /**
+     * 构建调用被拒绝异常
+     *
+     * @return 调用被拒绝异常
+     */
+    private CallNotPermittedException notPermitted() {
+        return new CallNotPermittedException(notPermittedMessage);
+    }
+}
@@ -0,0 +1,615 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.exception.CallNotPermittedException;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+import lombok.CustomLog;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 熔断器，基于最近N次调用的滑动窗口统计失败率和慢调用率，超过阈值后打开熔断，熔断期间的调用直接以{@link CallNotPermittedException}失败，不会再调用下游；
+ * <p>
+ * 状态流转：
+ * <li>CLOSED：正常放行，窗口内调用数达到最小调用数并且失败率或者慢调用率达到阈值时切换为OPEN；</li>
+ * <li>OPEN：拒绝所有调用，持续指定时长后下一次调用时切换为HALF_OPEN；</li>
+ * <li>HALF_OPEN：只放行指定数量的试探调用，全部成功后切换为CLOSED并清空窗口，任意一次失败或者慢调用立即切换回OPEN；</li>
+ * <p>
+ * 状态切换、滑动窗口统计全部基于CAS，没有锁；熔断打开时的拒绝只有一次volatile读和一次时间比较；
+ * <p>
+ * 与重试组合时，建议将熔断放在重试内层，同时让重试策略{@link RetryPolicy#abortOn(Class[])}忽略{@link CallNotPermittedException}：
+ *
+ * <pre>
+ * Retry.runAsync(() -&gt; breaker.callAsync(action), new RetryPolicy(3).abortOn(CallNotPermittedException.class));
+ * </pre>
+ * <p>
+ * 注意：配置方法需要在使用前调用，使用过程中不要修改配置
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@CustomLog
+public class CircuitBreaker {
+
+    /**
+     * 滑动窗口中的调用结果：成功
+     */
+    private static final int SUCCESS = 1;
+
+    /**
+     * 滑动窗口中的调用结果：失败
+     */
+    private static final int FAILURE = 2;
+
+    /**
+     * 滑动窗口中的调用结果标记：慢调用，可以与成功、失败组合
+     */
+    private static final int SLOW = 4;
+
+    /**
+     * 熔断器名称
+     */
+    private final String name;
+
+    /**
+     * 调用被拒绝时的异常信息，提前构建，保证拒绝路径足够快
+     */
+    private final String notPermittedMessage;
+
+    /**
+     * 滑动窗口大小，即统计最近多少次调用
+     */
+    private final int windowSize;
+
+    /**
+     * 失败率阈值，取值(0, 1]
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * 熔断打开持续时长，单位纳秒
+     */
+    private final long openDuration;
+
+    /**
+     * 计算失败率前窗口内至少需要的调用数
+     */
+    private int minimumCalls;
+
+    /**
+     * 慢调用时长阈值，单位纳秒，小于等于0表示不统计慢调用
+     */
+    private long slowCallDuration;
+
+    /**
+     * 慢调用率阈值，取值(0, 1]
+     */
+    private double slowCallRateThreshold;
+
+    /**
+     * 半开状态下放行的试探调用数
+     */
+    private int halfOpenCalls;
+
+    /**
+     * 判断异常是否计为失败，返回false的异常按照成功统计
+     */
+    private Predicate<Throwable> recordFailure;
+
+    /**
+     * 当前阶段
+     */
+    private final AtomicReference<Phase> phase;
+
+    /**
+     * 构造器，默认最小调用数等于窗口大小，不统计慢调用，半开状态放行1次试探调用
+     *
+     * @param name
+     *            熔断器名称
+     * @param windowSize
+     *            滑动窗口大小，即统计最近多少次调用
+     * @param failureRateThreshold
+     *            失败率阈值，取值(0, 1]
+     * @param openDuration
+     *            熔断打开持续时长
+     * @param unit
+     *            时间单位
+     */
+    public CircuitBreaker(final String name, final int windowSize, final double failureRateThreshold,
+        final long openDuration, final TimeUnit unit) {
+        Assert.notBlank(name, "熔断器名称不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(windowSize > 0, "熔断器滑动窗口大小必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(failureRateThreshold > 0 && failureRateThreshold <= 1, "熔断器失败率阈值必须在(0, 1]之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(openDuration > 0, "熔断打开持续时长必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        this.name = name;
+        this.notPermittedMessage = StrUtil.format("熔断器 [{}] 已打开，调用被拒绝", name);
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = unit.toNanos(openDuration);
+        this.minimumCalls = windowSize;
+        this.slowCallDuration = 0;
+        this.slowCallRateThreshold = 1;
+        this.halfOpenCalls = 1;
+        this.recordFailure = t -> true;
+        this.phase = new AtomicReference<>(Phase.closed(windowSize));
+    }
+
+    /**
+     * 设置计算失败率前窗口内至少需要的调用数
+     *
+     * @param minimumCalls
+     *            最小调用数，取值[1, 窗口大小]
+     *
+     * @return 当前熔断器
+     */
+    public CircuitBreaker minimumCalls(int minimumCalls) {
+        Assert.assertTrue(minimumCalls > 0 && minimumCalls <= windowSize, "熔断器最小调用数必须在1到窗口大小之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    /**
+     * 设置慢调用判断
+     *
+     * @param slowCallDuration
+     *            慢调用时长阈值，调用耗时大于等于该值时计为慢调用
+     * @param unit
+     *            时间单位
+     * @param slowCallRateThreshold
+     *            慢调用率阈值，取值(0, 1]
+     *
+     * @return 当前熔断器
+     */
+    public CircuitBreaker slowCall(long slowCallDuration, TimeUnit unit, double slowCallRateThreshold) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1, "熔断器慢调用率阈值必须在(0, 1]之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.slowCallDuration = unit.toNanos(slowCallDuration);
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        return this;
+    }
+
+    /**
+     * 设置半开状态下放行的试探调用数
+     *
+     * @param halfOpenCalls
+     *            试探调用数，必须大于0
+     *
+     * @return 当前熔断器
+     */
+    public CircuitBreaker halfOpenCalls(int halfOpenCalls) {
+        Assert.assertTrue(halfOpenCalls > 0, "熔断器半开试探调用数必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.halfOpenCalls = halfOpenCalls;
+        return this;
+    }
+
+    /**
+     * 设置异常是否计为失败，例如业务校验异常通常不应该触发熔断
+     *
+     * @param recordFailure
+     *            返回true表示计为失败，返回false表示按照成功统计
+     *
+     * @return 当前熔断器
+     */
+    public CircuitBreaker recordFailure(Predicate<Throwable> recordFailure) {
+        Assert.notNull(recordFailure, "异常判断不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.recordFailure = recordFailure;
+        return this;
+    }
+
+    /**
+     * 尝试获取调用许可，获取成功后必须调用{@link #onSuccess(long)}或者{@link #onError(long, Throwable)}上报调用结果
+     *
+     * @return true表示允许调用
+     */
+    public boolean tryAcquirePermission() {
+        while (true) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - current.since < openDuration) {
+                        return false;
+                    }
+                    // 熔断时间已到，切换为半开，切换失败说明其他线程已经切换，重新判断
+                    transition(current, Phase.halfOpen(halfOpenCalls));
+                    break;
+                default:
+                    int permits;
+                    do {
+                        permits = current.permits.get();
+                        if (permits <= 0) {
+                            return false;
+                        }
+                    } while (!current.permits.compareAndSet(permits, permits - 1));
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * 上报一次成功的调用
+     *
+     * @param duration
+     *            调用耗时，单位纳秒
+     */
+    public void onSuccess(long duration) {
+        record(duration, false);
+    }
+
+    /**
+     * 上报一次失败的调用
+     *
+     * @param duration
+     *            调用耗时，单位纳秒
+     * @param throwable
+     *            调用异常
+     */
+    public void onError(long duration, Throwable throwable) {
+        record(duration, recordFailure.test(throwable));
+    }
+
+    /**
+     * 在熔断器保护下执行指定函数
+     *
+     * @param supplier
+     *            指定函数
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     *
+     * @throws CallNotPermittedException
+     *             熔断打开时抛出
+     */
+    public <T> T call(Supplier<T> supplier) {
+        Assert.argNotNull(supplier, "supplier");
+        if (!tryAcquirePermission()) {
+            throw notPermitted();
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = supplier.get();
+            onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (Throwable throwable) {
+            onError(System.nanoTime() - start, throwable);
+            throw throwable;
+        }
+    }
+
+    /**
+     * 在熔断器保护下执行指定任务
+     *
+     * @param runnable
+     *            指定任务
+     *
+     * @throws CallNotPermittedException
+     *             熔断打开时抛出
+     */
+    public void run(Runnable runnable) {
+        Assert.argNotNull(runnable, "runnable");
+        call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 在熔断器保护下执行指定的异步函数，调用结果在异步函数完成时上报
+     *
+     * @param action
+     *            异步函数
+     * @param <T>
+     *            结果类型
+     *
+     * @return 执行结果，熔断打开时以{@link CallNotPermittedException}完成
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<? extends CompletionStage<T>> action) {
+        Assert.argNotNull(action, "action");
+        if (!tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(notPermitted());
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            // 异步函数返回null或者转换失败时同样要上报，否则HALF_OPEN状态下的试探名额将永远无法归还
+            CompletionStage<T> stage = action.get();
+            if (stage == null) {
+                throw new NullPointerException("异步函数返回的CompletionStage不能为空");
+            }
+            future = stage.toCompletableFuture();
+        } catch (Throwable throwable) {
+            onError(System.nanoTime() - start, throwable);
+            return CompletableFuture.failedFuture(throwable);
+        }
+
+        return future.whenComplete((value, error) -> {
+            if (error == null) {
+                onSuccess(System.nanoTime() - start);
+            } else {
+                onError(System.nanoTime() - start,
+                    error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * 获取熔断器名称
+     *
+     * @return 熔断器名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取当前状态
+     *
+     * @return 当前状态
+     */
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * 获取当前窗口内的失败率，只有CLOSED状态下有意义
+     *
+     * @return 失败率，取值[0, 1]，窗口内没有调用时返回0
+     */
+    public double failureRate() {
+        Window window = phase.get().window;
+        return window == null ? 0 : window.rate(window.failures);
+    }
+
+    /**
+     * 获取当前窗口内的慢调用率，只有CLOSED状态下有意义
+     *
+     * @return 慢调用率，取值[0, 1]，窗口内没有调用时返回0
+     */
+    public double slowCallRate() {
+        Window window = phase.get().window;
+        return window == null ? 0 : window.rate(window.slowCalls);
+    }
+
+    /**
+     * 强制切换为CLOSED状态并清空窗口
+     */
+    public void reset() {
+        Phase current = phase.get();
+        transition(current, Phase.closed(windowSize));
+    }
+
+    /**
+     * 记录一次调用结果
+     *
+     * @param duration
+     *            调用耗时，单位纳秒
+     * @param failure
+     *            是否失败
+     */
+    private void record(long duration, boolean failure) {
+        boolean slow = slowCallDuration > 0 && duration >= slowCallDuration;
+        Phase current = phase.get();
+        switch (current.state) {
+            case CLOSED:
+                Window window = current.window;
+                window.record((failure ? FAILURE : SUCCESS) | (slow ? SLOW : 0));
+                if (window.total.get() >= minimumCalls && (window.rate(window.failures) >= failureRateThreshold
+                    || (slowCallDuration > 0 && window.rate(window.slowCalls) >= slowCallRateThreshold))) {
+                    transition(current, Phase.open());
+                }
+                break;
+            case HALF_OPEN:
+                if (failure || slow) {
+                    transition(current, Phase.open());
+                } else if (current.successes.incrementAndGet() >= halfOpenCalls) {
+                    transition(current, Phase.closed(windowSize));
+                }
+                break;
+            default:
+                // 熔断打开前已经放行的调用，结果不再统计
+                break;
+        }
+    }
+
+    /**
+     * 切换阶段
+     *
+     * @param expect
+     *            期望的当前阶段
+     * @param next
+     *            新阶段
+     */
+    private void transition(Phase expect, Phase next) {
+        if (phase.compareAndSet(expect, next)) {
+            LOGGER.info("熔断器 [{}] 状态由 [{}] 切换为 [{}]", name, expect.state, next.state);
+        }
+    }
+
+    /**
+     * 构建调用被拒绝异常
+     *
+     * @return 调用被拒绝异常
+     */
+    private CallNotPermittedException notPermitted() {
+        return new CallNotPermittedException(notPermittedMessage);
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+
+        /**
+         * 关闭，正常放行
+         */
+        CLOSED,
+
+        /**
+         * 打开，拒绝所有调用
+         */
+        OPEN,
+
+        /**
+         * 半开，只放行试探调用
+         */
+        HALF_OPEN
+
+    }
+
+    /**
+     * 熔断器阶段，每次状态切换都会创建新的阶段对象，通过一次CAS完成切换，阶段内的计数器不会跨阶段共享
+     */
+    private static final class Phase {
+
+        /**
+         * 状态
+         */
+        private final State state;
+
+        /**
+         * 进入该阶段的时间，{@link System#nanoTime()}时钟
+         */
+        private final long since;
+
+        /**
+         * CLOSED状态的滑动窗口
+         */
+        private final Window window;
+
+        /**
+         * HALF_OPEN状态剩余的试探调用许可
+         */
+        private final AtomicInteger permits;
+
+        /**
+         * HALF_OPEN状态成功的试探调用数
+         */
+        private final AtomicInteger successes;
+
+        private Phase(final State state, final Window window, final int permits) {
+            this.state = state;
+            this.since = System.nanoTime();
+            this.window = window;
+            this.permits = new AtomicInteger(permits);
+            this.successes = new AtomicInteger(0);
+        }
+
+        private static Phase closed(int windowSize) {
+            return new Phase(State.CLOSED, new Window(windowSize), 0);
+        }
+
+        private static Phase open() {
+            return new Phase(State.OPEN, null, 0);
+        }
+
+        private static Phase halfOpen(int permits) {
+            return new Phase(State.HALF_OPEN, null, permits);
+        }
+    }
+
+    /**
+     * 基于环形数组的计数滑动窗口，记录最近N次调用结果，新结果覆盖最老的结果的同时增量更新计数器，统计时无需遍历窗口
+     */
+    private static final class Window {
+
+        /**
+         * 环形数组，0表示该槽位还没有记录
+         */
+        private final AtomicIntegerArray slots;
+
+        /**
+         * 写入游标
+         */
+        private final AtomicLong cursor;
+
+        /**
+         * 窗口内的调用数
+         */
+        private final AtomicInteger total;
+
+        /**
+         * 窗口内的失败调用数
+         */
+        private final AtomicInteger failures;
+
+        /**
+         * 窗口内的慢调用数
+         */
+        private final AtomicInteger slowCalls;
+
+        private Window(final int size) {
+            this.slots = new AtomicIntegerArray(size);
+            this.cursor = new AtomicLong(0);
+            this.total = new AtomicInteger(0);
+            this.failures = new AtomicInteger(0);
+            this.slowCalls = new AtomicInteger(0);
+        }
+
+        /**
+         * 记录一次调用结果
+         *
+         * @param outcome
+         *            调用结果
+         */
+        private void record(int outcome) {
+            int index = (int)(cursor.getAndIncrement() % slots.length());
+            int old = slots.getAndSet(index, outcome);
+            if (old == 0) {
+                total.incrementAndGet();
+            }
+
+            int failureDelta = ((outcome & FAILURE) != 0 ? 1 : 0) - ((old & FAILURE) != 0 ? 1 : 0);
+            if (failureDelta != 0) {
+                failures.addAndGet(failureDelta);
+            }
+            int slowDelta = ((outcome & SLOW) != 0 ? 1 : 0) - ((old & SLOW) != 0 ? 1 : 0);
+            if (slowDelta != 0) {
+                slowCalls.addAndGet(slowDelta);
+            }
+        }
+
+        /**
+         * 计算指定计数器在窗口内的占比
+         *
+         * @param counter
+         *            计数器
+         *
+         * @return 占比
+         */
+        private double rate(AtomicInteger counter) {
+            int calls = total.get();
+            return calls == 0 ? 0 : (double)counter.get() / calls;
+        }
+    }
+}
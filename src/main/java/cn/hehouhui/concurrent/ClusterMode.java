@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+/**
+ * 集群调度模式，决定{@link ClusterSchedulerSystem}中的任务由哪个节点执行
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public enum ClusterMode {
+
+    /**
+     * 按照任务ID在存活节点组成的一致性hash环上分区，每个任务只在其所属节点上执行，节点加入、退出时只有少量任务迁移
+     */
+    PARTITIONED,
+
+    /**
+     * 选举一个leader，所有任务只在leader上执行，适合任务数量少但是要求严格单实例执行的场景
+     */
+    LEADER
+
+}
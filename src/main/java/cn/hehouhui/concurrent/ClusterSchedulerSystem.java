@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+import lombok.CustomLog;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 集群调度系统，多个节点注册相同的任务时，每个任务在整个集群中只由一个节点执行，而不是每个节点都执行一次；
+ * <p>
+ * 对任意{@link SchedulerSystem}的包装：每个节点的任务照常调度，但是执行前判断当前节点是否是该任务的所有者，不是所有者时直接跳过；
+ * 节点通过{@link LeaseStore}中的租约登记存活状态，并定时续约，所有者按照{@link ClusterMode}确定：
+ * <li>{@link ClusterMode#PARTITIONED}：任务ID在存活节点组成的一致性hash环上分区，任务分散到各个节点执行；</li>
+ * <li>{@link ClusterMode#LEADER}：持有leader租约的节点执行所有任务；</li>
+ * <p>
+ * 注意：
+ * <li>节点续约失败（例如租约存储不可用）超过有效期的2/3后，当前节点不再执行任何任务，宁可漏执行也不重复执行；</li>
+ * <li>节点加入、退出后，其他节点最多在一个续约周期（有效期的1/3）后感知到变化，期间迁移中的少量任务可能会在两个节点上各执行一次；</li>
+ * <li>{@link #runGraph(TaskGraph)}、{@link #scheduler(String, boolean)}等主动调用不受所有权限制</li>
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@CustomLog
+public class ClusterSchedulerSystem implements SchedulerSystem {
+
+    /**
+     * 节点存活租约的key前缀
+     */
+    private static final String MEMBER_PREFIX = "member/";
+
+    /**
+     * leader租约的key
+     */
+    private static final String LEADER_KEY = "leader";
+
+    /**
+     * 一致性hash环上每个节点的虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = 160;
+
+    /**
+     * 实际调度任务的调度系统
+     */
+    private final SchedulerSystem delegate;
+
+    /**
+     * 租约存储
+     */
+    private final LeaseStore leaseStore;
+
+    /**
+     * 当前节点ID，集群内唯一
+     */
+    private final String nodeId;
+
+    /**
+     * 集群调度模式
+     */
+    private final ClusterMode mode;
+
+    /**
+     * 租约有效期，单位毫秒
+     */
+    private volatile long leaseTtl;
+
+    /**
+     * 存活节点组成的一致性hash环
+     */
+    private volatile HashRing ring;
+
+    /**
+     * 当前节点是否是leader
+     */
+    private volatile boolean leader;
+
+    /**
+     * 当前节点的所有权有效期截止时间，{@link System#nanoTime()}时钟，每次续约成功后延长
+     */
+    private volatile long ownershipDeadline;
+
+    /**
+     * 续约线程，与任务执行线程池隔离，避免线程池饱和时续约被延迟导致所有权失效；为空表示未启动或者已经停止
+     */
+    private final AtomicReference<ScheduledExecutorService> heartbeatExecutor;
+
+    /**
+     * 构造器
+     *
+     * @param delegate
+     *            实际调度任务的调度系统
+     * @param leaseStore
+     *            租约存储，集群中所有节点必须使用同一个存储
+     * @param nodeId
+     *            当前节点ID，集群内唯一
+     * @param mode
+     *            集群调度模式
+     */
+    public ClusterSchedulerSystem(final SchedulerSystem delegate, final LeaseStore leaseStore, final String nodeId,
+        final ClusterMode mode) {
+        Assert.notNull(delegate, "调度系统不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(leaseStore, "租约存储不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notBlank(nodeId, "节点ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(mode, "集群调度模式不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        this.delegate = delegate;
+        this.leaseStore = leaseStore;
+        this.nodeId = nodeId;
+        this.mode = mode;
+        this.leaseTtl = TimeUnit.SECONDS.toMillis(15);
+        this.ring = new HashRing(Collections.emptySet());
+        this.leader = false;
+        this.ownershipDeadline = System.nanoTime();
+        this.heartbeatExecutor = new AtomicReference<>();
+    }
+
+    /**
+     * 设置租约有效期，节点每隔有效期的1/3续约一次，节点宕机后最多经过一个有效期其任务才会被其他节点接管；需要在启动前设置
+     *
+     * @param leaseTtl
+     *            租约有效期
+     * @param unit
+     *            时间单位
+     */
+    public void setLeaseTtl(final long leaseTtl, final TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(unit.toMillis(leaseTtl) >= 3, "租约有效期不能小于3毫秒",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.leaseTtl = unit.toMillis(leaseTtl);
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-heartbeat-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!heartbeatExecutor.compareAndSet(null, executor)) {
+            executor.shutdown();
+            throw new IllegalStateException("集群节点 [" + nodeId + "] 已经启动，请勿重复启动");
+        }
+
+        try {
+            delegate.start();
+            // 先同步续约一次，保证启动后立即知道自己负责哪些任务
+            heartbeat();
+            long period = leaseTtl / 3;
+            executor.scheduleWithFixedDelay(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        } catch (Throwable throwable) {
+            heartbeatExecutor.compareAndSet(executor, null);
+            executor.shutdown();
+            throw throwable;
+        }
+    }
+
+    @Override
+    public void stop() {
+        // 重复停止或者未启动时直接返回
+        ScheduledExecutorService executor = heartbeatExecutor.getAndSet(null);
+        if (executor == null) {
+            return;
+        }
+
+        try {
+            // 不能中断续约线程，中断会关闭租约存储中正在读写的FileChannel
+            executor.shutdown();
+            try {
+                // 等待进行中的续约结束，避免释放租约后又被续约
+                executor.awaitTermination(leaseTtl, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ownershipDeadline = System.nanoTime();
+
+            try {
+                // 主动释放租约，其他节点下次续约时即可接管，不用等待租约过期
+                leaseStore.release(MEMBER_PREFIX + nodeId, nodeId);
+                if (leader) {
+                    leaseStore.release(LEADER_KEY, nodeId);
+                }
+            } catch (Throwable throwable) {
+                LOGGER.warn(throwable, "集群节点 [{}] 释放租约失败，其他节点将在租约过期后接管任务", nodeId);
+            }
+            leader = false;
+        } finally {
+            delegate.stop();
+        }
+    }
+
+    @Override
+    public TaskDescriptor registerTask(final TaskDescriptor taskDescriptor) {
+        Assert.notNull(taskDescriptor, "要注册的任务说明不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(taskDescriptor.getTask(), "要注册的任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        String id = taskDescriptor.getId();
+        Runnable task = taskDescriptor.getTask();
+        return delegate.registerTask(new TaskDescriptor(id, taskDescriptor.getExecuteInterval(), () -> {
+            if (isOwner(id)) {
+                task.run();
+            }
+        }, taskDescriptor.getMergeScheduler(), taskDescriptor.getCron(), taskDescriptor.isSkipIfQueued(),
+            taskDescriptor.getExecuteIntervalUnit()));
+    }
+
+    @Override
+    public TaskDescriptor removeTask(final String id) {
+        return delegate.removeTask(id);
+    }
+
+    @Override
+    public List<TaskDescriptor> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public void scheduler(final String id, final boolean throwIfTaskNotFound) {
+        delegate.scheduler(id, throwIfTaskNotFound);
+    }
+
+    @Override
+    public CompletableFuture<Void> runGraph(final TaskGraph graph) {
+        return delegate.runGraph(graph);
+    }
+
+    @Override
+    public List<TaskMetrics.Snapshot> metrics() {
+        return delegate.metrics();
+    }
+
+    /**
+     * 判断当前节点是否负责执行指定任务
+     *
+     * @param id
+     *            任务ID
+     *
+     * @return true表示当前节点负责执行该任务
+     */
+    public boolean isOwner(String id) {
+        if (ownershipDeadline - System.nanoTime() <= 0) {
+            return false;
+        }
+        return mode == ClusterMode.LEADER ? leader : nodeId.equals(ring.owner(id));
+    }
+
+    /**
+     * 当前节点是否是leader，只在{@link ClusterMode#LEADER}模式下有意义
+     *
+     * @return true表示当前节点是leader
+     */
+    public boolean isLeader() {
+        return leader && ownershipDeadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * 最近一次续约时看到的存活节点
+     *
+     * @return 存活节点ID
+     */
+    public Set<String> liveNodes() {
+        return ring.nodes;
+    }
+
+    /**
+     * 续约当前节点的存活租约、竞选leader并刷新存活节点
+     */
+    private void heartbeat() {
+        long begin = System.nanoTime();
+        long ttl = leaseTtl;
+        try {
+            leaseStore.tryAcquire(MEMBER_PREFIX + nodeId, nodeId, ttl, TimeUnit.MILLISECONDS);
+            if (mode == ClusterMode.LEADER) {
+                boolean current = leaseStore.tryAcquire(LEADER_KEY, nodeId, ttl, TimeUnit.MILLISECONDS);
+                if (current != leader) {
+                    LOGGER.info("集群节点 [{}] {}leader", nodeId, current ? "成为" : "不再是");
+                }
+                leader = current;
+            }
+
+            Set<String> nodes = new TreeSet<>(leaseStore.leases(MEMBER_PREFIX).values());
+            // 存活节点中始终包含当前节点，避免存储的读写不一致导致当前节点不负责任何任务
+            nodes.add(nodeId);
+            if (!nodes.equals(ring.nodes)) {
+                LOGGER.info("集群节点 [{}] 感知到存活节点变化：{} -> {}", nodeId, ring.nodes, nodes);
+                ring = new HashRing(nodes);
+            }
+            // 所有权比租约提前失效，保证其他节点接管前当前节点已经停止执行
+            ownershipDeadline = begin + TimeUnit.MILLISECONDS.toNanos(ttl * 2 / 3);
+        } catch (Throwable throwable) {
+            LOGGER.warn(throwable, "集群节点 [{}] 续约失败，续约恢复前当前节点可能不再执行任务", nodeId);
+        }
+    }
+
+    /**
+     * 一致性hash环，不可变对象，节点变化时整体替换
+     */
+    private static final class HashRing {
+
+        /**
+         * 所有节点
+         */
+        private final Set<String> nodes;
+
+        /**
+         * 虚拟节点在环上的位置，升序排列
+         */
+        private final long[] positions;
+
+        /**
+         * 与{@link #positions}一一对应的节点
+         */
+        private final String[] owners;
+
+        private HashRing(final Collection<String> nodes) {
+            this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+
+            long[][] entries = new long[nodes.size() * VIRTUAL_NODES][];
+            String[] ordered = this.nodes.toArray(new String[0]);
+            int index = 0;
+            for (int i = 0; i < ordered.length; i++) {
+                for (int v = 0; v < VIRTUAL_NODES; v++) {
+                    entries[index++] = new long[] {hash(ordered[i] + "#" + v), i};
+                }
+            }
+            Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+
+            this.positions = new long[entries.length];
+            this.owners = new String[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                positions[i] = entries[i][0];
+                owners[i] = ordered[(int)entries[i][1]];
+            }
+        }
+
+        /**
+         * 获取key在环上顺时针方向的第一个节点
+         *
+         * @param key
+         *            key
+         *
+         * @return 节点，环为空时返回null
+         */
+        private String owner(String key) {
+            if (positions.length == 0) {
+                return null;
+            }
+            int index = Arrays.binarySearch(positions, hash(key));
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == positions.length ? 0 : index];
+        }
+
+        /**
+         * 64位FNV-1a hash，再做一次混合保证高低位都分布均匀
+         *
+         * @param key
+         *            key
+         *
+         * @return hash值
+         */
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 上下文变量，用于替代{@link ThreadLocalRecovery}，值保存在当前线程的{@link ContextSnapshot}中，通过{@link ContextSnapshot#wrap(Runnable)}
+ * 等方法跨线程传递；
+ * <p>
+ * 用法与{@link ThreadLocal}类似，但是推荐使用{@link #runWith(Object, Runnable)}/{@link #callWith(Object, Supplier)}限定作用域，作用域结束后自动恢复为之前的值，
+ * 不会在线程池线程中残留；
+ * <p>
+ * 注意：上下文变量不需要注册，也不会被任何静态集合引用，不再使用的变量直接被GC回收
+ *
+ * @param <T>
+ *            值类型
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public final class ContextKey<T> {
+
+    /**
+     * 变量序号生成器
+     */
+    private static final AtomicInteger INDEX = new AtomicInteger(0);
+
+    /**
+     * 变量名，只用于调试
+     */
+    private final String name;
+
+    /**
+     * 变量序号，也是值在{@link ContextSnapshot}中的下标
+     */
+    final int index;
+
+    private ContextKey(final String name) {
+        this.name = name;
+        this.index = INDEX.getAndIncrement();
+    }
+
+    /**
+     * 创建一个上下文变量，通常作为静态常量使用
+     *
+     * @param name
+     *            变量名，只用于调试
+     * @param <T>
+     *            值类型
+     *
+     * @return 上下文变量
+     */
+    public static <T> ContextKey<T> of(String name) {
+        Assert.notBlank(name, "上下文变量名不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return new ContextKey<>(name);
+    }
+
+    /**
+     * 获取当前线程中该变量的值
+     *
+     * @return 值，没有设置时返回null
+     */
+    public T get() {
+        return ContextSnapshot.current().get(this);
+    }
+
+    /**
+     * 设置当前线程中该变量的值，直到调用返回的作用域的{@link ContextSnapshot.Scope#close()}为止
+     *
+     * @param value
+     *            值，为null表示清除
+     *
+     * @return 作用域，关闭后恢复为设置前的值
+     */
+    public ContextSnapshot.Scope set(T value) {
+        return ContextSnapshot.current().with(this, value).attach();
+    }
+
+    /**
+     * 在指定值的作用域内执行任务
+     *
+     * @param value
+     *            值
+     * @param task
+     *            任务
+     */
+    public void runWith(T value, Runnable task) {
+        ContextSnapshot.Scope scope = set(value);
+        try {
+            task.run();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * 在指定值的作用域内执行任务
+     *
+     * @param value
+     *            值
+     * @param task
+     *            任务
+     * @param <R>
+     *            结果类型
+     *
+     * @return 结果
+     */
+    public <R> R callWith(T value, Supplier<R> task) {
+        ContextSnapshot.Scope scope = set(value);
+        try {
+            return task.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * 获取变量名
+     *
+     * @return 变量名
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey[" + name + "]";
+    }
+}
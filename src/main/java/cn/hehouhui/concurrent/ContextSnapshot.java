@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 上下文快照，保存所有{@link ContextKey}的值，是不可变对象；
+ * <p>
+ * 每个线程只持有一个当前快照的引用，捕获上下文只是读取该引用（O(1)，不复制任何值），修改某个变量时复制出一个新的快照（写时复制），所以捕获后的快照不会再被修改；
+ * 提交到线程池的任务通过{@link #wrap(Runnable)}等方法包装，执行前将捕获的快照设置为执行线程的当前快照，执行完毕后恢复执行线程原来的快照，不会在线程池线程中残留，
+ * 对平台线程和虚拟线程都有效；
+ * <p>
+ * PS：JDK21中{@code ScopedValue}仍然是预览特性，这里使用普通{@link ThreadLocal}保存当前快照的引用，语义上与{@code ScopedValue}一致：值只在作用域内可见，作用域结束自动恢复
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public final class ContextSnapshot {
+
+    /**
+     * 空快照
+     */
+    private static final ContextSnapshot EMPTY = new ContextSnapshot(new Object[0]);
+
+    /**
+     * 当前线程的快照，为空表示空快照；注意，不使用{@link InheritableThreadLocal}，避免每次创建线程都复制上下文
+     */
+    private static final ThreadLocal<ContextSnapshot> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 所有变量的值，下标是{@link ContextKey#index}
+     */
+    private final Object[] values;
+
+    private ContextSnapshot(final Object[] values) {
+        this.values = values;
+    }
+
+    /**
+     * 捕获当前线程的上下文
+     *
+     * @return 当前线程的上下文快照
+     */
+    public static ContextSnapshot capture() {
+        return current();
+    }
+
+    /**
+     * 获取当前线程的上下文快照
+     *
+     * @return 当前线程的上下文快照
+     */
+    static ContextSnapshot current() {
+        ContextSnapshot snapshot = CURRENT.get();
+        return snapshot == null ? EMPTY : snapshot;
+    }
+
+    /**
+     * 包装线程池，提交到返回的线程池中的任务都会在提交线程的上下文中执行
+     *
+     * @param executor
+     *            线程池
+     *
+     * @return 包装后的线程池
+     */
+    public static Executor wrap(Executor executor) {
+        Assert.notNull(executor, "线程池不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return command -> executor.execute(capture().wrap(command));
+    }
+
+    /**
+     * 快照是否为空
+     *
+     * @return true表示快照中没有任何值
+     */
+    public boolean isEmpty() {
+        for (final Object value : values) {
+            if (value != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取快照中指定变量的值
+     *
+     * @param key
+     *            变量
+     * @param <T>
+     *            值类型
+     *
+     * @return 值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        return key.index < values.length ? (T)values[key.index] : null;
+    }
+
+    /**
+     * 复制出一个修改了指定变量的新快照，当前快照不变
+     *
+     * @param key
+     *            变量
+     * @param value
+     *            值
+     * @param <T>
+     *            值类型
+     *
+     * @return 新快照
+     */
+    public <T> ContextSnapshot with(ContextKey<T> key, T value) {
+        Assert.notNull(key, "上下文变量不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        if (get(key) == value) {
+            return this;
+        }
+        Object[] copy = Arrays.copyOf(values, Math.max(values.length, key.index + 1));
+        copy[key.index] = value;
+        ContextSnapshot snapshot = new ContextSnapshot(copy);
+        // 所有值都被清除后归一化为空快照，保证包装任务时可以直接跳过
+        return value == null && snapshot.isEmpty() ? EMPTY : snapshot;
+    }
+
+    /**
+     * 将当前快照设置为当前线程的上下文
+     *
+     * @return 作用域，关闭后恢复当前线程原来的上下文
+     */
+    public Scope attach() {
+        ContextSnapshot previous = current();
+        if (previous == this) {
+            return Scope.NOOP;
+        }
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    /**
+     * 包装任务，任务执行时使用当前快照作为上下文
+     *
+     * @param task
+     *            任务
+     *
+     * @return 包装后的任务，快照为空时直接返回原任务
+     */
+    public Runnable wrap(Runnable task) {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        if (this == EMPTY) {
+            return task;
+        }
+        return () -> {
+            Scope scope = attach();
+            try {
+                task.run();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * 包装任务，任务执行时使用当前快照作为上下文
+     *
+     * @param task
+     *            任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 包装后的任务，快照为空时直接返回原任务
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        if (this == EMPTY) {
+            return task;
+        }
+        return () -> {
+            Scope scope = attach();
+            try {
+                return task.call();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * 包装任务，任务执行时使用当前快照作为上下文
+     *
+     * @param task
+     *            任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 包装后的任务，快照为空时直接返回原任务
+     */
+    public <T> Supplier<T> wrapSupplier(Supplier<T> task) {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        if (this == EMPTY) {
+            return task;
+        }
+        return () -> {
+            Scope scope = attach();
+            try {
+                return task.get();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    /**
+     * 上下文作用域，关闭时恢复进入作用域前的上下文；作用域必须在创建它的线程中关闭，并且按照创建的相反顺序关闭
+     */
+    public static final class Scope implements AutoCloseable {
+
+        /**
+         * 无需恢复的作用域
+         */
+        private static final Scope NOOP = new Scope(null);
+
+        /**
+         * 进入作用域前的上下文
+         */
+        private final ContextSnapshot previous;
+
+        private Scope(final ContextSnapshot previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == EMPTY) {
+                // 恢复为空快照时直接移除，避免在线程池线程中残留ThreadLocal条目
+                CURRENT.remove();
+            } else if (previous != null) {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Locale;
+
+/**
+ * cron表达式，表达式在创建时编译为每个字段一个位图，计算下次触发时间时每个字段都是通过位运算直接找到下一个合法值；
+ * 时区偏移量按照有效期缓存，偏移量不变期间计算下次触发时间只有整数运算，不创建任何对象；
+ * <p>
+ * 支持6个字段（秒 分 时 日 月 周）或者5个字段（分 时 日 月 周，此时秒固定为0），每个字段支持：
+ * <li>*或者?：任意值；</li>
+ * <li>数字或者名称：月份支持JAN-DEC，周支持SUN-SAT，周的0和7都表示周日；</li>
+ * <li>a-b：范围；</li>
+ * <li>x/n：从x开始（x可以是*、数字或者范围）每隔n取一个值；</li>
+ * <li>以上形式用逗号分隔的列表；</li>
+ * 注意：日和周同时指定（都不是*或?）时，满足其中任意一个即可触发
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public final class CronExpression {
+
+    private static final String[] MONTH_NAMES =
+        {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+
+    private static final String[] DAY_OF_WEEK_NAMES = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    /**
+     * 查找下次触发时间时最多向后查找的年数，超过该年数仍找不到说明表达式永远不会触发（例如2月30日）
+     */
+    private static final int MAX_SEARCH_YEARS = 30;
+
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    /**
+     * 400年的天数
+     */
+    private static final long DAYS_PER_CYCLE = 146097L;
+
+    /**
+     * 0000-01-01到1970-01-01的天数
+     */
+    private static final long DAYS_0000_TO_1970 = (DAYS_PER_CYCLE * 5L) - (30L * 365L + 7L);
+
+    /**
+     * 快速计算支持的最小时间（0001-01-01T00:00:00Z），超出范围时使用java.time计算
+     */
+    private static final long FAST_PATH_MIN = -62135596800000L;
+
+    /**
+     * 快速计算支持的最大时间（9999-12-31T23:59:59.999Z），超出范围时使用java.time计算
+     */
+    private static final long FAST_PATH_MAX = 253402300799999L;
+
+    /**
+     * 原始表达式
+     */
+    private final String expression;
+
+    /**
+     * 时区
+     */
+    private final ZoneId zone;
+
+    /**
+     * 秒位图，bit0-59
+     */
+    private final long seconds;
+
+    /**
+     * 分位图，bit0-59
+     */
+    private final long minutes;
+
+    /**
+     * 时位图，bit0-23
+     */
+    private final long hours;
+
+    /**
+     * 日位图，bit1-31
+     */
+    private final long daysOfMonth;
+
+    /**
+     * 月位图，bit1-12
+     */
+    private final long months;
+
+    /**
+     * 周位图，bit0-6，0表示周日
+     */
+    private final long daysOfWeek;
+
+    /**
+     * 日字段是否是任意值
+     */
+    private final boolean anyDayOfMonth;
+
+    /**
+     * 周字段是否是任意值
+     */
+    private final boolean anyDayOfWeek;
+
+    /**
+     * 最近一次计算使用的偏移量有效期，跨过偏移量切换时替换
+     */
+    private volatile OffsetWindow window;
+
+    private CronExpression(String expression, ZoneId zone) {
+        String[] fields = expression.trim().split("\\s+");
+        Assert.assertTrue(fields.length == 5 || fields.length == 6,
+            () -> StrUtil.format("cron表达式 [{}] 必须包含5个或者6个字段", expression),
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        int offset = fields.length == 6 ? 1 : 0;
+        this.expression = expression;
+        this.zone = zone;
+        this.seconds = offset == 1 ? parseField(expression, fields[0], 0, 59, null) : 1L;
+        this.minutes = parseField(expression, fields[offset], 0, 59, null);
+        this.hours = parseField(expression, fields[offset + 1], 0, 23, null);
+        this.daysOfMonth = parseField(expression, fields[offset + 2], 1, 31, null);
+        this.months = parseField(expression, fields[offset + 3], 1, 12, MONTH_NAMES);
+        long dayOfWeek = parseField(expression, fields[offset + 4], 0, 7, DAY_OF_WEEK_NAMES);
+        // 7也表示周日
+        this.daysOfWeek = (dayOfWeek | ((dayOfWeek >>> 7) & 1L)) & 0x7FL;
+        this.anyDayOfMonth = isAny(fields[offset + 2]);
+        this.anyDayOfWeek = isAny(fields[offset + 4]);
+    }
+
+    /**
+     * 使用系统默认时区编译cron表达式
+     *
+     * @param expression
+     *            cron表达式
+     *
+     * @return 编译后的cron表达式
+     *
+     * @throws IllegalArgumentException
+     *             表达式不合法时抛出
+     */
+    public static CronExpression parse(String expression) throws IllegalArgumentException {
+        return parse(expression, ZoneId.systemDefault());
+    }
+
+    /**
+     * 使用指定时区编译cron表达式
+     *
+     * @param expression
+     *            cron表达式
+     * @param zone
+     *            时区
+     *
+     * @return 编译后的cron表达式
+     *
+     * @throws IllegalArgumentException
+     *             表达式不合法时抛出
+     */
+    public static CronExpression parse(String expression, ZoneId zone) throws IllegalArgumentException {
+        Assert.notBlank(expression, "cron表达式不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(zone, "cron表达式时区不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return new CronExpression(expression, zone);
+    }
+
+    /**
+     * 计算指定时间之后（不包含指定时间）的下次触发时间；偏移量不变的时间段内（绝大多数时候）只有整数运算，不创建任何对象，
+     * 只有候选时间跨过夏令时切换时才使用java.time计算
+     *
+     * @param afterTime
+     *            指定时间戳，单位毫秒
+     *
+     * @return 下次触发时间戳，单位毫秒，如果表达式永远不会再触发则返回{@link Long#MAX_VALUE}
+     */
+    public long next(long afterTime) {
+        if (afterTime < FAST_PATH_MIN || afterTime > FAST_PATH_MAX) {
+            return nextByZonedTime(afterTime);
+        }
+
+        OffsetWindow window = offsetWindow(afterTime);
+        long localSecond = Math.floorDiv(afterTime, 1000L) + window.offsetSeconds;
+        long localNext = nextLocalSecond(localSecond);
+        if (localNext == Long.MIN_VALUE) {
+            return Long.MAX_VALUE;
+        }
+
+        // 候选时间仍然在当前偏移量的有效期内时换算结果就是准确的，否则跨过了偏移量切换，交给java.time处理夏令时的间隙和重叠
+        long next = (localNext - window.offsetSeconds) * 1000L;
+        if (next >= window.start && next < window.end) {
+            return next;
+        }
+        return nextByZonedTime(afterTime);
+    }
+
+    /**
+     * 使用java.time计算下次触发时间，与{@link #next(long)}的结果一致，用于跨过夏令时切换以及超出快速计算范围的情况
+     *
+     * @param afterTime
+     *            指定时间戳，单位毫秒
+     *
+     * @return 下次触发时间戳，单位毫秒，如果表达式永远不会再触发则返回{@link Long#MAX_VALUE}
+     */
+    long nextByZonedTime(long afterTime) {
+        Instant after = Instant.ofEpochMilli(afterTime);
+        // 夏令时回拨时同一个本地时间会出现两次，优先使用指定时间所在的偏移量，避免计算结果落在指定时间之前
+        ZoneOffset preferredOffset = zone.getRules().getOffset(after);
+        long localSecond = LocalDateTime.ofInstant(after, zone).toEpochSecond(ZoneOffset.UTC);
+        while (true) {
+            localSecond = nextLocalSecond(localSecond);
+            if (localSecond == Long.MIN_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            LocalDateTime candidate = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+            long next = ZonedDateTime.ofLocal(candidate, zone, preferredOffset).toInstant().toEpochMilli();
+            if (next > afterTime) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 获取包含指定时间的偏移量有效期，当前缓存的有效期不包含指定时间时重新计算；只有跨过偏移量切换（一般一年两次）时才会创建对象
+     *
+     * @param time
+     *            指定时间戳，单位毫秒
+     *
+     * @return 偏移量有效期
+     */
+    private OffsetWindow offsetWindow(long time) {
+        OffsetWindow window = this.window;
+        if (window != null && time >= window.start && time < window.end) {
+            return window;
+        }
+
+        ZoneRules rules = zone.getRules();
+        Instant instant = Instant.ofEpochMilli(time);
+        ZoneOffset offset = rules.getOffset(instant);
+        long start = Long.MIN_VALUE;
+        long end = Long.MAX_VALUE;
+        if (!rules.isFixedOffset()) {
+            ZoneOffsetTransition previous = rules.previousTransition(instant);
+            if (previous != null) {
+                // 指定时间恰好是切换时间时上一次切换之后的偏移量与当前不同，此时有效期从指定时间开始
+                start = previous.getOffsetAfter().equals(offset) ? previous.toEpochSecond() * 1000L : time;
+            }
+            ZoneOffsetTransition following = rules.nextTransition(instant);
+            if (following != null) {
+                end = following.toEpochSecond() * 1000L;
+            }
+        }
+        window = new OffsetWindow(start, end, offset.getTotalSeconds());
+        this.window = window;
+        return window;
+    }
+
+    /**
+     * 按照本地日历时间查找指定时间之后（不包含指定时间）的下一个匹配时间
+     *
+     * @param localSecond
+     *            指定的本地时间，以UTC偏移量表示的纪元秒数
+     *
+     * @return 下一个匹配的本地时间，以UTC偏移量表示的纪元秒数，永远不会再匹配时返回{@link Long#MIN_VALUE}
+     */
+    private long nextLocalSecond(long localSecond) {
+        long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int)Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+        // 纪元日换算为年月日，算法同LocalDate.ofEpochDay，以3月1日为一年的开始，闰日落在年末
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+        long adjust = 0;
+        if (zeroDay < 0) {
+            long adjustCycles = (zeroDay + 1) / DAYS_PER_CYCLE - 1;
+            adjust = adjustCycles * 400;
+            zeroDay += -adjustCycles * DAYS_PER_CYCLE;
+        }
+        long yearEst = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+        long doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+        if (doyEst < 0) {
+            yearEst--;
+            doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+        }
+        yearEst += adjust;
+        int marchDoy0 = (int)doyEst;
+        int marchMonth0 = (marchDoy0 * 5 + 2) / 153;
+
+        int year = (int)(yearEst + marchMonth0 / 10);
+        int month = (marchMonth0 + 2) % 12 + 1;
+        int day = marchDoy0 - (marchMonth0 * 306 + 5) / 10 + 1;
+        int hour = secondOfDay / 3600;
+        int minute = secondOfDay / 60 % 60;
+        // 不包含指定时间，所以从下一秒开始找
+        int second = secondOfDay % 60 + 1;
+        int maxYear = year + MAX_SEARCH_YEARS;
+
+        while (year <= maxYear) {
+            int next = nextSetBit(months, month);
+            if (next < 0) {
+                year++;
+                month = nextSetBit(months, 1);
+                day = 1;
+                hour = minute = second = 0;
+                continue;
+            } else if (next != month) {
+                month = next;
+                day = 1;
+                hour = minute = second = 0;
+            }
+
+            int monthLength = monthLength(year, month);
+            while (day <= monthLength && !matchDay(year, month, day)) {
+                day++;
+                hour = minute = second = 0;
+            }
+            if (day > monthLength) {
+                month++;
+                day = 1;
+                hour = minute = second = 0;
+                continue;
+            }
+
+            next = nextSetBit(hours, hour);
+            if (next < 0) {
+                day++;
+                hour = minute = second = 0;
+                continue;
+            } else if (next != hour) {
+                hour = next;
+                minute = second = 0;
+            }
+
+            next = nextSetBit(minutes, minute);
+            if (next < 0) {
+                hour++;
+                minute = second = 0;
+                continue;
+            } else if (next != minute) {
+                minute = next;
+                second = 0;
+            }
+
+            next = nextSetBit(seconds, second);
+            if (next < 0) {
+                minute++;
+                second = 0;
+                continue;
+            }
+            second = next;
+
+            return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        }
+
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * 获取原始表达式
+     *
+     * @return 原始表达式
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 获取时区
+     *
+     * @return 时区
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * 判断指定日期的日和周是否匹配
+     */
+    private boolean matchDay(int year, int month, int day) {
+        boolean matchDayOfMonth = (daysOfMonth & (1L << day)) != 0;
+        if (anyDayOfWeek) {
+            return matchDayOfMonth;
+        }
+
+        boolean matchDayOfWeek = (daysOfWeek & (1L << dayOfWeek(year, month, day))) != 0;
+        if (anyDayOfMonth) {
+            return matchDayOfWeek;
+        }
+        return matchDayOfMonth || matchDayOfWeek;
+    }
+
+    /**
+     * 查找位图中大于等于from的第一个值，字段值越界时（例如hour=24）返回-1
+     */
+    private static int nextSetBit(long bits, int from) {
+        if (from >= Long.SIZE) {
+            return -1;
+        }
+        long masked = bits & (-1L << from);
+        return masked == 0 ? -1 : Long.numberOfTrailingZeros(masked);
+    }
+
+    /**
+     * 计算星期，0表示周日
+     */
+    private static int dayOfWeek(int year, int month, int day) {
+        // 1970-01-01是周四
+        return (int)Math.floorMod(epochDay(year, month, day) + 4, 7L);
+    }
+
+    /**
+     * 计算纪元日，算法同LocalDate.toEpochDay
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static boolean isAny(String field) {
+        return "*".equals(field) || "?".equals(field);
+    }
+
+    /**
+     * 将单个字段解析为位图
+     */
+    private static long parseField(String expression, String field, int min, int max, String[] names) {
+        long bits = 0;
+        for (String part : field.split(",")) {
+            Assert.notBlank(part, () -> StrUtil.format("cron表达式 [{}] 字段 [{}] 不合法", expression, field),
+                ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+            int step = 1;
+            String range = part;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                range = part.substring(0, slash);
+                step = parseValue(expression, part.substring(slash + 1), 1, max - min + 1, null);
+            }
+
+            int start;
+            int end;
+            if (isAny(range)) {
+                start = min;
+                end = max;
+            } else {
+                int dash = range.indexOf('-');
+                if (dash > 0) {
+                    start = parseValue(expression, range.substring(0, dash), min, max, names);
+                    end = parseValue(expression, range.substring(dash + 1), min, max, names);
+                } else {
+                    start = parseValue(expression, range, min, max, names);
+                    // x/n表示从x开始到最大值
+                    end = slash >= 0 ? max : start;
+                }
+            }
+
+            Assert.assertTrue(start <= end,
+                () -> StrUtil.format("cron表达式 [{}] 字段 [{}] 范围不合法", expression, field),
+                ExceptionProviderConst.IllegalArgumentExceptionProvider);
+            for (int i = start; i <= end; i += step) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 解析单个值
+     */
+    private static int parseValue(String expression, String value, int min, int max, String[] names) {
+        if (names != null) {
+            String upper = value.toUpperCase(Locale.ROOT);
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(upper)) {
+                    // 月份名称从1开始，周名称从0开始
+                    return min == 1 ? i + 1 : i;
+                }
+            }
+        }
+
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(StrUtil.format("cron表达式 [{}] 中的值 [{}] 不合法", expression, value), e);
+        }
+        Assert.assertTrue(result >= min && result <= max,
+            () -> StrUtil.format("cron表达式 [{}] 中的值 [{}] 超出范围 [{}, {}]", expression, value, min, max),
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return result;
+    }
+
+    /**
+     * 偏移量有效期，[start, end)期间时区的偏移量都是offsetSeconds
+     */
+    private static final class OffsetWindow {
+
+        /**
+         * 有效期开始时间戳（包含），单位毫秒
+         */
+        private final long start;
+
+        /**
+         * 有效期结束时间戳（不包含），单位毫秒
+         */
+        private final long end;
+
+        /**
+         * 偏移量，单位秒
+         */
+        private final int offsetSeconds;
+
+        private OffsetWindow(final long start, final long end, final int offsetSeconds) {
+            this.start = start;
+            this.end = end;
+            this.offsetSeconds = offsetSeconds;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+/**
+ * 调度系统的任务分发策略，决定任务分发被拒绝（线程池拒绝或者待执行任务数超过上限）时如何处理
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public enum DispatchPolicy {
+
+    /**
+     * 任务回到空闲状态，已经堆积的调度计数保留，稍后由调度线程重新分发，不会丢失调度
+     */
+    RESCHEDULE,
+
+    /**
+     * 在主动调度的调用方线程中直接执行任务，以此降低调用方的调度速度；调度线程到期唤醒的任务分发被拒绝时按照{@link #RESCHEDULE}处理，
+     * 避免一个慢任务推迟其他所有到期任务
+     */
+    CALLER_RUNS
+
+}
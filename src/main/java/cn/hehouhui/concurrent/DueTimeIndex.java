@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import java.util.Arrays;
+
+/**
+ * 到期时间索引，基于可索引的最小堆实现，节点自身记录其在堆中的位置，所以插入、更新、删除都是O(log n)，获取最早到期节点是O(1)；
+ * <p>
+ * 注意：该类非线程安全，只允许单个线程（调度线程）操作
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class DueTimeIndex<T extends DueTimeIndex.Node> {
+
+    /**
+     * 堆数组，下标从0开始
+     */
+    private Node[] queue;
+
+    /**
+     * 当前堆中节点数量
+     */
+    private int size;
+
+    DueTimeIndex() {
+        this.queue = new Node[16];
+        this.size = 0;
+    }
+
+    /**
+     * 获取最早到期的节点
+     *
+     * @return 最早到期的节点，堆为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    T peek() {
+        return size == 0 ? null : (T)queue[0];
+    }
+
+    /**
+     * 移除并返回最早到期的节点
+     *
+     * @return 最早到期的节点，堆为空时返回null
+     */
+    T poll() {
+        T head = peek();
+        if (head != null) {
+            removeAt(0);
+        }
+        return head;
+    }
+
+    /**
+     * 将节点以指定到期时间放入索引，如果节点已经在索引中则更新其到期时间
+     *
+     * @param node
+     *            节点
+     * @param dueTime
+     *            到期时间
+     */
+    void offer(T node, long dueTime) {
+        int index = node.heapIndex;
+        if (index < 0) {
+            if (size == queue.length) {
+                queue = Arrays.copyOf(queue, size + (size >> 1));
+            }
+            node.dueTime = dueTime;
+            node.heapIndex = size;
+            queue[size++] = node;
+            siftUp(node.heapIndex);
+        } else {
+            long old = node.dueTime;
+            node.dueTime = dueTime;
+            if (dueTime < old) {
+                siftUp(index);
+            } else if (dueTime > old) {
+                siftDown(index);
+            }
+        }
+    }
+
+    /**
+     * 从索引中移除节点，节点不在索引中时什么也不做
+     *
+     * @param node
+     *            节点
+     */
+    void remove(T node) {
+        int index = node.heapIndex;
+        if (index >= 0 && index < size && queue[index] == node) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * 当前索引中节点数量
+     *
+     * @return 节点数量
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 清空索引
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            queue[i].heapIndex = -1;
+            queue[i] = null;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        Node removed = queue[index];
+        removed.heapIndex = -1;
+
+        int last = --size;
+        if (index == last) {
+            queue[last] = null;
+            return;
+        }
+
+        Node moved = queue[last];
+        queue[last] = null;
+        queue[index] = moved;
+        moved.heapIndex = index;
+        siftDown(index);
+        // 如果没有下沉，那么可能需要上浮
+        if (queue[index] == moved) {
+            siftUp(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        Node node = queue[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Node parentNode = queue[parent];
+            if (parentNode.dueTime <= node.dueTime) {
+                break;
+            }
+            queue[index] = parentNode;
+            parentNode.heapIndex = index;
+            index = parent;
+        }
+        queue[index] = node;
+        node.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+        Node node = queue[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < size && queue[right].dueTime < queue[child].dueTime) {
+                child = right;
+            }
+            Node childNode = queue[child];
+            if (node.dueTime <= childNode.dueTime) {
+                break;
+            }
+            queue[index] = childNode;
+            childNode.heapIndex = index;
+            index = child;
+        }
+        queue[index] = node;
+        node.heapIndex = index;
+    }
+
+    /**
+     * 索引节点，节点自身持有到期时间和在堆中的位置
+     */
+    abstract static class Node {
+
+        /**
+         * 在堆中的位置，-1表示当前不在堆中；PS：只会被调度线程读写
+         */
+        int heapIndex = -1;
+
+        /**
+         * 在索引中的到期时间；PS：只会被调度线程读写
+         */
+        long dueTime;
+
+        /**
+         * 获取在索引中的到期时间
+         *
+         * @return 到期时间
+         */
+        long dueTime() {
+            return dueTime;
+        }
+
+        /**
+         * 当前节点是否在索引中
+         *
+         * @return true表示在索引中
+         */
+        boolean indexed() {
+            return heapIndex >= 0;
+        }
+    }
+}
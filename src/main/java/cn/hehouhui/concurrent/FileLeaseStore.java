@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 基于本地文件锁的租约存储，所有租约保存在同一个文件中，每次操作都在文件锁内完成读取、修改、写回，适用于同一台机器（或者共享同一个支持文件锁的文件系统）上的多个进程；
+ * 过期时间基于系统时间，所以各进程的系统时间需要保持一致
+ * <p>
+ * 文件格式为{@link Properties}，key为租约key，value为 过期时间(毫秒时间戳):持有者
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    /**
+     * 同一个进程内对同一个文件的操作互斥，同一个进程内重复加文件锁会抛出异常
+     */
+    private static final Map<Path, Object> MUTEXES = new ConcurrentHashMap<>();
+
+    /**
+     * 租约文件
+     */
+    private final Path file;
+
+    /**
+     * 当前文件的进程内互斥对象
+     */
+    private final Object mutex;
+
+    /**
+     * 构造器
+     *
+     * @param file
+     *            租约文件，不存在时自动创建，所有参与协调的进程必须使用同一个文件
+     */
+    public FileLeaseStore(final Path file) {
+        Assert.notNull(file, "租约文件不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.file = file.toAbsolutePath().normalize();
+        this.mutex = MUTEXES.computeIfAbsent(this.file, k -> new Object());
+    }
+
+    @Override
+    public boolean tryAcquire(final String key, final String owner, final long ttl, final TimeUnit unit) {
+        Assert.notBlank(key, "租约key不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notBlank(owner, "租约持有者不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        return update(leases -> {
+            long now = System.currentTimeMillis();
+            String holder = owner(leases.getProperty(key), now);
+            if (holder != null && !holder.equals(owner)) {
+                return false;
+            }
+            leases.setProperty(key, (now + unit.toMillis(ttl)) + ":" + owner);
+            return true;
+        });
+    }
+
+    @Override
+    public void release(final String key, final String owner) {
+        update(leases -> {
+            String value = leases.getProperty(key);
+            if (value != null && owner.equals(value.substring(value.indexOf(':') + 1))) {
+                leases.remove(key);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, String> leases(final String prefix) {
+        return update(leases -> {
+            long now = System.currentTimeMillis();
+            Map<String, String> result = new HashMap<>();
+            for (final String key : leases.stringPropertyNames()) {
+                String holder = owner(leases.getProperty(key), now);
+                if (holder == null) {
+                    // 顺便清理过期的租约，避免文件无限增长
+                    leases.remove(key);
+                } else if (key.startsWith(prefix)) {
+                    result.put(key, holder);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 在文件锁内读取所有租约，执行修改后写回
+     *
+     * @param action
+     *            修改动作
+     * @param <T>
+     *            结果类型
+     *
+     * @return 修改动作的结果
+     */
+    private <T> T update(Function<Properties, T> action) {
+        synchronized (mutex) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+                    // 注意，这里不能用Files读取，关闭同一个文件的其他文件描述符时可能会释放当前进程持有的文件锁
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) {
+                            break;
+                        }
+                    }
+                    Properties leases = new Properties();
+                    leases.load(
+                        new StringReader(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8)));
+                    String before = leases.toString();
+
+                    T result = action.apply(leases);
+
+                    if (!before.equals(leases.toString())) {
+                        StringWriter writer = new StringWriter();
+                        leases.store(writer, null);
+                        byte[] data = writer.toString().getBytes(StandardCharsets.UTF_8);
+                        channel.truncate(0);
+                        ByteBuffer output = ByteBuffer.wrap(data);
+                        // 定位写不保证一次写完，需要循环写到缓冲区为空
+                        while (output.hasRemaining()) {
+                            channel.write(output, output.position());
+                        }
+                        channel.force(false);
+                    }
+                    return result;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(StrUtil.format("读写租约文件 [{}] 失败", file), e);
+            }
+        }
+    }
+
+    /**
+     * 解析租约的持有者
+     *
+     * @param value
+     *            文件中保存的租约
+     * @param now
+     *            当前时间
+     *
+     * @return 持有者，租约不存在、已经过期或者格式错误时返回null
+     */
+    private static String owner(String value, long now) {
+        if (value == null) {
+            return null;
+        }
+        int index = value.indexOf(':');
+        try {
+            return index > 0 && Long.parseLong(value.substring(0, index)) > now ? value.substring(index + 1) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存租约存储，只在单个进程内有效，适用于测试或者同一个进程中的多个调度系统之间协调；过期时间基于单调时钟
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class InMemoryLeaseStore implements LeaseStore {
+
+    /**
+     * 所有租约
+     */
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryAcquire(final String key, final String owner, final long ttl, final TimeUnit unit) {
+        Assert.notBlank(key, "租约key不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notBlank(owner, "租约持有者不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        long now = System.nanoTime();
+        Lease lease = leases.compute(key, (k, old) -> old == null || old.expired(now) || old.owner.equals(owner)
+            ? new Lease(owner, now + unit.toNanos(ttl)) : old);
+        return lease.owner.equals(owner);
+    }
+
+    @Override
+    public void release(final String key, final String owner) {
+        leases.computeIfPresent(key, (k, old) -> old.owner.equals(owner) ? null : old);
+    }
+
+    @Override
+    public Map<String, String> leases(final String prefix) {
+        long now = System.nanoTime();
+        Map<String, String> result = new HashMap<>();
+        leases.forEach((key, lease) -> {
+            if (key.startsWith(prefix) && !lease.expired(now)) {
+                result.put(key, lease.owner);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 租约
+     */
+    private static final class Lease {
+
+        /**
+         * 持有者
+         */
+        private final String owner;
+
+        /**
+         * 过期时间，{@link System#nanoTime()}时钟
+         */
+        private final long expireAt;
+
+        private Lease(final String owner, final long expireAt) {
+            this.owner = owner;
+            this.expireAt = expireAt;
+        }
+
+        /**
+         * 是否已经过期
+         *
+         * @param now
+         *            当前时间
+         *
+         * @return true表示已经过期
+         */
+        private boolean expired(long now) {
+            return expireAt - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 按key加锁，每个key对应一个独立的锁，不同key之间没有任何冲突；
+ * <p>
+ * 锁对象带有引用计数，持有或者等待该锁的线程数降为0时自动从内存中移除，所以内存占用只与同一时间被锁定的key数量有关，不会随着key的增多无限增长
+ *
+ * @param <K>
+ *            key类型
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class KeyedLock<K> {
+
+    /**
+     * 当前被持有或者等待中的锁
+     */
+    private final Map<K, Ref> locks;
+
+    public KeyedLock() {
+        this.locks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 锁定指定key运行任务，有返回值
+     *
+     * @param key
+     *            key
+     * @param task
+     *            任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     */
+    public <T> T runWithLock(K key, Supplier<T> task) {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Ref ref = retain(key);
+        try {
+            return LockTask.runWithLock(ref.lock, task);
+        } finally {
+            release(key, ref);
+        }
+    }
+
+    /**
+     * 锁定指定key运行任务，无返回值
+     *
+     * @param key
+     *            key
+     * @param task
+     *            任务
+     */
+    public void runWithLock(K key, Runnable task) {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Ref ref = retain(key);
+        try {
+            LockTask.runWithLock(ref.lock, task);
+        } finally {
+            release(key, ref);
+        }
+    }
+
+    /**
+     * 锁定指定key运行可被中断的任务
+     *
+     * @param key
+     *            key
+     * @param task
+     *            可被中断的任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     *
+     * @throws Exception
+     *             任务异常
+     */
+    public <T> T runInterruptedTaskWithLock(K key, Callable<T> task) throws Exception {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Ref ref = retain(key);
+        try {
+            return LockTask.runInterruptedTaskWithLock(ref.lock, task);
+        } finally {
+            release(key, ref);
+        }
+    }
+
+    /**
+     * 尝试在指定时间内锁定指定key运行任务
+     *
+     * @param key
+     *            key
+     * @param timeout
+     *            最大等待时长
+     * @param unit
+     *            时间单位
+     * @param task
+     *            任务
+     *
+     * @return true表示加锁成功并且任务已经执行，false表示等待超时，任务没有执行
+     *
+     * @throws InterruptedException
+     *             等待期间被中断
+     */
+    public boolean tryRunWithLock(K key, long timeout, TimeUnit unit, Runnable task) throws InterruptedException {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Ref ref = retain(key);
+        try {
+            if (!ref.lock.tryLock(timeout, unit)) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                ref.lock.unlock();
+            }
+        } finally {
+            release(key, ref);
+        }
+    }
+
+    /**
+     * 判断指定key当前是否被锁定
+     *
+     * @param key
+     *            key
+     *
+     * @return true表示被锁定
+     */
+    public boolean isLocked(K key) {
+        Ref ref = locks.get(key);
+        return ref != null && ref.lock.isLocked();
+    }
+
+    /**
+     * 当前被持有或者等待中的key数量
+     *
+     * @return key数量
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    /**
+     * 获取指定key的锁并将引用计数加1，引用计数的修改在{@link ConcurrentHashMap#compute}中完成，与移除互斥
+     *
+     * @param key
+     *            key
+     *
+     * @return 锁引用
+     */
+    private Ref retain(K key) {
+        Assert.notNull(key, "加锁的key不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return locks.compute(key, (k, ref) -> {
+            if (ref == null) {
+                ref = new Ref();
+            }
+            ref.refs++;
+            return ref;
+        });
+    }
+
+    /**
+     * 将指定key的锁引用计数减1，降为0时移除
+     *
+     * @param key
+     *            key
+     * @param ref
+     *            锁引用
+     */
+    private void release(K key, Ref ref) {
+        locks.computeIfPresent(key, (k, current) -> {
+            if (current != ref) {
+                return current;
+            }
+            return --current.refs == 0 ? null : current;
+        });
+    }
+
+    /**
+     * 带引用计数的锁
+     */
+    private static final class Ref {
+
+        /**
+         * 锁
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 引用计数，只在{@link ConcurrentHashMap#compute}中修改
+         */
+        private int refs;
+    }
+}
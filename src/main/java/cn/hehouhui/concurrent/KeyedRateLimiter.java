@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 按key隔离的限流器，例如按照租户限流，每个key对应一个独立的限流器，首次使用时通过工厂创建；
+ * <p>
+ * 内存有界：key数量超过上限时淘汰最久未使用的限流器，淘汰只由触发的那个线程执行，其他线程不会等待；被淘汰的key再次使用时会创建新的限流器，相当于重置了该key的限流状态，
+ * 所以上限应该明显大于同一时间活跃的key数量
+ *
+ * @param <K>
+ *            key类型
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class KeyedRateLimiter<K> {
+
+    /**
+     * 最大key数量
+     */
+    private final int maxKeys;
+
+    /**
+     * 限流器工厂
+     */
+    private final Function<K, RateLimiter> factory;
+
+    /**
+     * 所有限流器
+     */
+    private final Map<K, Entry> limiters;
+
+    /**
+     * 淘汰锁，同一时间只允许一个线程淘汰
+     */
+    private final ReentrantLock evictLock;
+
+    /**
+     * 构造器
+     *
+     * @param maxKeys
+     *            最大key数量，必须大于0
+     * @param factory
+     *            限流器工厂
+     */
+    public KeyedRateLimiter(final int maxKeys, final Function<K, RateLimiter> factory) {
+        Assert.assertTrue(maxKeys > 0, "最大key数量必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(factory, "限流器工厂不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.maxKeys = maxKeys;
+        this.factory = factory;
+        this.limiters = new ConcurrentHashMap<>();
+        this.evictLock = new ReentrantLock();
+    }
+
+    /**
+     * 获取指定key对应的限流器，不存在时创建
+     *
+     * @param key
+     *            key
+     *
+     * @return 限流器
+     */
+    public RateLimiter get(K key) {
+        Assert.notNull(key, "限流key不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Entry entry = limiters.get(key);
+        if (entry == null) {
+            entry = limiters.computeIfAbsent(key, k -> new Entry(factory.apply(k)));
+            if (limiters.size() > maxKeys) {
+                evict();
+            }
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.limiter;
+    }
+
+    /**
+     * 尝试获取指定key的1个许可，不等待
+     *
+     * @param key
+     *            key
+     *
+     * @return true表示获取成功
+     */
+    public boolean tryAcquire(K key) {
+        return get(key).tryAcquire();
+    }
+
+    /**
+     * 尝试获取指定key的指定数量许可，不等待
+     *
+     * @param key
+     *            key
+     * @param permits
+     *            许可数量
+     *
+     * @return true表示获取成功
+     */
+    public boolean tryAcquire(K key, int permits) {
+        return get(key).tryAcquire(permits);
+    }
+
+    /**
+     * 当前key数量
+     *
+     * @return key数量
+     */
+    public int size() {
+        return limiters.size();
+    }
+
+    /**
+     * 淘汰最久未使用的限流器，淘汰到上限的3/4，避免每次新增key都触发淘汰
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+
+        try {
+            int excess = limiters.size() - maxKeys * 3 / 4;
+            if (excess <= 0) {
+                return;
+            }
+
+            // 先对访问时间做快照再排序，避免排序过程中访问时间变化导致比较结果不一致
+            List<Map.Entry<K, Entry>> entries = new ArrayList<>(limiters.size());
+            for (final Map.Entry<K, Entry> entry : limiters.entrySet()) {
+                entry.getValue().evictStamp = entry.getValue().lastAccess;
+                entries.add(entry);
+            }
+            entries.sort(Comparator.comparingLong(e -> e.getValue().evictStamp));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                Map.Entry<K, Entry> entry = entries.get(i);
+                limiters.remove(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * 限流器及其最近访问时间
+     */
+    private static final class Entry {
+
+        /**
+         * 限流器
+         */
+        private final RateLimiter limiter;
+
+        /**
+         * 最近访问时间，{@link System#nanoTime()}时钟，只用于淘汰排序，不要求精确
+         */
+        private volatile long lastAccess;
+
+        /**
+         * 淘汰时的访问时间快照，只在持有淘汰锁时读写
+         */
+        private long evictStamp;
+
+        private Entry(final RateLimiter limiter) {
+            this.limiter = limiter;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+}
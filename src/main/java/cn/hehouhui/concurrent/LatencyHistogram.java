@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图，记录过程无锁，只会对一个桶和总数做原子累加，适合在任务执行路径上使用；
+ * <p>
+ * 记录单位为微秒，大部分调度任务的耗时都在亚毫秒级，按毫秒记录会全部落在同一个桶中；分桶上界（单位微秒，包含上界）为{@link #BUCKET_BOUNDS}，
+ * 超过最大上界的值计入最后一个溢出桶
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class LatencyHistogram {
+
+    /**
+     * 分桶上界，单位微秒，从1微秒到60秒
+     */
+    private static final long[] BUCKET_BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000,
+        20_000, 50_000, 100_000, 200_000, 500_000, 1_000_000, 2_000_000, 5_000_000, 10_000_000, 30_000_000, 60_000_000};
+
+    /**
+     * 各个分桶的计数，最后一个是溢出桶
+     */
+    private final AtomicLongArray buckets;
+
+    /**
+     * 所有记录值的和
+     */
+    private final AtomicLong sum;
+
+    /**
+     * 记录的最大值
+     */
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+        this.sum = new AtomicLong(0);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * 记录一个耗时，小于0的值按0记录
+     *
+     * @param micros
+     *            耗时，单位微秒
+     */
+    public void record(long micros) {
+        long value = Math.max(micros, 0);
+        int index = Arrays.binarySearch(BUCKET_BOUNDS, value);
+        buckets.incrementAndGet(index >= 0 ? index : -index - 1);
+        sum.addAndGet(value);
+
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // cas失败说明有其他线程更新了最大值，重新比较
+        }
+    }
+
+    /**
+     * 获取当前直方图的快照，快照期间的并发记录可能部分可见
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(BUCKET_BOUNDS.clone(), counts, count, sum.get(), max.get());
+    }
+
+    /**
+     * 直方图快照
+     */
+    @Getter
+    @ToString
+    public static class Snapshot {
+
+        /**
+         * 分桶上界，单位微秒，比{@link #counts}少一个元素，最后一个计数是溢出桶
+         */
+        private final long[] bounds;
+
+        /**
+         * 各个分桶的计数
+         */
+        private final long[] counts;
+
+        /**
+         * 总记录数
+         */
+        private final long count;
+
+        /**
+         * 所有记录值的和，单位微秒
+         */
+        private final long sum;
+
+        /**
+         * 记录的最大值，单位微秒
+         */
+        private final long max;
+
+        Snapshot(long[] bounds, long[] counts, long count, long sum, long max) {
+            this.bounds = bounds;
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * 平均值
+         *
+         * @return 平均值，单位微秒，没有记录时返回0
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double)sum / count;
+        }
+
+        /**
+         * 估算指定分位的值，返回该分位所在分桶的上界，落在溢出桶时返回最大值
+         *
+         * @param quantile
+         *            分位，取值[0, 1]
+         *
+         * @return 分位值，单位微秒，没有记录时返回0
+         */
+        public long percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long)Math.ceil(Math.min(Math.max(quantile, 0), 1) * count);
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bounds[i], max);
+                }
+            }
+            return max;
+        }
+    }
+}
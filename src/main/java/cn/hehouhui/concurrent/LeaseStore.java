@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 租约存储，集群调度模式下各节点通过租约登记存活状态以及竞选leader，见{@link ClusterSchedulerSystem}；
+ * <p>
+ * 租约由key唯一标识，同一时间只能被一个持有者持有，持有者需要在租约过期前续约，过期后其他持有者可以获取；
+ * 实现可以基于数据库、Redis、ZooKeeper等共享存储，内置了单进程内使用的{@link InMemoryLeaseStore}和同一台机器多进程间使用的{@link FileLeaseStore}
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public interface LeaseStore {
+
+    /**
+     * 获取或者续约租约，租约不存在、已经过期或者已经被当前持有者持有时成功，成功后租约的过期时间为当前时间加上有效期
+     *
+     * @param key
+     *            租约key
+     * @param owner
+     *            持有者
+     * @param ttl
+     *            有效期
+     * @param unit
+     *            时间单位
+     *
+     * @return true表示当前持有者持有该租约
+     */
+    boolean tryAcquire(String key, String owner, long ttl, TimeUnit unit);
+
+    /**
+     * 释放租约，只有租约的持有者才能释放，非持有者调用时不做任何处理
+     *
+     * @param key
+     *            租约key
+     * @param owner
+     *            持有者
+     */
+    void release(String key, String owner);
+
+    /**
+     * 获取所有key以指定前缀开头并且还未过期的租约
+     *
+     * @param prefix
+     *            key前缀
+     *
+     * @return 租约key与持有者的映射
+     */
+    Map<String, String> leases(String prefix);
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 生命周期门，用于启动、关闭与日常操作之间的互斥，语义等同于读写锁：日常操作（共享）之间可以并发，启动、关闭（独占）与日常操作互斥；
+ * <p>
+ * 与直接使用{@link ReentrantReadWriteLock}的区别在于共享操作的快速路径：读写锁的所有读线程都要CAS同一个计数，调用频繁时该计数所在的缓存行会在CPU之间来回失效；
+ * 这里按照线程将读计数分散到多个独立缓存行的槽位上，没有独占操作时共享操作只修改自己槽位的计数，不会产生多核共享写；
+ * <p>
+ * 独占操作先标记等待，再等待所有槽位的计数归零，期间新来的共享操作发现标记后退回到读写锁的慢速路径，所以独占操作的开销比读写锁大，适合启动、关闭这种低频操作；
+ * <p>
+ * 与读写锁一样支持重入：共享操作中可以嵌套共享操作，独占操作中可以嵌套独占、共享操作，但是共享操作中不能嵌套独占操作
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class LifecycleGate {
+
+    /**
+     * 每个槽位占用的long数量，16个long是128字节，保证不同槽位不在同一个缓存行（包括相邻行预取）
+     */
+    private static final int PADDING = 16;
+
+    /**
+     * 槽位数上限
+     */
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * 所有槽位的读计数，槽位i的计数在下标i * PADDING处
+     */
+    private final AtomicLongArray readers;
+
+    /**
+     * 槽位掩码，槽位数是2的幂
+     */
+    private final int mask;
+
+    /**
+     * 是否有独占操作在等待或者执行
+     */
+    private volatile boolean exclusivePending;
+
+    /**
+     * 独占操作之间的互斥
+     */
+    private final ReentrantLock exclusiveLock;
+
+    /**
+     * 慢速路径，独占操作执行期间持有写锁，存在独占操作时共享操作通过读锁进入
+     */
+    private final ReentrantReadWriteLock slowLock;
+
+    public LifecycleGate() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = Math.min(Integer.highestOneBit(Math.max(processors * 2 - 1, 1)) << 1, MAX_STRIPES);
+        this.readers = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+        this.exclusivePending = false;
+        this.exclusiveLock = new ReentrantLock();
+        this.slowLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * 共享执行任务，有返回值
+     *
+     * @param task
+     *            任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     */
+    public <T> T runShared(Supplier<T> task) {
+        int index = stripe();
+        readers.getAndIncrement(index);
+        // 先增加计数再检查标记，独占操作先设置标记再检查计数，两者都是volatile读写，所以至少有一方能看到对方
+        if (!exclusivePending) {
+            try {
+                return task.get();
+            } finally {
+                readers.getAndDecrement(index);
+            }
+        }
+
+        readers.getAndDecrement(index);
+        return LockTask.runWithLock(slowLock.readLock(), task);
+    }
+
+    /**
+     * 共享执行任务，无返回值
+     *
+     * @param task
+     *            任务
+     */
+    public void runShared(Runnable task) {
+        runShared(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 独占执行任务，等待进行中的共享操作全部完成后执行，执行期间新的共享操作会被阻塞
+     *
+     * @param task
+     *            任务
+     */
+    public void runExclusive(Runnable task) {
+        exclusiveLock.lock();
+        try {
+            boolean outermost = exclusiveLock.getHoldCount() == 1;
+            if (outermost) {
+                exclusivePending = true;
+                awaitReaders();
+            }
+            try {
+                LockTask.runWithLock(slowLock.writeLock(), task);
+            } finally {
+                if (outermost) {
+                    exclusivePending = false;
+                }
+            }
+        } finally {
+            exclusiveLock.unlock();
+        }
+    }
+
+    /**
+     * 等待所有快速路径上的共享操作完成；这期间慢速路径上的读锁还没有被写锁阻塞，所以快速路径上的共享操作中嵌套的共享操作不会死锁
+     */
+    private void awaitReaders() {
+        for (int i = 0; i < readers.length(); i += PADDING) {
+            long waitNanos = 0;
+            while (readers.get(i) != 0) {
+                if (waitNanos == 0) {
+                    Thread.onSpinWait();
+                    waitNanos = 1000;
+                } else {
+                    LockSupport.parkNanos(waitNanos);
+                    waitNanos = Math.min(waitNanos << 1, 1_000_000);
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前线程使用的槽位，按照线程ID散列，同一个线程始终使用同一个槽位
+     *
+     * @return 槽位计数在{@link #readers}中的下标
+     */
+    private int stripe() {
+        long id = Thread.currentThread().threadId();
+        return ((int)((id * 0x9E3779B97F4A7C15L) >>> 32) & mask) * PADDING;
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+import lombok.CustomLog;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组件生命周期管理，基于{@link Starter}保证整体只启动、关闭一次，组件之间可以声明依赖；
+ * <p>
+ * 启动时没有依赖关系的组件在虚拟线程中并行启动，每个组件在其所有依赖启动完成后立即启动，整体启动耗时取决于依赖链上的关键路径，而不是所有组件耗时之和；
+ * 关闭时按照启动的相反顺序并行关闭，每个组件在依赖它的组件全部关闭后才关闭；
+ * <p>
+ * 注意：
+ * <li>组件依赖的组件必须先添加，所以依赖关系在构造时就保证了无环；</li>
+ * <li>任意组件启动失败时，已经启动的组件会按照相反顺序关闭，然后抛出启动异常；</li>
+ * <li>单个组件关闭失败不影响其他组件关闭，异常只记录日志；</li>
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@CustomLog
+public class LifecycleManager {
+
+    /**
+     * 管理器名称
+     */
+    private final String name;
+
+    /**
+     * 所有组件，按照添加顺序排列，添加顺序同时也是一个合法的拓扑顺序
+     */
+    private final Map<String, Component> components;
+
+    /**
+     * 启动器
+     */
+    private final Starter starter;
+
+    /**
+     * 最近一次启动各组件的耗时
+     */
+    private final Map<String, ComponentTiming> timings;
+
+    public LifecycleManager(final String name) {
+        Assert.notBlank(name, "生命周期管理器名称不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.name = name;
+        this.components = new LinkedHashMap<>();
+        this.starter = new Starter();
+        this.timings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 添加一个组件
+     *
+     * @param id
+     *            组件ID，管理器内唯一
+     * @param startTask
+     *            组件启动任务
+     * @param stopTask
+     *            组件关闭任务
+     * @param dependencies
+     *            依赖的组件ID，依赖的组件必须已经添加
+     *
+     * @return 当前管理器
+     */
+    public synchronized LifecycleManager addComponent(String id, Runnable startTask, Runnable stopTask,
+        String... dependencies) {
+        Assert.notBlank(id, "组件ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(startTask, "组件启动任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(stopTask, "组件关闭任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertFalse(starter.isStarted(), "生命周期管理器已经启动，无法添加组件",
+            ExceptionProviderConst.IllegalStateExceptionProvider);
+        Assert.assertFalse(components.containsKey(id), () -> StrUtil.format("[{}] 中组件 [{}] 已经存在", name, id),
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        String[] depends = dependencies == null ? new String[0] : dependencies.clone();
+        for (final String dependency : depends) {
+            Assert.assertTrue(components.containsKey(dependency),
+                () -> StrUtil.format("[{}] 中组件 [{}] 依赖的组件 [{}] 不存在，请先添加依赖组件", name, id, dependency),
+                ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        }
+
+        components.put(id, new Component(id, startTask, stopTask, depends));
+        return this;
+    }
+
+    /**
+     * 添加一个调度系统组件
+     *
+     * @param id
+     *            组件ID，管理器内唯一
+     * @param schedulerSystem
+     *            调度系统
+     * @param dependencies
+     *            依赖的组件ID，依赖的组件必须已经添加
+     *
+     * @return 当前管理器
+     */
+    public LifecycleManager addComponent(String id, SchedulerSystem schedulerSystem, String... dependencies) {
+        Assert.notNull(schedulerSystem, "调度系统不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return addComponent(id, schedulerSystem::start, schedulerSystem::stop, dependencies);
+    }
+
+    /**
+     * 启动所有组件，已经启动时不执行
+     *
+     * @throws RuntimeException
+     *             任意组件启动失败时抛出，此时已经启动的组件已经被关闭
+     */
+    public synchronized void start() {
+        starter.start(() -> {
+            timings.clear();
+            Set<String> started = ConcurrentHashMap.newKeySet();
+            long origin = System.nanoTime();
+
+            TaskGraph graph = new TaskGraph(name + "-start");
+            for (final Component component : components.values()) {
+                graph.addNode(component.id, () -> {
+                    long begin = System.nanoTime();
+                    component.startTask.run();
+                    long end = System.nanoTime();
+                    started.add(component.id);
+                    timings.put(component.id, new ComponentTiming(component.id,
+                        TimeUnit.NANOSECONDS.toMillis(begin - origin), TimeUnit.NANOSECONDS.toMillis(end - begin)));
+                }, component.dependencies);
+            }
+
+            try (ExecutorService executor = newExecutor("start")) {
+                graph.run(executor).join();
+            } catch (CompletionException e) {
+                LOGGER.warn("[{}] 启动失败，开始关闭已经启动的组件 {}", name, started);
+                stopComponents(started);
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+            }
+
+            LOGGER.info("[{}] 启动完成，总耗时 [{}] 毫秒，关键路径 {}，各组件耗时 {}", name,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin), criticalPath(), startupReport());
+        });
+    }
+
+    /**
+     * 关闭所有组件，未启动时不执行
+     */
+    public synchronized void stop() {
+        starter.stop(() -> stopComponents(components.keySet()));
+    }
+
+    /**
+     * 在启动状态下执行任务，保证任务执行完成前不会关闭
+     *
+     * @param task
+     *            要执行的任务
+     *
+     * @throws IllegalStateException
+     *             尚未启动时抛出
+     */
+    public void runWithStarted(Runnable task) throws IllegalStateException {
+        starter.runWithStarted(task);
+    }
+
+    /**
+     * 是否已经启动
+     *
+     * @return true表示已经启动
+     */
+    public boolean isStarted() {
+        return starter.isStarted();
+    }
+
+    /**
+     * 最近一次启动各组件的耗时，按照开始启动的时间排序
+     *
+     * @return 各组件耗时
+     */
+    public List<ComponentTiming> startupReport() {
+        List<ComponentTiming> report = new ArrayList<>(timings.values());
+        report.sort(Comparator.comparingLong(ComponentTiming::getStartOffset));
+        return report;
+    }
+
+    /**
+     * 最近一次启动的关键路径，即决定整体启动耗时的组件依赖链，缩短该链上组件的启动耗时才能缩短整体启动耗时
+     *
+     * @return 关键路径上的组件ID，按照启动顺序排列
+     */
+    public synchronized List<String> criticalPath() {
+        ComponentTiming last = null;
+        for (final ComponentTiming timing : timings.values()) {
+            if (last == null || timing.finishOffset() > last.finishOffset()) {
+                last = timing;
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        while (last != null) {
+            path.add(last.getId());
+            // 依赖中最后完成的那个决定了当前组件的开始时间
+            ComponentTiming previous = null;
+            for (final String dependency : components.get(last.getId()).dependencies) {
+                ComponentTiming timing = timings.get(dependency);
+                if (timing != null && (previous == null || timing.finishOffset() > previous.finishOffset())) {
+                    previous = timing;
+                }
+            }
+            last = previous;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * 按照启动的相反顺序并行关闭指定组件，单个组件关闭失败不影响其他组件
+     *
+     * @param targets
+     *            要关闭的组件ID
+     */
+    private void stopComponents(Set<String> targets) {
+        // 反向构建依赖图：组件依赖所有依赖它的组件，倒序添加保证依赖节点先添加
+        List<Component> ordered = new ArrayList<>(components.values());
+        Collections.reverse(ordered);
+        Map<String, List<String>> dependents = new LinkedHashMap<>();
+        for (final Component component : components.values()) {
+            for (final String dependency : component.dependencies) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(component.id);
+            }
+        }
+
+        TaskGraph graph = new TaskGraph(name + "-stop");
+        for (final Component component : ordered) {
+            graph.addNode(component.id, () -> {
+                if (!targets.contains(component.id)) {
+                    return;
+                }
+                try {
+                    component.stopTask.run();
+                } catch (Throwable throwable) {
+                    LOGGER.warn(throwable, "[{}] 组件 [{}] 关闭失败，异常将被忽略", name, component.id);
+                }
+            }, dependents.getOrDefault(component.id, Collections.emptyList()).toArray(new String[0]));
+        }
+
+        try (ExecutorService executor = newExecutor("stop")) {
+            graph.run(executor).join();
+        }
+        LOGGER.info("[{}] 所有组件已经关闭", name);
+    }
+
+    /**
+     * 创建组件启动、关闭使用的线程池，每个组件运行在独立的虚拟线程上
+     *
+     * @param phase
+     *            阶段名
+     *
+     * @return 线程池
+     */
+    private ExecutorService newExecutor(String phase) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-" + phase + "-", 0).factory());
+    }
+
+    /**
+     * 组件
+     */
+    private static class Component {
+
+        /**
+         * 组件ID
+         */
+        private final String id;
+
+        /**
+         * 启动任务
+         */
+        private final Runnable startTask;
+
+        /**
+         * 关闭任务
+         */
+        private final Runnable stopTask;
+
+        /**
+         * 依赖的组件ID
+         */
+        private final String[] dependencies;
+
+        private Component(final String id, final Runnable startTask, final Runnable stopTask,
+            final String[] dependencies) {
+            this.id = id;
+            this.startTask = startTask;
+            this.stopTask = stopTask;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * 组件启动耗时
+     */
+    @Getter
+    @ToString
+    public static class ComponentTiming {
+
+        /**
+         * 组件ID
+         */
+        private final String id;
+
+        /**
+         * 组件开始启动的时间相对整体开始启动的偏移，单位毫秒
+         */
+        private final long startOffset;
+
+        /**
+         * 组件启动耗时，单位毫秒
+         */
+        private final long duration;
+
+        ComponentTiming(final String id, final long startOffset, final long duration) {
+            this.id = id;
+            this.startOffset = startOffset;
+            this.duration = duration;
+        }
+
+        /**
+         * 组件启动完成的时间相对整体开始启动的偏移
+         *
+         * @return 偏移，单位毫秒
+         */
+        private long finishOffset() {
+            return startOffset + duration;
+        }
+    }
+}
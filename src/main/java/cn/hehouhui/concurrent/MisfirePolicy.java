@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+/**
+ * 错过执行策略，调度系统从{@link SchedulerJournal}恢复任务时，如果任务在停机期间错过了计划执行时间，按照该策略处理；
+ * <p>
+ * 注意：不论使用哪种策略，停机前已经堆积但还未执行的调度都会被恢复
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public enum MisfirePolicy {
+
+    /**
+     * 忽略错过的执行，从当前时间开始重新计算下次执行时间
+     */
+    SKIP,
+
+    /**
+     * 恢复后立即执行一次，错过多次也只执行一次
+     */
+    FIRE_ONCE,
+
+    /**
+     * 恢复后立即补齐所有错过的执行，最多补齐{@link SchedulerJournal#MAX_CATCH_UP}次；任务合并调度时等同于{@link #FIRE_ONCE}
+     */
+    FIRE_ALL
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 限流器，实现类只需要实现{@link #reserve(int, long)}和{@link #retryAfter(int)}两个非阻塞方法，阻塞获取、异步获取都基于这两个方法实现；
+ * <p>
+ * 异步获取在等待期间不占用线程，等待到期后在公共线程池中完成返回的结果
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public interface RateLimiter {
+
+    /**
+     * 尝试预定指定数量的许可，该方法不会阻塞
+     *
+     * @param permits
+     *            许可数量，必须大于0
+     * @param maxWait
+     *            最多可以接受的等待时长，单位纳秒
+     *
+     * @return 预定成功时返回调用方还需要等待的时长（单位纳秒，0表示可以立即执行），预定失败时返回-1；预定成功即使调用方不等待，许可也已经被消耗
+     */
+    long reserve(int permits, long maxWait);
+
+    /**
+     * 预定失败后建议的重试等待时长，该方法不会阻塞，也不会消耗许可
+     *
+     * @param permits
+     *            许可数量
+     *
+     * @return 建议等待时长，单位纳秒
+     */
+    long retryAfter(int permits);
+
+    /**
+     * 尝试获取1个许可，不等待
+     *
+     * @return true表示获取成功
+     */
+    default boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 尝试获取指定数量的许可，不等待
+     *
+     * @param permits
+     *            许可数量
+     *
+     * @return true表示获取成功
+     */
+    default boolean tryAcquire(int permits) {
+        return reserve(permits, 0) >= 0;
+    }
+
+    /**
+     * 尝试获取指定数量的许可，最多等待指定时长
+     *
+     * @param permits
+     *            许可数量
+     * @param timeout
+     *            最大等待时长
+     * @param unit
+     *            时间单位
+     *
+     * @return true表示获取成功
+     *
+     * @throws InterruptedException
+     *             等待期间被中断
+     */
+    default boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        // 注意，这里即使溢出，截止时间与当前时间的差值依然是正确的
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            long remaining = Math.max(deadline - System.nanoTime(), 0);
+            long wait = reserve(permits, remaining);
+            if (wait >= 0) {
+                sleep(wait);
+                return true;
+            }
+
+            long retryAfter = retryAfter(permits);
+            if (remaining == 0 || retryAfter > remaining) {
+                return false;
+            }
+            sleep(Math.max(retryAfter, 1));
+        }
+    }
+
+    /**
+     * 获取1个许可，没有许可时阻塞等待
+     *
+     * @throws InterruptedException
+     *             等待期间被中断
+     */
+    default void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /**
+     * 获取指定数量的许可，没有许可时阻塞等待
+     *
+     * @param permits
+     *            许可数量
+     *
+     * @throws InterruptedException
+     *             等待期间被中断
+     */
+    default void acquire(int permits) throws InterruptedException {
+        tryAcquire(permits, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 异步获取指定数量的许可，该方法不会阻塞，等待期间不占用线程
+     *
+     * @param permits
+     *            许可数量
+     *
+     * @return 获取到许可后完成的结果
+     */
+    default CompletableFuture<Void> acquireAsync(int permits) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        acquireAsync(this, permits, future);
+        return future;
+    }
+
+    /**
+     * 异步获取许可
+     *
+     * @param limiter
+     *            限流器
+     * @param permits
+     *            许可数量
+     * @param future
+     *            获取到许可后完成的结果
+     */
+    private static void acquireAsync(RateLimiter limiter, int permits, CompletableFuture<Void> future) {
+        if (future.isDone()) {
+            return;
+        }
+
+        try {
+            long wait = limiter.reserve(permits, Long.MAX_VALUE);
+            if (wait == 0) {
+                future.complete(null);
+            } else if (wait > 0) {
+                CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> future.complete(null));
+            } else {
+                CompletableFuture.delayedExecutor(Math.max(limiter.retryAfter(permits), 1), TimeUnit.NANOSECONDS)
+                    .execute(() -> acquireAsync(limiter, permits, future));
+            }
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * 睡眠指定时长，不受虚假唤醒影响
+     *
+     * @param nanos
+     *            睡眠时长，单位纳秒
+     *
+     * @throws InterruptedException
+     *             睡眠期间被中断
+     */
+    private static void sleep(long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
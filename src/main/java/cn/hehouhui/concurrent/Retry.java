@@ -14,17 +14,29 @@ package cn.hehouhui.concurrent;
 
 import cn.hehouhui.constant.ExceptionProviderConst;
 import cn.hehouhui.util.Assert;
+import lombok.CustomLog;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * 重试工具
+ * <p>
+ * 同步重试方法在调用线程中连续重试，适合失败概率低、重试代价小的场景；下游不稳定时建议使用异步重试方法
+ * {@link #runAsync(Supplier, RetryPolicy)}，重试间隔按照{@link RetryPolicy}指数退避并随机抖动，等待期间不占用任何线程（使用
+ * {@link CompletableFuture#delayedExecutor(long, TimeUnit)}共享的定时器）
  *
  * @author HEHH
  * @date 2024/12/02
  */
+@CustomLog
 public class Retry {
 
     /**
@@ -114,7 +126,7 @@ public class Retry {
                 }
             } catch (Throwable e) {
                 // 记录异常信息
-                System.err.println("Exception occurred: " + e.getMessage());
+                LOGGER.warn("第 [{}] 次执行失败：[{}]", i, e.getMessage());
                 // 保存异常，以便后续处理
                 throwable = e;
             }
@@ -137,4 +149,129 @@ public class Retry {
         }
     }
 
+    /**
+     * 在指定线程池中异步执行指定函数，失败时按照重试策略重试，该方法不会阻塞
+     *
+     * @param supplier
+     *            指定函数
+     * @param policy
+     *            重试策略
+     * @param executor
+     *            执行函数的线程池
+     * @param <T>
+     *            结果类型
+     *
+     * @return 执行结果，重试超限、遇到不需要重试的异常时以最后一次的异常完成，超过总截止时长时以
+     *         {@link java.util.concurrent.TimeoutException}完成
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, RetryPolicy policy, Executor executor) {
+        Assert.argNotNull(supplier, "supplier");
+        Assert.argNotNull(executor, "executor");
+        return runAsync(() -> CompletableFuture.supplyAsync(supplier, executor), policy);
+    }
+
+    /**
+     * 执行指定的异步函数，失败时按照重试策略重试，该方法不会阻塞；重试等待到期后在公共线程池中调用函数，所以函数本身不应该阻塞，只负责发起异步调用
+     *
+     * @param action
+     *            异步函数，每次调用发起一次新的尝试
+     * @param policy
+     *            重试策略
+     * @param <T>
+     *            结果类型
+     *
+     * @return 执行结果，重试超限、遇到不需要重试的异常时以最后一次的异常完成，超过总截止时长时以
+     *         {@link java.util.concurrent.TimeoutException}完成；取消该结果会终止后续的重试
+     */
+    public static <T> CompletableFuture<T> runAsync(Supplier<? extends CompletionStage<T>> action,
+        RetryPolicy policy) {
+        Assert.argNotNull(action, "action");
+        Assert.argNotNull(policy, "policy");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadlineTime = 0;
+        if (policy.getDeadline() > 0) {
+            deadlineTime = System.nanoTime() + policy.getDeadline();
+            result.orTimeout(policy.getDeadline(), TimeUnit.NANOSECONDS);
+        }
+        attempt(action, policy, result, 1, deadlineTime);
+        return result;
+    }
+
+    /**
+     * 发起一次尝试，失败时通过共享定时器延迟发起下一次尝试
+     *
+     * @param action
+     *            异步函数
+     * @param policy
+     *            重试策略
+     * @param result
+     *            最终结果
+     * @param attempt
+     *            当前是第几次尝试，从1开始
+     * @param deadlineTime
+     *            截止时间，{@link System#nanoTime()}时钟，0表示不限制
+     * @param <T>
+     *            结果类型
+     */
+    private static <T> void attempt(Supplier<? extends CompletionStage<T>> action, RetryPolicy policy,
+        CompletableFuture<T> result, int attempt, long deadlineTime) {
+        // 结果已经完成（超时或者被调用方取消），不再尝试
+        if (result.isDone()) {
+            return;
+        }
+
+        CompletionStage<T> stage;
+        try {
+            stage = Objects.requireNonNull(action.get(), "异步函数返回的结果不能为空");
+        } catch (Throwable e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+
+        stage.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = unwrap(error);
+            if (attempt >= policy.getMaxAttempts() || !policy.shouldRetry(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long delay = policy.delay(attempt);
+            if (deadlineTime != 0 && deadlineTime - System.nanoTime() <= delay) {
+                // 等待结束时已经超过截止时间，没必要再等待
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("第 [{}] 次执行失败：[{}]，[{}] 毫秒后重试", attempt, cause.getMessage(),
+                    TimeUnit.NANOSECONDS.toMillis(delay));
+            }
+
+            // 共享定时器到期后在公共线程池中发起下一次尝试，等待期间不占用线程
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS)
+                .execute(() -> attempt(action, policy, result, attempt + 1, deadlineTime));
+        });
+    }
+
+    /**
+     * 解除CompletableFuture对异常的包装
+     *
+     * @param throwable
+     *            异常
+     *
+     * @return 原始异常
+     */
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+            && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
 }
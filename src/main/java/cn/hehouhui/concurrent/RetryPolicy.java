@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 重试策略，配合{@link Retry#runAsync(java.util.function.Supplier, RetryPolicy)}使用，描述最大尝试次数、指数退避、随机抖动、总截止时间以及哪些异常需要重试；
+ * <p>
+ * 第n次重试前的等待时间为：min(初始等待时间 * 倍数^(n-1), 最大等待时间) * (1 - 抖动比例 * 随机数)，随机抖动用于打散大量调用方同时重试的时间点，避免重试风暴；
+ * <p>
+ * 异常判断规则：先匹配{@link #abortOn(Class[])}，匹配上的不重试；然后匹配{@link #retryOn(Class[])}，未设置时所有异常都匹配；最后还需要满足{@link #retryIf(Predicate)}；
+ * <p>
+ * 注意：策略对象在配置完成后是只读的，可以在多个调用间共享，但是不要在使用过程中修改
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class RetryPolicy {
+
+    /**
+     * 最大尝试次数，包含第一次执行
+     */
+    private final int maxAttempts;
+
+    /**
+     * 第一次重试前的等待时间，单位纳秒
+     */
+    private long initialDelay;
+
+    /**
+     * 单次重试前的最大等待时间，单位纳秒
+     */
+    private long maxDelay;
+
+    /**
+     * 每次重试等待时间的增长倍数
+     */
+    private double multiplier;
+
+    /**
+     * 随机抖动比例，取值[0, 1]，0表示不抖动
+     */
+    private double jitter;
+
+    /**
+     * 从第一次执行开始计算的总截止时长，单位纳秒，小于等于0表示不限制
+     */
+    private long deadline;
+
+    /**
+     * 需要重试的异常类型，为空表示所有异常都重试
+     */
+    private final List<Class<? extends Throwable>> retryOn;
+
+    /**
+     * 不需要重试的异常类型，优先级高于{@link #retryOn}
+     */
+    private final List<Class<? extends Throwable>> abortOn;
+
+    /**
+     * 自定义异常判断，返回true表示需要重试
+     */
+    private Predicate<Throwable> retryIf;
+
+    /**
+     * 构造器，默认第一次重试前等待100毫秒，之后每次翻倍，最多等待10秒，抖动比例0.5，不限制总时长，所有异常都重试
+     *
+     * @param maxAttempts
+     *            最大尝试次数，包含第一次执行，必须大于0
+     */
+    public RetryPolicy(final int maxAttempts) {
+        Assert.assertTrue(maxAttempts > 0, "最大尝试次数必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = TimeUnit.MILLISECONDS.toNanos(100);
+        this.maxDelay = TimeUnit.SECONDS.toNanos(10);
+        this.multiplier = 2;
+        this.jitter = 0.5;
+        this.deadline = 0;
+        this.retryOn = new ArrayList<>();
+        this.abortOn = new ArrayList<>();
+        this.retryIf = t -> true;
+    }
+
+    /**
+     * 设置指数退避
+     *
+     * @param initialDelay
+     *            第一次重试前的等待时间
+     * @param maxDelay
+     *            单次重试前的最大等待时间
+     * @param unit
+     *            时间单位
+     *
+     * @return 当前策略
+     */
+    public RetryPolicy backoff(long initialDelay, long maxDelay, TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(initialDelay >= 0 && maxDelay >= initialDelay, "重试等待时间必须大于等于0并且最大等待时间不能小于初始等待时间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.initialDelay = unit.toNanos(initialDelay);
+        this.maxDelay = unit.toNanos(maxDelay);
+        return this;
+    }
+
+    /**
+     * 设置每次重试等待时间的增长倍数
+     *
+     * @param multiplier
+     *            增长倍数，必须大于等于1，1表示固定间隔
+     *
+     * @return 当前策略
+     */
+    public RetryPolicy multiplier(double multiplier) {
+        Assert.assertTrue(multiplier >= 1, "重试等待时间增长倍数必须大于等于1", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * 设置随机抖动比例
+     *
+     * @param jitter
+     *            抖动比例，取值[0, 1]，0表示不抖动
+     *
+     * @return 当前策略
+     */
+    public RetryPolicy jitter(double jitter) {
+        Assert.assertTrue(jitter >= 0 && jitter <= 1, "重试抖动比例必须在0到1之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * 设置总截止时长，从第一次执行开始计算，超过后不再重试，正在进行的尝试也不再等待
+     *
+     * @param deadline
+     *            总截止时长，小于等于0表示不限制
+     * @param unit
+     *            时间单位
+     *
+     * @return 当前策略
+     */
+    public RetryPolicy deadline(long deadline, TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.deadline = deadline <= 0 ? 0 : unit.toNanos(deadline);
+        return this;
+    }
+
+    /**
+     * 只重试指定类型（包含子类）的异常
+     *
+     * @param types
+     *            需要重试的异常类型
+     *
+     * @return 当前策略
+     */
+    @SafeVarargs
+    public final RetryPolicy retryOn(Class<? extends Throwable>... types) {
+        // 可变参数数组不能再传给其他方法，否则即使有@SafeVarargs也会有堆污染警告
+        Assert.assertFalse(types == null, "异常类型不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        for (final Class<? extends Throwable> type : types) {
+            Assert.notNull(type, "异常类型不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+            retryOn.add(type);
+        }
+        return this;
+    }
+
+    /**
+     * 遇到指定类型（包含子类）的异常时直接失败，不再重试
+     *
+     * @param types
+     *            不需要重试的异常类型
+     *
+     * @return 当前策略
+     */
+    @SafeVarargs
+    public final RetryPolicy abortOn(Class<? extends Throwable>... types) {
+        Assert.assertFalse(types == null, "异常类型不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        for (final Class<? extends Throwable> type : types) {
+            Assert.notNull(type, "异常类型不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+            abortOn.add(type);
+        }
+        return this;
+    }
+
+    /**
+     * 设置自定义异常判断
+     *
+     * @param retryIf
+     *            自定义异常判断，返回true表示需要重试
+     *
+     * @return 当前策略
+     */
+    public RetryPolicy retryIf(Predicate<Throwable> retryIf) {
+        Assert.notNull(retryIf, "异常判断不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.retryIf = retryIf;
+        return this;
+    }
+
+    /**
+     * 获取最大尝试次数
+     *
+     * @return 最大尝试次数，包含第一次执行
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 获取总截止时长
+     *
+     * @return 总截止时长，单位纳秒，0表示不限制
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * 判断指定异常是否需要重试
+     *
+     * @param throwable
+     *            异常
+     *
+     * @return true表示需要重试
+     */
+    public boolean shouldRetry(Throwable throwable) {
+        for (final Class<? extends Throwable> type : abortOn) {
+            if (type.isInstance(throwable)) {
+                return false;
+            }
+        }
+
+        boolean matched = retryOn.isEmpty();
+        for (int i = 0; !matched && i < retryOn.size(); i++) {
+            matched = retryOn.get(i).isInstance(throwable);
+        }
+        return matched && retryIf.test(throwable);
+    }
+
+    /**
+     * 计算第n次重试前的等待时间
+     *
+     * @param retry
+     *            第几次重试，从1开始
+     *
+     * @return 等待时间，单位纳秒
+     */
+    public long delay(int retry) {
+        double delay = Math.min(initialDelay * Math.pow(multiplier, retry - 1), maxDelay);
+        if (jitter > 0) {
+            delay *= 1 - jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long)delay;
+    }
+}
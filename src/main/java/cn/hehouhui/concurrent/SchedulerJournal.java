@@ -0,0 +1,564 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+import lombok.CustomLog;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度系统状态日志，将任务注册、移除以及最近一次执行状态写入内存映射的本地文件，调度系统启动时回放日志恢复任务的执行进度；
+ * <p>
+ * 每个任务第一次记录状态时在文件末尾追加一条记录，这条记录就是该任务的固定槽位，之后每次执行完毕都通过{@link VarHandle}无锁地原地覆盖槽位中的
+ * 基准时间和堆积数量，任务执行路径上没有任何锁；只有追加记录（注册新任务、移除任务）和压缩需要加锁；
+ * <p>
+ * 移除任务会留下无效记录，后台线程定时压缩：只将每个任务的最新状态写入新文件，然后原子替换旧文件；日志写满时也会立即压缩；
+ * <p>
+ * 记录格式（每条记录按8字节对齐）：[int 记录长度][byte 记录类型][byte 保留][short ID长度][long 基准时间][long 堆积数量][ID]，
+ * 记录长度最后写入，所以进程异常退出时写了一半的记录会在回放时被忽略；
+ * <p>
+ * 注意：写入只保证进程崩溃时不丢失（依赖操作系统页缓存），只有在压缩和{@link #flush()}时才会强制刷盘
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@CustomLog
+public class SchedulerJournal implements Closeable {
+
+    /**
+     * 恢复任务时最多补齐的错过执行次数
+     */
+    public static final int MAX_CATCH_UP = 1024;
+
+    /**
+     * 默认日志文件容量，单位字节
+     */
+    private static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    /**
+     * 默认压缩间隔，单位毫秒
+     */
+    private static final long DEFAULT_COMPACT_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 文件头魔数
+     */
+    private static final int MAGIC = 0x534A3032;
+
+    /**
+     * 文件头长度，第一条记录从这里开始，保证8字节对齐
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * 记录类型：任务状态
+     */
+    private static final byte TYPE_STATE = 1;
+
+    /**
+     * 记录类型：任务移除
+     */
+    private static final byte TYPE_REMOVE = 2;
+
+    /**
+     * 记录中除ID外的固定长度：类型 + 保留 + ID长度 + 基准时间 + 堆积数量，不包含记录长度
+     */
+    private static final int FIXED_RECORD_SIZE = 1 + 1 + 2 + 8 + 8;
+
+    /**
+     * 基准时间在记录中的偏移
+     */
+    private static final int BASE_TIME_OFFSET = 8;
+
+    /**
+     * 堆积数量在记录中的偏移
+     */
+    private static final int PENDING_OFFSET = 16;
+
+    /**
+     * ID在记录中的偏移
+     */
+    private static final int ID_OFFSET = 24;
+
+    /**
+     * 按照long访问内存映射文件的VarHandle，槽位中的long都是8字节对齐的，可以原子读写
+     */
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * 日志文件
+     */
+    private final Path file;
+
+    /**
+     * 定时压缩线程，压缩间隔小于等于0时为空
+     */
+    private final ScheduledExecutorService compactExecutor;
+
+    /**
+     * 当前日志文件，压缩时整体替换
+     */
+    private volatile Segment segment;
+
+    /**
+     * 下一条记录的写入位置，只在持有锁时访问
+     */
+    private int position;
+
+    /**
+     * 无效记录（被移除的任务以及移除记录本身）占用的字节数，只在持有锁时访问，大于0时定时压缩才会真正执行
+     */
+    private int garbage;
+
+    /**
+     * 是否已经关闭
+     */
+    private volatile boolean closed;
+
+    public SchedulerJournal(final Path file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    public SchedulerJournal(final Path file, final int capacity) {
+        this(file, capacity, DEFAULT_COMPACT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 构造器，打开日志文件并回放已有记录
+     *
+     * @param file
+     *            日志文件，不存在时自动创建
+     * @param capacity
+     *            日志文件初始容量，单位字节，写满后会先压缩，压缩后仍然放不下时自动扩容
+     * @param compactInterval
+     *            定时压缩间隔，小于等于0表示不定时压缩，只在写满时压缩
+     * @param unit
+     *            压缩间隔单位
+     */
+    // 压缩任务在构造器最后才提交，提交前所有字段都已经初始化完成
+    @SuppressWarnings("this-escape")
+    public SchedulerJournal(final Path file, final int capacity, final long compactInterval, final TimeUnit unit) {
+        Assert.notNull(file, "调度日志文件不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(unit, "调度日志压缩间隔单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(capacity >= HEADER_SIZE + align(4 + FIXED_RECORD_SIZE) + 4, "调度日志文件容量过小",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        this.file = file;
+        this.closed = false;
+
+        try {
+            long size = Files.exists(file) ? Files.size(file) : 0;
+            int actual = (int)Math.max(capacity, Math.min(size, Integer.MAX_VALUE & ~7));
+            this.segment = new Segment(map(file, actual), actual);
+        } catch (IOException e) {
+            throw new RuntimeException(StrUtil.format("打开调度日志文件 [{}] 失败", file), e);
+        }
+
+        replay();
+
+        if (compactInterval > 0) {
+            this.compactExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "scheduler-journal-compact");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactExecutor.scheduleWithFixedDelay(this::compactIfNeeded, compactInterval, compactInterval, unit);
+        } else {
+            this.compactExecutor = null;
+        }
+    }
+
+    /**
+     * 获取日志中所有任务的最新状态
+     *
+     * @return 任务ID到任务状态的映射，返回的是副本
+     */
+    public Map<String, TaskState> states() {
+        Segment current = segment;
+        Map<String, TaskState> result = new HashMap<>();
+        current.slots.forEach((id, slot) -> result.put(id, current.read(slot)));
+        return result;
+    }
+
+    /**
+     * 获取日志中指定任务的最新状态
+     *
+     * @param id
+     *            任务ID
+     *
+     * @return 任务状态，日志中不存在该任务时返回null
+     */
+    public TaskState state(String id) {
+        Segment current = segment;
+        Integer slot = current.slots.get(id);
+        return slot == null ? null : current.read(slot);
+    }
+
+    /**
+     * 记录任务状态，任务已经有槽位时无锁原地覆盖；注意，同一个任务的状态不能并发写入（调度系统保证同一个任务同一时间只会在一个线程中执行）
+     *
+     * @param id
+     *            任务ID
+     * @param baseTime
+     *            计算下次执行时间的基准时间戳，即任务最近一次执行完成的时间，从未执行过时是注册时间，单位毫秒
+     * @param pending
+     *            任务当前堆积的调度数量
+     */
+    public void recordState(String id, long baseTime, long pending) {
+        while (true) {
+            checkOpen();
+            Segment current = segment;
+            Integer slot = current.slots.get(id);
+            if (slot == null) {
+                appendState(id, baseTime, pending);
+                return;
+            }
+
+            current.write(slot, baseTime, pending);
+            // 注意，这里的写入与压缩线程的读取都是volatile访问，如果这里没有看到封存标记，那么压缩线程一定能读到本次写入
+            if (!current.sealed) {
+                return;
+            }
+            // 正在压缩，本次写入可能没有被复制到新文件，等待压缩结束（压缩期间一直持有锁）后重新写入
+            synchronized (this) {
+                if (segment == current) {
+                    // 压缩失败，旧文件继续使用，本次写入已经生效
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录任务移除
+     *
+     * @param id
+     *            任务ID
+     */
+    public synchronized void recordRemove(String id) {
+        checkOpen();
+        Integer slot = segment.slots.get(id);
+        if (slot == null) {
+            return;
+        }
+
+        int size = recordSize(id);
+        ensureCapacity(size);
+        // 压缩后槽位会变化，重新获取
+        Segment current = segment;
+        write(current, position, TYPE_REMOVE, id, 0, 0);
+        current.slots.remove(id);
+        position += size;
+        garbage += size * 2;
+    }
+
+    /**
+     * 压缩日志，只保留每个任务的最新状态
+     */
+    public synchronized void compact() {
+        checkOpen();
+
+        Segment old = segment;
+        int required = HEADER_SIZE + 4;
+        for (final String id : old.slots.keySet()) {
+            required += recordSize(id);
+        }
+        // 压缩后至少保留一半的空闲空间，避免频繁压缩
+        int newCapacity = old.capacity;
+        while (newCapacity < required * 2L && newCapacity < Integer.MAX_VALUE / 2) {
+            newCapacity *= 2;
+        }
+
+        // 先封存旧文件，之后的无锁写入会在压缩完成后重新写入新文件
+        old.sealed = true;
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            Files.deleteIfExists(tmp);
+            Segment compacted = new Segment(map(tmp, newCapacity), newCapacity);
+            compacted.buffer.putInt(0, MAGIC);
+            int newPosition = HEADER_SIZE;
+            for (final Map.Entry<String, Integer> entry : old.slots.entrySet()) {
+                TaskState state = old.read(entry.getValue());
+                write(compacted, newPosition, TYPE_STATE, entry.getKey(), state.getBaseTime(), state.getPending());
+                compacted.slots.put(entry.getKey(), newPosition);
+                newPosition += recordSize(entry.getKey());
+            }
+            compacted.buffer.force();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.segment = compacted;
+            this.position = newPosition;
+            this.garbage = 0;
+        } catch (IOException e) {
+            old.sealed = false;
+            throw new RuntimeException(StrUtil.format("压缩调度日志文件 [{}] 失败", file), e);
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("调度日志 [{}] 压缩完成，当前任务数 [{}]，文件容量 [{}]", file, segment.slots.size(), newCapacity);
+        }
+    }
+
+    /**
+     * 将日志强制刷盘
+     */
+    public synchronized void flush() {
+        if (!closed) {
+            segment.buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            if (compactExecutor != null) {
+                compactExecutor.shutdown();
+            }
+            segment.buffer.force();
+            closed = true;
+        }
+    }
+
+    /**
+     * 存在无效记录时压缩，定时压缩线程调用
+     */
+    private synchronized void compactIfNeeded() {
+        if (closed || garbage == 0) {
+            return;
+        }
+        try {
+            compact();
+        } catch (Throwable throwable) {
+            LOGGER.warn(throwable, "调度日志 [{}] 定时压缩失败，稍后重试", file);
+        }
+    }
+
+    /**
+     * 回放日志文件中的所有记录
+     */
+    private void replay() {
+        Segment current = segment;
+        MappedByteBuffer buffer = current.buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            // 新文件或者不是当前版本的调度日志文件，直接重新初始化
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(HEADER_SIZE, 0);
+            position = HEADER_SIZE;
+            return;
+        }
+
+        int offset = HEADER_SIZE;
+        while (offset + 4 <= current.capacity) {
+            int length = buffer.getInt(offset);
+            if (length < FIXED_RECORD_SIZE || offset + align(4 + length) > current.capacity) {
+                break;
+            }
+
+            byte type = buffer.get(offset + 4);
+            int idLength = buffer.getShort(offset + 6) & 0xFFFF;
+            if (FIXED_RECORD_SIZE + idLength != length) {
+                LOGGER.warn("调度日志 [{}] 在位置 [{}] 的记录已损坏，忽略之后的所有记录", file, offset);
+                break;
+            }
+
+            byte[] idBytes = new byte[idLength];
+            buffer.get(offset + ID_OFFSET, idBytes);
+            String id = new String(idBytes, StandardCharsets.UTF_8);
+            int size = align(4 + length);
+            Integer previous;
+            if (type == TYPE_STATE) {
+                previous = current.slots.put(id, offset);
+            } else {
+                previous = current.slots.remove(id);
+                garbage += size;
+            }
+            if (previous != null) {
+                garbage += size;
+            }
+            offset += size;
+        }
+
+        // 清理掉可能存在的半条记录，后续从这里继续追加
+        if (offset + 4 <= current.capacity) {
+            buffer.putInt(offset, 0);
+        }
+        position = offset;
+    }
+
+    /**
+     * 为新任务追加一条状态记录作为其槽位
+     */
+    private synchronized void appendState(String id, long baseTime, long pending) {
+        checkOpen();
+        Integer slot = segment.slots.get(id);
+        if (slot != null) {
+            // 其他线程已经追加过了，注意这里持有锁，不会与压缩并发
+            segment.write(slot, baseTime, pending);
+            return;
+        }
+
+        int size = recordSize(id);
+        ensureCapacity(size);
+        Segment current = segment;
+        write(current, position, TYPE_STATE, id, baseTime, pending);
+        current.slots.put(id, position);
+        position += size;
+    }
+
+    /**
+     * 保证剩余空间可以写入指定长度的记录，空间不足时先压缩，调用方必须持有锁
+     */
+    private void ensureCapacity(int size) {
+        // 额外保留4字节用于写入结束标记
+        if (position + size + 4 > segment.capacity) {
+            compact();
+        }
+    }
+
+    /**
+     * 在指定位置写入一条记录，记录长度最后写入
+     */
+    private static void write(Segment target, int offset, byte type, String id, long baseTime, long pending) {
+        MappedByteBuffer buffer = target.buffer;
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        // 先写一个结束标记，保证下一条记录的长度位置是0
+        int end = offset + recordSize(idBytes.length);
+        if (end + 4 <= target.capacity) {
+            buffer.putInt(end, 0);
+        }
+
+        buffer.put(offset + 4, type);
+        buffer.put(offset + 5, (byte)0);
+        buffer.putShort(offset + 6, (short)idBytes.length);
+        buffer.put(offset + ID_OFFSET, idBytes);
+        target.write(offset, baseTime, pending);
+        buffer.putInt(offset, FIXED_RECORD_SIZE + idBytes.length);
+    }
+
+    private static int recordSize(String id) {
+        return recordSize(id.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static int recordSize(int idLength) {
+        return align(4 + FIXED_RECORD_SIZE + idLength);
+    }
+
+    /**
+     * 按8字节向上对齐
+     */
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void checkOpen() {
+        Assert.assertFalse(closed, "调度日志已经关闭", ExceptionProviderConst.IllegalStateExceptionProvider);
+    }
+
+    /**
+     * 一个日志文件的映射以及其中每个任务的槽位
+     */
+    private static final class Segment {
+
+        /**
+         * 日志文件映射
+         */
+        private final MappedByteBuffer buffer;
+
+        /**
+         * 日志文件容量
+         */
+        private final int capacity;
+
+        /**
+         * 任务ID到其状态记录位置的映射
+         */
+        private final Map<String, Integer> slots;
+
+        /**
+         * 是否已经封存，压缩开始时封存，封存后的写入需要在压缩完成后重新写入新文件
+         */
+        private volatile boolean sealed;
+
+        private Segment(final MappedByteBuffer buffer, final int capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.slots = new ConcurrentHashMap<>();
+            this.sealed = false;
+        }
+
+        /**
+         * 原子覆盖槽位中的状态
+         */
+        private void write(int slot, long baseTime, long pending) {
+            LONG.setVolatile(buffer, slot + BASE_TIME_OFFSET, baseTime);
+            LONG.setVolatile(buffer, slot + PENDING_OFFSET, pending);
+        }
+
+        /**
+         * 读取槽位中的状态
+         */
+        private TaskState read(int slot) {
+            return new TaskState((long)LONG.getVolatile(buffer, slot + BASE_TIME_OFFSET),
+                (long)LONG.getVolatile(buffer, slot + PENDING_OFFSET));
+        }
+    }
+
+    /**
+     * 日志中记录的任务状态
+     */
+    @Getter
+    public static class TaskState {
+
+        /**
+         * 计算下次执行时间的基准时间戳，单位毫秒
+         */
+        private final long baseTime;
+
+        /**
+         * 任务堆积的调度数量
+         */
+        private final long pending;
+
+        public TaskState(final long baseTime, final long pending) {
+            this.baseTime = baseTime;
+            this.pending = pending;
+        }
+    }
+}
@@ -12,7 +12,12 @@
  */
 package cn.hehouhui.concurrent;
 
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 多任务调度系统
@@ -79,4 +84,28 @@ public interface SchedulerSystem {
      */
     void scheduler(String id, boolean throwIfTaskNotFound);
 
+    /**
+     * 在调度系统的任务执行线程池中执行一次任务图，没有依赖关系的分支并行执行，该方法不会阻塞
+     * <p>
+     * 注意：如果在调度系统的任务中等待任务图执行完成，需要保证任务执行线程池有足够的线程，否则可能死锁
+     *
+     * @param graph
+     *            任务图
+     *
+     * @return {@link CompletableFuture } 整个图的执行结果
+     */
+    default CompletableFuture<Void> runGraph(TaskGraph graph) {
+        Assert.notNull(graph, "要执行的任务图不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return graph.run(TaskGraph.schedulerExecutor(this, graph.getId()));
+    }
+
+    /**
+     * 获取调度系统中所有任务的运行指标快照
+     *
+     * @return {@link List }<{@link TaskMetrics.Snapshot }> 任务指标快照列表，调度系统未开启指标时返回空列表
+     */
+    default List<TaskMetrics.Snapshot> metrics() {
+        return Collections.emptyList();
+    }
+
 }
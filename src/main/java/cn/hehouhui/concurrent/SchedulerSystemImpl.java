@@ -17,15 +17,27 @@ import cn.hehouhui.util.Assert;
 import cn.hehouhui.util.StrUtil;
 import lombok.CustomLog;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +46,13 @@ import java.util.stream.Collectors;
  * <li>任务量可能很大，但是每个任务可能很久才被唤起一次；</li>
  * <li>任务可以被连续唤醒，但是单个任务的唤醒调用并发不高；</li>
  * <li>同一时间不会有太多任务并发执行，或者同一时间有较多任务并发执行，但是对任务的时效性要求不高</li>
+ * <p>
+ * 任务的到期时间由调度线程独占的{@link DueTimeIndex}维护，调度线程每次唤醒只处理已经到期的任务，注册、移除、调度任务的开销与任务总量无关；
+ * <p>
+ * 调度系统内部使用单调时钟（{@link System#nanoTime()}）计时，等待精度为纳秒级，不受NTP等系统时间调整的影响，支持亚毫秒级的执行间隔；
+ * <p>
+ * 可以通过{@link #setJournal(SchedulerJournal, MisfirePolicy)}开启状态日志，任务每次执行完毕后都会记录执行进度，进程重启后重新注册同ID的任务时，
+ * 会根据日志恢复任务的下次执行时间以及堆积的调度，停机期间错过的执行按照{@link MisfirePolicy}处理
  *
  * @author HEHH
  * @date 2024/12/02
@@ -41,7 +60,20 @@ import java.util.stream.Collectors;
 @CustomLog
 public class SchedulerSystemImpl implements SchedulerSystem {
 
-    private final ReadWriteLock statusLock = new ReentrantReadWriteLock();
+    /**
+     * 任务分发被拒绝并重新调度时，距离下次尝试分发的最大等待时间，单位毫秒
+     */
+    private static final long REJECTED_RETRY_DELAY = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 单调时钟起点，调度系统内部所有时间都是相对该起点的纳秒数，不受系统时间调整影响，同时保证数值从0开始递增不会溢出
+     */
+    private static final long NANO_ORIGIN = System.nanoTime();
+
+    /**
+     * 启动、关闭与日常操作之间的互斥
+     */
+    private final LifecycleGate statusGate = new LifecycleGate();
 
     /**
      * 用于实际执行任务的线程池
@@ -53,6 +85,31 @@ public class SchedulerSystemImpl implements SchedulerSystem {
      */
     private final boolean mergeScheduler;
 
+    /**
+     * 是否记录任务运行指标
+     */
+    private final boolean metricsEnabled;
+
+    /**
+     * 任务分发被拒绝时的处理策略
+     */
+    private final DispatchPolicy dispatchPolicy;
+
+    /**
+     * 已经分发到线程池但是还未开始执行的任务数上限，小于等于0表示不限制，超过上限时按照分发被拒绝处理
+     */
+    private final int maxPendingDispatch;
+
+    /**
+     * 已经分发到线程池但是还未开始执行的任务数
+     */
+    private final AtomicInteger pendingDispatch;
+
+    /**
+     * 任务分发被拒绝的总次数
+     */
+    private final LongAdder rejectedCount;
+
     /**
      * 调度线程
      */
@@ -68,16 +125,36 @@ public class SchedulerSystemImpl implements SchedulerSystem {
      */
     private final Map<String, InternalTaskDescriptor> tasks;
 
+    /**
+     * 任务到期时间索引，只允许调度线程操作
+     */
+    private final DueTimeIndex<InternalTaskDescriptor> dueTimeIndex;
+
+    /**
+     * 到期时间需要重新同步到索引的任务，由其他线程提交，调度线程消费
+     */
+    private final Queue<InternalTaskDescriptor> indexQueue;
+
     /**
      * 调度线程使用信号量
      */
     private Semaphore semaphore;
 
     /**
-     * 调度线程下次唤醒时间
+     * 调度线程下次唤醒时间，单调时钟纳秒
      */
     private final AtomicLong nextSchedulerTime;
 
+    /**
+     * 状态日志，为空表示不记录任务执行进度
+     */
+    private volatile SchedulerJournal journal;
+
+    /**
+     * 从状态日志恢复任务时的错过执行策略
+     */
+    private volatile MisfirePolicy misfirePolicy;
+
     /**
      * 默认构造器
      *
@@ -89,47 +166,109 @@ public class SchedulerSystemImpl implements SchedulerSystem {
      *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
      */
     public SchedulerSystemImpl(final String name, final ExecutorService executorService, final boolean mergeScheduler) {
+        this(name, executorService, mergeScheduler, false);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param name
+     *            调度系统名称
+     * @param executorService
+     *            任务执行线程池
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     * @param metricsEnabled
+     *            是否记录任务运行指标，开启后可以通过{@link #metrics()}获取指标快照，关闭时没有任何记录开销
+     */
+    public SchedulerSystemImpl(final String name, final ExecutorService executorService, final boolean mergeScheduler,
+        final boolean metricsEnabled) {
+        this(name, executorService, mergeScheduler, metricsEnabled, DispatchPolicy.RESCHEDULE, 0);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param name
+     *            调度系统名称
+     * @param executorService
+     *            任务执行线程池
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     * @param metricsEnabled
+     *            是否记录任务运行指标，开启后可以通过{@link #metrics()}获取指标快照，关闭时没有任何记录开销
+     * @param dispatchPolicy
+     *            任务分发被拒绝时的处理策略
+     * @param maxPendingDispatch
+     *            已经分发到线程池但是还未开始执行的任务数上限，小于等于0表示不限制，超过上限时按照分发被拒绝处理
+     */
+    public SchedulerSystemImpl(final String name, final ExecutorService executorService, final boolean mergeScheduler,
+        final boolean metricsEnabled, final DispatchPolicy dispatchPolicy, final int maxPendingDispatch) {
         Assert.notBlank(name, "调度系统名称不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
         Assert.notNull(executorService, "调度系统的任务执行线程池不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(dispatchPolicy, "调度系统的任务分发策略不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
 
         this.executorService = executorService;
+        if (executorService instanceof ThreadPoolExecutor) {
+            // 线程池由调用方管理，这里不修改其拒绝策略，只提示调用方显式包装
+            RejectedExecutionHandler handler = ((ThreadPoolExecutor)executorService).getRejectedExecutionHandler();
+            if (handler instanceof ThreadPoolExecutor.DiscardPolicy
+                || handler instanceof ThreadPoolExecutor.DiscardOldestPolicy) {
+                LOGGER.warn("[{}] 任务执行线程池的拒绝策略 [{}] 会静默丢弃任务，被丢弃的调度无法重新调度，请使用SchedulerSystemImpl.discardAware包装该策略",
+                    name, handler.getClass().getName());
+            }
+        }
         this.mergeScheduler = mergeScheduler;
+        this.metricsEnabled = metricsEnabled;
+        this.dispatchPolicy = dispatchPolicy;
+        this.maxPendingDispatch = maxPendingDispatch;
+        this.pendingDispatch = new AtomicInteger(0);
+        this.rejectedCount = new LongAdder();
 
         this.tasks = new ConcurrentHashMap<>();
+        this.dueTimeIndex = new DueTimeIndex<>();
+        this.indexQueue = new ConcurrentLinkedQueue<>();
         this.semaphore = new Semaphore(0);
         this.nextSchedulerTime = new AtomicLong(0);
+        this.misfirePolicy = MisfirePolicy.FIRE_ONCE;
         this.start = false;
 
         // 调度线程，主要就是负责任务到期唤醒
         this.schedulerThread = new Thread(() -> {
             while (start) {
-                long waitTime = nextSchedulerTime.get() - System.currentTimeMillis();
+                long waitTime = nextSchedulerTime.get() - now();
 
                 // 开始等待调度
                 if (waitTime > 0) {
                     tryAcquire(waitTime);
                 }
 
-                LockTask.runWithLock(statusLock.readLock(), () -> {
+                statusGate.runShared(() -> {
                     // 因为上边的tryAcquire执行时间可能很长，所以执行完毕后重新判断一次当前是否还运行
                     if (!start) {
                         return;
                     }
 
+                    // 先将到期时间发生变化的任务同步到索引中
+                    refreshIndex();
+
                     // 当前时间
-                    long now = System.currentTimeMillis();
-                    // 下次调度时间
-                    nextSchedulerTime.set(Long.MAX_VALUE);
+                    long now = now();
 
-                    // 开始唤醒任务，并确定下次调度时间
-                    for (final InternalTaskDescriptor task : tasks.values()) {
+                    // 开始唤醒任务，只处理已经到期的任务
+                    InternalTaskDescriptor task;
+                    while ((task = dueTimeIndex.peek()) != null && task.dueTime() <= now) {
+                        dueTimeIndex.poll();
                         try {
                             check(task, now);
                         } catch (Throwable throwable) {
                             LOGGER.warn(throwable, "[{}] 调度线程调度任务 [{}] 时发生异常，异常将被忽略，同时该任务本次调度也将被忽略", name, task.id);
                         }
-
                     }
+
+                    // 确定下次调度时间
+                    task = dueTimeIndex.peek();
+                    nextSchedulerTime.set(task == null ? Long.MAX_VALUE : task.dueTime());
                 });
             }
         }, name);
@@ -137,9 +276,70 @@ public class SchedulerSystemImpl implements SchedulerSystem {
         schedulerThread.setDaemon(false);
     }
 
+    /**
+     * 创建一个使用虚拟线程执行任务的调度系统，每次任务执行都运行在一个新的虚拟线程上，任务执行中的阻塞只会挂起虚拟线程，不会占用平台线程，
+     * 适合单个JVM中存在大量任务并且任务中存在IO阻塞的场景
+     *
+     * @param name
+     *            调度系统名称，同时作为虚拟线程名前缀
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     *
+     * @return 调度系统
+     */
+    public static SchedulerSystemImpl ofVirtual(final String name, final boolean mergeScheduler) {
+        Assert.notBlank(name, "调度系统名称不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return new SchedulerSystemImpl(name,
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory()), mergeScheduler);
+    }
+
+    /**
+     * 包装线程池的拒绝策略，使{@link ThreadPoolExecutor.DiscardPolicy}、{@link ThreadPoolExecutor.DiscardOldestPolicy}丢弃调度系统分发的任务时
+     * 能够结算被丢弃的任务并重新调度，避免待执行计数泄漏、任务永远停留在RUNNING状态；调度系统不会修改调用方传入的线程池，使用这两种
+     * 拒绝策略的线程池需要调用方显式设置包装后的策略，例如：
+     *
+     * <pre>
+     * executor.setRejectedExecutionHandler(SchedulerSystemImpl.discardAware(new ThreadPoolExecutor.DiscardPolicy()));
+     * </pre>
+     * <p>
+     * 其他拒绝策略原样返回：抛出异常的策略由分发方按照{@link DispatchPolicy}处理，执行任务的策略在执行时结算；自定义的丢弃策略需要对被丢弃的任务
+     * 调用{@link java.util.concurrent.Future#cancel(boolean)}，取消时同样会结算并重新调度
+     *
+     * @param handler
+     *            线程池原有的拒绝策略
+     *
+     * @return 可以识别调度系统任务的拒绝策略
+     */
+    public static RejectedExecutionHandler discardAware(final RejectedExecutionHandler handler) {
+        Assert.notNull(handler, "要包装的拒绝策略不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        if (handler instanceof ThreadPoolExecutor.DiscardPolicy) {
+            return new DiscardAwareHandler(false);
+        } else if (handler instanceof ThreadPoolExecutor.DiscardOldestPolicy) {
+            return new DiscardAwareHandler(true);
+        }
+        return handler;
+    }
+
+    /**
+     * 设置状态日志，只能在调度系统启动前设置；状态日志的生命周期由调用方管理，调度系统关闭时只会将日志刷盘，不会关闭日志
+     *
+     * @param journal
+     *            状态日志，为空表示不记录任务执行进度
+     * @param misfirePolicy
+     *            从状态日志恢复任务时的错过执行策略
+     */
+    public void setJournal(final SchedulerJournal journal, final MisfirePolicy misfirePolicy) {
+        Assert.notNull(misfirePolicy, "错过执行策略不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        statusGate.runExclusive(() -> {
+            Assert.assertFalse(start, "调度系统已经启动，无法设置状态日志", ExceptionProviderConst.IllegalStateExceptionProvider);
+            this.journal = journal;
+            this.misfirePolicy = misfirePolicy;
+        });
+    }
+
     @Override
     public void start() {
-        LockTask.runWithLock(statusLock.writeLock(), () -> {
+        statusGate.runExclusive(() -> {
             if (start) {
                 LOGGER.warn("当前调度系统已经启动，请勿重复启动");
                 return;
@@ -151,7 +351,7 @@ public class SchedulerSystemImpl implements SchedulerSystem {
 
     @Override
     public void stop() {
-        LockTask.runWithLock(statusLock.writeLock(), () -> {
+        statusGate.runExclusive(() -> {
             if (!start) {
                 LOGGER.warn("当前调度系统已经关闭，请勿重复关闭");
             }
@@ -162,49 +362,111 @@ public class SchedulerSystemImpl implements SchedulerSystem {
             semaphore = new Semaphore(0);
             // 重置下次调度时间
             nextSchedulerTime.set(0);
+            // 状态日志刷盘，注意这里不记录任务移除，以便下次启动时恢复
+            if (journal != null) {
+                journal.flush();
+            }
             // 清空任务
             tasks.clear();
+            indexQueue.clear();
+            dueTimeIndex.clear();
         });
     }
 
     @Override
     public TaskDescriptor registerTask(TaskDescriptor taskDescriptor) {
         Assert.notNull(taskDescriptor, "要注册的任务说明不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
-        return LockTask.runWithLock(statusLock.readLock(), () -> {
+        return statusGate.runShared(() -> {
             checkStart();
 
             Boolean mergeScheduler = taskDescriptor.getMergeScheduler();
             mergeScheduler = mergeScheduler == null ? this.mergeScheduler : mergeScheduler;
 
-            InternalTaskDescriptor old =
-                tasks.putIfAbsent(taskDescriptor.getId(), new InternalTaskDescriptor(taskDescriptor.getId(),
-                    taskDescriptor.getExecuteInterval(), taskDescriptor.getTask(), mergeScheduler));
-            semaphore.release();
-            return old == null ? null : new TaskDescriptor(old.id, old.executeInterval, old.task);
+            InternalTaskDescriptor task = new InternalTaskDescriptor(taskDescriptor, mergeScheduler,
+                metricsEnabled ? new TaskMetrics() : null);
+            SchedulerJournal journal = this.journal;
+            SchedulerJournal.TaskState recovered = journal == null ? null : journal.state(task.id);
+            if (recovered != null) {
+                // 任务还未放入任务集合，对其他线程不可见，可以直接修改
+                recover(task, recovered);
+            }
+
+            InternalTaskDescriptor old = tasks.putIfAbsent(taskDescriptor.getId(), task);
+            if (old == null) {
+                if (journal != null && recovered == null) {
+                    journal.recordState(task.id, System.currentTimeMillis(), 0);
+                }
+                markIndexDirty(task);
+                semaphore.release();
+            }
+            return old == null ? null : old.toTaskDescriptor();
         });
     }
 
     @Override
     public TaskDescriptor removeTask(String id) {
         Assert.notBlank(id, "要移除的任务ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
-        return LockTask.runWithLock(statusLock.readLock(), () -> {
+        return statusGate.runShared(() -> {
             checkStart();
 
             InternalTaskDescriptor old = tasks.remove(id);
-            return old == null ? null : new TaskDescriptor(old.id, old.executeInterval, old.task);
+            if (old != null) {
+                // 索引中的节点交由调度线程在下次唤醒时移除
+                old.removed = true;
+                markIndexDirty(old);
+                SchedulerJournal journal = this.journal;
+                if (journal != null) {
+                    journal.recordRemove(id);
+                }
+            }
+            return old == null ? null : old.toTaskDescriptor();
         });
     }
 
     @Override
     public List<TaskDescriptor> getAll() {
-        return tasks.values().stream().map(internalTaskDescriptor -> new TaskDescriptor(internalTaskDescriptor.id,
-            internalTaskDescriptor.executeInterval, internalTaskDescriptor.task)).collect(Collectors.toList());
+        return tasks.values().stream().map(InternalTaskDescriptor::toTaskDescriptor).collect(Collectors.toList());
+    }
+
+    @Override
+    public CompletableFuture<Void> runGraph(final TaskGraph graph) {
+        Assert.notNull(graph, "要执行的任务图不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return statusGate.runShared(() -> {
+            checkStart();
+            return graph.run(executorService);
+        });
+    }
+
+    @Override
+    public List<TaskMetrics.Snapshot> metrics() {
+        if (!metricsEnabled) {
+            return Collections.emptyList();
+        }
+        return tasks.values().stream().map(task -> task.metrics.snapshot(task.id)).collect(Collectors.toList());
+    }
+
+    /**
+     * 当前已经分发到线程池但是还未开始执行的任务数
+     *
+     * @return 待执行任务数
+     */
+    public int pendingDispatchCount() {
+        return pendingDispatch.get();
+    }
+
+    /**
+     * 任务分发被拒绝的总次数
+     *
+     * @return 被拒绝次数
+     */
+    public long rejectedCount() {
+        return rejectedCount.sum();
     }
 
     @Override
     public void scheduler(final String id, final boolean throwIfTaskNotFound) {
         Assert.notBlank(id, "要调度的任务ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
-        LockTask.runWithLock(statusLock.readLock(), () -> {
+        statusGate.runShared(() -> {
             checkStart();
 
             InternalTaskDescriptor internalTaskDescriptor = tasks.get(id);
@@ -228,58 +490,195 @@ public class SchedulerSystemImpl implements SchedulerSystem {
     }
 
     /**
-     * 检查任务在指定时间是否该执行了，如果该执行了就执行
+     * 根据状态日志恢复任务的下次执行时间以及堆积的调度
      *
      * @param task
-     *            要检查的任务
-     * @param now
-     *            指定时间
+     *            新注册的任务，还未对其他线程可见
+     * @param recovered
+     *            状态日志中记录的任务状态
      */
-    private void check(InternalTaskDescriptor task, long now) {
-        Boolean wakeUp = LockTask.runWithLock(task.statusMutex.readLock(), () -> {
-            if (task.status == TaskStatus.IDLE) {
-                // 如果任务当前还未到期并且任务到期时间小于当前最早到期任务的到期时间，那么更新
-                if (task.nextExecuteTime > now) {
-                    while (true) {
-                        long currentNextScheduler = nextSchedulerTime.get();
-                        // 注意，这里因为对任务加了锁，所以任务的状态和下次执行时间是肯定不会变的，所以不需要考虑其他线程修改下次执行时间或者状态导致的程序问题
-                        if (task.nextExecuteTime < currentNextScheduler
-                            && !nextSchedulerTime.compareAndSet(currentNextScheduler, task.nextExecuteTime)) {
-                            // 因为其他线程也可能修改这个值，所以cas可能更新失败，如果更新失败就继续判断
-                            continue;
-                        }
+    private void recover(InternalTaskDescriptor task, SchedulerJournal.TaskState recovered) {
+        long now = now();
+        long currentTimeMillis = System.currentTimeMillis();
+        long baseTime = recovered.getBaseTime();
 
-                        break;
-                    }
+        // 停机前的计划执行时间，日历时间
+        long plannedTime;
+        if (task.cron == null) {
+            plannedTime = saturatedAdd(baseTime, task.executeIntervalUnit.toMillis(task.executeInterval));
+        } else {
+            plannedTime = task.cron.next(baseTime);
+        }
 
-                    return false;
-                } else {
-                    return true;
-                }
+        long owed = 0;
+        if (plannedTime > currentTimeMillis) {
+            // 还未到计划执行时间，按照剩余时长换算为单调时钟
+            task.nextExecuteTime = saturatedAdd(now, TimeUnit.MILLISECONDS.toNanos(plannedTime - currentTimeMillis));
+        } else {
+            switch (misfirePolicy) {
+                case SKIP:
+                    task.nextExecuteTime = task.nextExecuteTime(now);
+                    break;
+                case FIRE_ONCE:
+                    owed = 1;
+                    break;
+                default:
+                    owed = countMissed(task, plannedTime, currentTimeMillis);
+                    break;
+            }
+        }
+
+        long pending = Math.max(recovered.getPending(), 0) + owed;
+        if (pending > 0) {
+            // 立即到期，调度线程唤醒任务时会将计数加1，所以这里预置的计数要少1
+            task.nextExecuteTime = now;
+            task.state = InternalTaskDescriptor.pack(TaskStatus.IDLE, pending - 1);
+        }
+
+        LOGGER.info("任务 [{}] 从状态日志恢复，上次执行时间 [{}]，停机前堆积 [{}] 次，补偿执行 [{}] 次", task.id, baseTime,
+            recovered.getPending(), owed);
+    }
+
+    /**
+     * 计算任务从计划执行时间到当前时间错过的执行次数，最多{@link SchedulerJournal#MAX_CATCH_UP}次
+     *
+     * @param task
+     *            任务
+     * @param plannedTime
+     *            第一次错过的计划执行时间，日历时间
+     * @param currentTimeMillis
+     *            当前日历时间
+     *
+     * @return 错过的执行次数
+     */
+    private static long countMissed(InternalTaskDescriptor task, long plannedTime, long currentTimeMillis) {
+        if (task.cron == null) {
+            long interval = task.executeIntervalUnit.toMillis(task.executeInterval);
+            return interval <= 0 ? SchedulerJournal.MAX_CATCH_UP
+                : Math.min((currentTimeMillis - plannedTime) / interval + 1, SchedulerJournal.MAX_CATCH_UP);
+        }
+
+        long missed = 0;
+        for (long time = plannedTime; time <= currentTimeMillis && missed < SchedulerJournal.MAX_CATCH_UP;
+            time = task.cron.next(time)) {
+            missed++;
+        }
+        return missed;
+    }
+
+    /**
+     * 将任务执行进度写入状态日志，写入失败不影响任务调度
+     *
+     * @param task
+     *            任务
+     * @param pending
+     *            任务当前堆积的调度数量
+     */
+    private void journalRun(InternalTaskDescriptor task, long pending) {
+        SchedulerJournal journal = this.journal;
+        if (journal == null || task.removed) {
+            return;
+        }
+
+        try {
+            journal.recordState(task.id, System.currentTimeMillis(), pending);
+        } catch (Throwable throwable) {
+            LOGGER.warn(throwable, "任务 [{}] 执行进度写入状态日志失败，异常将被忽略", task.id);
+        }
+    }
+
+    /**
+     * 标记任务的到期时间需要重新同步到索引，同一个任务在被调度线程处理前只会入队一次
+     *
+     * @param task
+     *            任务
+     */
+    private void markIndexDirty(InternalTaskDescriptor task) {
+        if (task.indexPending.compareAndSet(false, true)) {
+            indexQueue.offer(task);
+        }
+    }
+
+    /**
+     * 将到期时间发生变化的任务同步到索引中，只允许调度线程调用
+     */
+    private void refreshIndex() {
+        InternalTaskDescriptor task;
+        while ((task = indexQueue.poll()) != null) {
+            // 注意，要先清除标记再读取任务状态，保证清除标记后发生的变更一定会再次入队
+            task.indexPending.set(false);
+            // 只有IDLE状态的任务才需要等待到期，其他状态的任务执行完毕后会重新入队；注意，下次执行时间是在任务切换到IDLE状态前
+            // 写入的，所以读取到IDLE状态后再读取下次执行时间是安全的
+            if (task.removed || task.status() != TaskStatus.IDLE) {
+                dueTimeIndex.remove(task);
             } else {
-                return false;
+                dueTimeIndex.offer(task, task.nextExecuteTime);
             }
-        });
+        }
+    }
 
-        // 调度任务
-        if (wakeUp) {
-            wakeUpTask(task);
+    /**
+     * 检查任务在指定时间是否该执行了，如果该执行了就执行，只允许调度线程调用
+     *
+     * @param task
+     *            要检查的任务，该任务已经从索引中移除
+     * @param now
+     *            指定时间
+     */
+    private void check(InternalTaskDescriptor task, long now) {
+        if (task.removed || task.status() != TaskStatus.IDLE) {
+            return;
+        }
+
+        // 如果任务当前还未到期，那么以新的到期时间重新放入索引
+        long nextExecuteTime = task.nextExecuteTime;
+        if (nextExecuteTime > now) {
+            dueTimeIndex.offer(task, nextExecuteTime);
+            return;
         }
+
+        // 调度任务
+        wakeUpTask(task);
     }
 
     /**
-     * 主调度等待；
+     * 当前单调时钟时间
+     *
+     * @return 相对{@link #NANO_ORIGIN}的纳秒数
+     */
+    private static long now() {
+        return System.nanoTime() - NANO_ORIGIN;
+    }
+
+    /**
+     * 两个非负时间相加，溢出时返回{@link Long#MAX_VALUE}（表示永不到期）
      *
      * @param time
-     *            等待超时时间，单位毫秒
+     *            时间
+     * @param duration
+     *            时长
+     *
+     * @return 相加结果
+     */
+    private static long saturatedAdd(long time, long duration) {
+        long result = time + duration;
+        return result < 0 && time >= 0 && duration >= 0 ? Long.MAX_VALUE : result;
+    }
+
+    /**
+     * 主调度等待；等待基于单调时钟的截止时间，底层通过{@link java.util.concurrent.locks.LockSupport#parkNanos(long)}挂起，不会自旋
+     *
+     * @param time
+     *            等待超时时间，单位纳秒
      */
     private void tryAcquire(long time) {
-        long start = System.currentTimeMillis();
-        while (System.currentTimeMillis() - start <= time) {
+        // 注意，这里即使溢出，截止时间与当前时间的差值依然是正确的
+        long deadline = System.nanoTime() + time;
+        long remaining = time;
+        while (remaining > 0) {
             try {
                 // 注意，tryAcquire不会并发调用，所以这里的两次semaphore.availablePermits()调用不存在并发问题
-                if (semaphore.tryAcquire(time - (System.currentTimeMillis() - start), TimeUnit.MILLISECONDS)
-                    && semaphore.availablePermits() > 0) {
+                if (semaphore.tryAcquire(remaining, TimeUnit.NANOSECONDS) && semaphore.availablePermits() > 0) {
                     // 合并调度，将所有的semaphore消耗完毕
                     semaphore.acquire(semaphore.availablePermits());
                 }
@@ -290,123 +689,371 @@ public class SchedulerSystemImpl implements SchedulerSystem {
                     return;
                 }
             }
+            remaining = deadline - System.nanoTime();
         }
     }
 
     /**
-     * 唤醒指定任务
+     * 唤醒指定任务，任务计数加1的同时完成状态流转，整个过程是一次CAS，不会阻塞调用线程
      *
      * @param taskDescriptor
      *            任务描述
      */
     private void wakeUpTask(InternalTaskDescriptor taskDescriptor) {
-        // 先将任务计数加1
-        taskDescriptor.counter.incrementAndGet();
+        // 任务已经在线程池中排队时，排队的那次执行会覆盖本次触发
+        if (taskDescriptor.skipIfQueued && taskDescriptor.dispatched) {
+            if (taskDescriptor.metrics != null) {
+                taskDescriptor.metrics.recordSkipped();
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("任务 [{}] 当前已经在线程池中排队，跳过本次触发", taskDescriptor.id);
+            }
+            return;
+        }
 
-        // 修改任务状态
-        LockTask.runWithLock(taskDescriptor.statusMutex.writeLock(), () -> {
-            switch (taskDescriptor.status) {
+        long state;
+        TaskStatus status;
+        TaskStatus nextStatus;
+        do {
+            state = taskDescriptor.state;
+            status = InternalTaskDescriptor.statusOf(state);
+            switch (status) {
                 case IDLE:
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("任务 [{}] 当前是idle状态，将其加入线程池", taskDescriptor.id);
-                    }
-
-                    taskDescriptor.status = TaskStatus.RUNNING;
-                    executorService.submit(build(taskDescriptor));
+                    nextStatus = TaskStatus.RUNNING;
                     break;
                 case RUNNING:
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("任务 [{}] 当前是running状态，继续添加一个任务到线程池", taskDescriptor.id);
-                    }
-
-                    taskDescriptor.status = TaskStatus.QUEUE;
-                    break;
                 case QUEUE:
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("任务 [{}] 当前是queue状态，无需重复添加任务，只需要增加计数器即可", taskDescriptor.id);
-                    }
-
+                    nextStatus = TaskStatus.QUEUE;
                     break;
                 default:
-                    throw new IllegalStateException(StrUtil.format("不支持的任务描述状态： [{}]", taskDescriptor.status));
+                    throw new IllegalStateException(StrUtil.format("不支持的任务描述状态： [{}]", status));
             }
-        });
+        } while (!taskDescriptor.casState(state,
+            InternalTaskDescriptor.pack(nextStatus, InternalTaskDescriptor.counterOf(state) + 1)));
+
+        if (taskDescriptor.metrics != null) {
+            taskDescriptor.metrics.recordTrigger();
+        }
+
+        switch (status) {
+            case IDLE:
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("任务 [{}] 当前是idle状态，将其加入线程池", taskDescriptor.id);
+                }
+
+                dispatch(taskDescriptor);
+                break;
+            case RUNNING:
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("任务 [{}] 当前是running状态，继续添加一个任务到线程池", taskDescriptor.id);
+                }
+                break;
+            default:
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("任务 [{}] 当前是queue状态，无需重复添加任务，只需要增加计数器即可", taskDescriptor.id);
+                }
+                break;
+        }
+    }
+
+    /**
+     * 将处于RUNNING状态的任务分发到线程池，分发被拒绝时按照分发策略处理
+     *
+     * @param taskDescriptor
+     *            任务描述
+     */
+    private void dispatch(InternalTaskDescriptor taskDescriptor) {
+        taskDescriptor.dispatched = true;
+        DispatchTask dispatchTask = new DispatchTask(taskDescriptor);
+        boolean rejected = pendingDispatch.incrementAndGet() > maxPendingDispatch && maxPendingDispatch > 0;
+        if (!rejected) {
+            try {
+                // 注意，这里不能使用submit，submit会再包装一层，线程池的拒绝策略就无法识别出被丢弃的是调度系统分发的任务
+                executorService.execute(dispatchTask);
+                return;
+            } catch (RejectedExecutionException e) {
+                rejected = true;
+            }
+        }
+
+        dispatchTask.settle();
+        rejectedCount.increment();
+        if (taskDescriptor.metrics != null) {
+            taskDescriptor.metrics.recordRejected();
+        }
+
+        // 调度线程不能直接执行任务，否则一个慢任务会推迟所有其他到期任务，调度线程分发被拒绝时一律重新调度
+        if (dispatchPolicy == DispatchPolicy.CALLER_RUNS && Thread.currentThread() != schedulerThread) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("任务 [{}] 分发被拒绝，在当前线程中直接执行", taskDescriptor.id);
+            }
+            // 调用方线程本身就处于调用方的上下文中，直接执行原任务
+            execute(taskDescriptor, taskDescriptor.task);
+            return;
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("任务 [{}] 分发被拒绝，稍后重新调度", taskDescriptor.id);
+        }
+        reschedule(taskDescriptor);
     }
 
     /**
-     * 构建任务执行器
+     * 已经分发到线程池的任务被线程池丢弃或者被取消，该次分发永远不会执行，任务重新调度
      *
      * @param taskDescriptor
      *            任务描述
+     */
+    private void onDispatchLost(InternalTaskDescriptor taskDescriptor) {
+        rejectedCount.increment();
+        if (taskDescriptor.metrics != null) {
+            taskDescriptor.metrics.recordRejected();
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("任务 [{}] 在线程池中被丢弃或者取消，稍后重新调度", taskDescriptor.id);
+        }
+        reschedule(taskDescriptor);
+    }
+
+    /**
+     * 将处于RUNNING或者QUEUE状态但是没有被执行的任务切换回IDLE状态，稍后由调度线程重新分发
      *
-     * @return 任务执行器，用于最终执行任务
-     */
-    private Runnable build(InternalTaskDescriptor taskDescriptor) {
-        return () -> {
-            boolean exec = true;
-            while (exec) {
-                // 执行计数，判断本次需要执行多少次
-                long executeCounter;
-                // 这段逻辑在任务级别低并发的调度下效率较高，但是在高并发的调度下效率较低，不过我们这个就是设计给任务级别低并发调度设计的，问题不大；
-                do {
-                    executeCounter = taskDescriptor.counter.get();
-                } while (!taskDescriptor.counter.compareAndSet(executeCounter, 0));
-
-                if (taskDescriptor.mergeScheduler) {
-                    executeCounter = executeCounter > 0 ? 1 : 0;
+     * @param taskDescriptor
+     *            任务描述
+     */
+    private void reschedule(InternalTaskDescriptor taskDescriptor) {
+        // 任务回到IDLE状态，稍后由调度线程重新分发；调度线程到期唤醒任务时会将计数加1，所以这里先减掉本次被拒绝的那次计数，
+        // 其余已经堆积的计数保留
+        long now = now();
+        taskDescriptor.nextExecuteTime = Math.min(taskDescriptor.nextExecuteTime(now), now + REJECTED_RETRY_DELAY);
+        long state;
+        do {
+            state = taskDescriptor.state;
+        } while (!taskDescriptor.casState(state, InternalTaskDescriptor.pack(TaskStatus.IDLE,
+            Math.max(InternalTaskDescriptor.counterOf(state) - 1, 0))));
+        markIndexDirty(taskDescriptor);
+        semaphore.release();
+    }
+
+    /**
+     * 执行任务，直到任务没有堆积的调度为止
+     *
+     * @param taskDescriptor
+     *            任务描述
+     * @param task
+     *            实际执行的任务，可能是在分发线程上下文中运行的包装任务
+     */
+    private void execute(InternalTaskDescriptor taskDescriptor, Runnable task) {
+        boolean exec = true;
+        while (exec) {
+            // 执行计数，判断本次需要执行多少次，取出计数的同时保持状态不变
+            long state;
+            do {
+                state = taskDescriptor.state;
+            } while (!taskDescriptor.casState(state,
+                InternalTaskDescriptor.pack(InternalTaskDescriptor.statusOf(state), 0)));
+            long executeCounter = InternalTaskDescriptor.counterOf(state);
+
+            TaskMetrics metrics = taskDescriptor.metrics;
+            if (taskDescriptor.mergeScheduler) {
+                if (metrics != null) {
+                    metrics.recordMerged(executeCounter - 1);
                 }
+                executeCounter = executeCounter > 0 ? 1 : 0;
+            }
 
-                // 执行指定次数
-                for (long i = 0; i < executeCounter; i++) {
-                    try {
-                        taskDescriptor.task.run();
-                    } catch (Throwable throwable) {
-                        LOGGER.warn(throwable, "任务 [{}] 执行过程中发生了异常]", taskDescriptor.id);
-                    }
+            if (metrics != null && executeCounter > 0) {
+                // 只记录晚于计划时间的执行，被主动调度提前执行的不计入延迟
+                long lag = now() - taskDescriptor.nextExecuteTime;
+                if (lag >= 0) {
+                    metrics.recordLag(TimeUnit.NANOSECONDS.toMicros(lag));
                 }
+            }
 
-                // 这个主要是打印日志使用
-                long currentExecuteCounter = executeCounter;
-                // 加锁修改状态，同时返回是否继续执行
-                exec = LockTask.runWithLock(taskDescriptor.statusMutex.writeLock(), () -> {
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("本次任务 [{}] 执行 [{}] 次，当前任务状态为： [{}]", taskDescriptor.id, currentExecuteCounter,
-                            taskDescriptor.status);
-                    }
-                    // 注意三个break的区别
-                    switch (taskDescriptor.status) {
-                        case RUNNING:
-                            taskDescriptor.status = TaskStatus.IDLE;
-                            // 注意，这里没有break是正确的，因为后边逻辑是公用的，所以这里没有加break，注意，下边的fall through注释是为
-                            // 了让check style忽略这里少写了一个break
-                            // fall through
-                        case IDLE:
-                            // 修改任务并退出while执行循环
-                            // 更新下次执行时间，因为下次执行时间只有在IDLE状态才会消费，所以只有状态更新为IDLE时才更新；
-                            taskDescriptor.nextExecuteTime =
-                                System.currentTimeMillis() + taskDescriptor.executeInterval;
-                            // 任务的下次执行时间修改了，需要重新调度计算下次执行时间；
-                            semaphore.release();
-                            return false;
-                        case QUEUE:
-                            // 修改任务状态，继续循环
-                            taskDescriptor.status = TaskStatus.RUNNING;
-                            return true;
-                        default:
-                            throw new IllegalStateException(StrUtil.format("不支持的任务描述状态： [{}]", taskDescriptor.status));
-                    }
-                });
+            // 执行指定次数
+            for (long i = 0; i < executeCounter; i++) {
+                long runStart = metrics == null ? 0 : System.nanoTime();
+                boolean success = true;
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    success = false;
+                    LOGGER.warn(throwable, "任务 [{}] 执行过程中发生了异常]", taskDescriptor.id);
+                }
+                if (metrics != null) {
+                    metrics.recordRun(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - runStart), success);
+                }
+            }
+
+            // 更新下次执行时间，因为下次执行时间只有在IDLE状态才会消费，而任务执行期间不会是IDLE状态，所以可以在状态切换前
+            // 提前写入，状态切换的CAS保证其对读取到IDLE状态的线程可见
+            taskDescriptor.nextExecuteTime = taskDescriptor.nextExecuteTime(now());
+
+            TaskStatus status;
+            do {
+                state = taskDescriptor.state;
+                status = InternalTaskDescriptor.statusOf(state);
+                if (status != TaskStatus.RUNNING && status != TaskStatus.QUEUE) {
+                    throw new IllegalStateException(StrUtil.format("不支持的任务描述状态： [{}]", status));
+                }
+                // RUNNING状态下没有排队的任务，切换为IDLE退出执行循环；QUEUE状态下还有排队的任务，切换为RUNNING继续循环
+            } while (!taskDescriptor.casState(state, InternalTaskDescriptor.pack(
+                status == TaskStatus.RUNNING ? TaskStatus.IDLE : TaskStatus.RUNNING,
+                InternalTaskDescriptor.counterOf(state))));
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("本次任务 [{}] 执行 [{}] 次，当前任务状态为： [{}]", taskDescriptor.id, executeCounter, status);
+            }
+
+            if (executeCounter > 0) {
+                journalRun(taskDescriptor, InternalTaskDescriptor.counterOf(state));
             }
 
-        };
+            exec = status == TaskStatus.QUEUE;
+            if (!exec) {
+                // 任务的下次执行时间修改了，需要同步到索引并重新调度计算下次执行时间；
+                markIndexDirty(taskDescriptor);
+                semaphore.release();
+            }
+        }
     }
 
-    private static class InternalTaskDescriptor {
+    /**
+     * 分发到线程池的任务，每次分发创建一个新实例，任务在创建时所在线程（主动调度的调用方或者调度线程）的上下文中执行，
+     * 合并到本次分发中执行的后续调度沿用该上下文；线程池开始执行、取消或者丢弃该任务时都会结算一次，结算时释放待执行计数并清除已分发标记，
+     * 保证即使任务永远不会执行，待执行计数也不会泄漏、任务也不会永远停留在RUNNING状态
+     * <p>
+     * 注意：{@link ExecutorService#shutdownNow()}返回的未执行任务需要调用方取消后才会结算
+     */
+    private final class DispatchTask extends FutureTask<Void> {
 
         /**
-         * 任务状态锁
+         * 任务描述
          */
-        private final ReadWriteLock statusMutex;
+        private final InternalTaskDescriptor taskDescriptor;
+
+        /**
+         * 是否已经结算
+         */
+        private final AtomicBoolean settled;
+
+        private DispatchTask(final InternalTaskDescriptor taskDescriptor) {
+            this(taskDescriptor, ContextSnapshot.capture().wrap(taskDescriptor.task));
+        }
+
+        private DispatchTask(final InternalTaskDescriptor taskDescriptor, final Runnable task) {
+            super(() -> execute(taskDescriptor, task), null);
+            this.taskDescriptor = taskDescriptor;
+            this.settled = new AtomicBoolean(false);
+        }
+
+        @Override
+        public void run() {
+            // 任务已经从线程池队列中取出，开始执行；结算失败说明该次分发已经按照被丢弃处理并重新调度了，不能再执行
+            if (settle()) {
+                super.run();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                discard();
+            }
+        }
+
+        /**
+         * 结算本次分发，只有第一次调用生效
+         *
+         * @return true表示本次调用完成了结算
+         */
+        private boolean settle() {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            pendingDispatch.decrementAndGet();
+            taskDescriptor.dispatched = false;
+            return true;
+        }
+
+        /**
+         * 本次分发被丢弃，还未结算时结算并重新调度任务
+         */
+        private void discard() {
+            if (settle()) {
+                onDispatchLost(taskDescriptor);
+            }
+        }
+    }
+
+    /**
+     * 替代{@link ThreadPoolExecutor.DiscardPolicy}、{@link ThreadPoolExecutor.DiscardOldestPolicy}的拒绝策略，丢弃行为与原策略一致，
+     * 被丢弃的是调度系统分发的任务时直接结算并重新调度；丢弃的任务都是确定的，不需要扫描队列判断
+     */
+    private static final class DiscardAwareHandler implements RejectedExecutionHandler {
+
+        /**
+         * true表示丢弃队首的任务后重新提交被拒绝的任务，false表示丢弃被拒绝的任务
+         */
+        private final boolean discardOldest;
+
+        private DiscardAwareHandler(final boolean discardOldest) {
+            this.discardOldest = discardOldest;
+        }
+
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            if (discardOldest && !executor.isShutdown()) {
+                // poll是原子操作，取出的任务不会再被工作线程执行，可以放心结算
+                discard(executor.getQueue().poll());
+                executor.execute(runnable);
+                return;
+            }
+            discard(runnable);
+        }
+
+        /**
+         * 结算被丢弃的任务
+         *
+         * @param runnable
+         *            被丢弃的任务，可能为空
+         */
+        private static void discard(Runnable runnable) {
+            if (runnable instanceof DispatchTask) {
+                ((DispatchTask)runnable).discard();
+            }
+        }
+    }
+
+    private static class InternalTaskDescriptor extends DueTimeIndex.Node {
+
+        /**
+         * {@link #state}的VarHandle
+         */
+        private static final VarHandle STATE;
+
+        /**
+         * 状态字中任务状态占用的位数，低位存放任务状态，高位存放任务堆积数量
+         */
+        private static final int STATUS_BITS = 2;
+
+        /**
+         * 状态字中任务状态的掩码
+         */
+        private static final long STATUS_MASK = (1L << STATUS_BITS) - 1;
+
+        /**
+         * 所有任务状态，按照ordinal排列
+         */
+        private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(InternalTaskDescriptor.class, "state", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
 
         /**
          * 任务ID
@@ -414,45 +1061,180 @@ public class SchedulerSystemImpl implements SchedulerSystem {
         private final String id;
 
         /**
-         * 任务执行时间间隔，单位毫秒，执行间隔从上一次执行完成后开始计算；
+         * 任务执行时间间隔，单位见{@link #executeIntervalUnit}，执行间隔从上一次执行完成后开始计算；
          */
         private final long executeInterval;
 
         /**
-         * 任务执行器
+         * 任务执行时间间隔单位
          */
-        private final Runnable task;
+        private final TimeUnit executeIntervalUnit;
+
+        /**
+         * 任务执行时间间隔，单位纳秒
+         */
+        private final long executeIntervalNanos;
+
+        /**
+         * cron触发规则，为空表示按照固定间隔执行
+         */
+        private final CronExpression cron;
 
         /**
-         * 任务堆积数量，代表任务当前最多能执行的次数
+         * 任务执行器
          */
-        private final AtomicLong counter;
+        private final Runnable task;
 
         /**
-         * 下次执行时间戳；PS：该字段目前读写都加的有锁，所以没必要使用其他同步手段；
+         * 任务状态字，低位是任务状态，高位是任务堆积数量（代表任务当前最多能执行的次数），两者通过一次CAS原子更新
          */
-        private long nextExecuteTime;
+        private volatile long state;
 
         /**
-         * 任务状态
+         * 下次执行时间，单调时钟纳秒；PS：该字段只在任务执行期间写入，并且在切换到IDLE状态前写入，只在IDLE状态下读取；
          */
-        private TaskStatus status;
+        private volatile long nextExecuteTime;
 
         /**
          * 合并调度
          */
         private final boolean mergeScheduler;
 
-        public InternalTaskDescriptor(final String id, long executeInterval, final Runnable task,
-            final boolean mergeScheduler) {
-            this.statusMutex = new ReentrantReadWriteLock();
-            this.id = id;
-            this.executeInterval = executeInterval;
-            this.task = task;
-            this.counter = new AtomicLong(0);
-            this.nextExecuteTime = System.currentTimeMillis() + executeInterval;
-            this.status = TaskStatus.IDLE;
+        /**
+         * 任务已经在线程池中排队时是否跳过新的触发
+         */
+        private final boolean skipIfQueued;
+
+        /**
+         * 任务是否已经分发到线程池但是还未开始执行
+         */
+        private volatile boolean dispatched;
+
+        /**
+         * 任务运行指标，调度系统未开启指标时为null
+         */
+        private final TaskMetrics metrics;
+
+        /**
+         * 是否已经在等待同步到索引的队列中
+         */
+        private final AtomicBoolean indexPending;
+
+        /**
+         * 任务是否已经从调度系统中移除
+         */
+        private volatile boolean removed;
+
+        public InternalTaskDescriptor(final TaskDescriptor taskDescriptor, final boolean mergeScheduler,
+            final TaskMetrics metrics) {
+            TimeUnit unit = taskDescriptor.getExecuteIntervalUnit();
+            this.id = taskDescriptor.getId();
+            this.executeInterval = taskDescriptor.getExecuteInterval();
+            this.executeIntervalUnit = unit == null ? TimeUnit.MILLISECONDS : unit;
+            this.executeIntervalNanos = executeIntervalUnit.toNanos(executeInterval);
+            this.cron = taskDescriptor.getCron();
+            this.task = taskDescriptor.getTask();
+            this.nextExecuteTime = nextExecuteTime(now());
+            this.state = pack(TaskStatus.IDLE, 0);
             this.mergeScheduler = mergeScheduler;
+            this.skipIfQueued = taskDescriptor.isSkipIfQueued();
+            this.dispatched = false;
+            this.metrics = metrics;
+            this.indexPending = new AtomicBoolean(false);
+            this.removed = false;
+        }
+
+        /**
+         * 计算上次执行完成后的下次执行时间
+         *
+         * @param lastFinishTime
+         *            上次执行完成时间，单调时钟纳秒
+         *
+         * @return 下次执行时间，单调时钟纳秒，cron永远不会再触发时返回{@link Long#MAX_VALUE}
+         */
+        private long nextExecuteTime(long lastFinishTime) {
+            if (cron == null) {
+                // 超大的执行间隔换算为纳秒时会被截断为Long.MAX_VALUE，直接相加会溢出为负数，导致任务被反复调度
+                return saturatedAdd(lastFinishTime, executeIntervalNanos);
+            }
+
+            // cron是按照日历时间计算的，计算出距离下次触发的时长后再换算为单调时钟
+            long currentTimeMillis = System.currentTimeMillis();
+            long next = cron.next(currentTimeMillis);
+            // 日历时间可能被回拨，间隔不能为负，否则任务会被立即反复调度
+            return next == Long.MAX_VALUE ? Long.MAX_VALUE
+                : saturatedAdd(lastFinishTime, TimeUnit.MILLISECONDS.toNanos(Math.max(next - currentTimeMillis, 0)));
+        }
+
+        /**
+         * 转换为对外的任务说明
+         *
+         * @return 任务说明
+         */
+        private TaskDescriptor toTaskDescriptor() {
+            return new TaskDescriptor(id, executeInterval, task, mergeScheduler, cron, skipIfQueued,
+                executeIntervalUnit);
+        }
+
+        /**
+         * 当前任务状态
+         *
+         * @return 任务状态
+         */
+        private TaskStatus status() {
+            return statusOf(state);
+        }
+
+        /**
+         * CAS更新状态字
+         *
+         * @param expect
+         *            期望值
+         * @param update
+         *            新值
+         *
+         * @return true表示更新成功
+         */
+        private boolean casState(long expect, long update) {
+            return STATE.compareAndSet(this, expect, update);
+        }
+
+        /**
+         * 将任务状态和任务堆积数量打包为状态字
+         *
+         * @param status
+         *            任务状态
+         * @param counter
+         *            任务堆积数量
+         *
+         * @return 状态字
+         */
+        private static long pack(TaskStatus status, long counter) {
+            return (counter << STATUS_BITS) | status.ordinal();
+        }
+
+        /**
+         * 从状态字中解析任务状态
+         *
+         * @param state
+         *            状态字
+         *
+         * @return 任务状态
+         */
+        private static TaskStatus statusOf(long state) {
+            return STATUSES[(int)(state & STATUS_MASK)];
+        }
+
+        /**
+         * 从状态字中解析任务堆积数量
+         *
+         * @param state
+         *            状态字
+         *
+         * @return 任务堆积数量
+         */
+        private static long counterOf(long state) {
+            return state >>> STATUS_BITS;
         }
     }
 
@@ -12,6 +12,8 @@
  */
 package cn.hehouhui.concurrent;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 调度任务
  *
@@ -38,10 +40,22 @@ public interface SchedulerTask {
     /**
      * 本调度任务的调度间隔（上次任务结束到下次任务开始）
      * 
-     * @return 调度间隔，单位毫秒
+     * @return 调度间隔，单位毫秒，亚毫秒级的调度间隔返回1
      */
     long fixedDelay();
 
+    /**
+     * 本调度任务指定单位的调度间隔（上次任务结束到下次任务开始），需要获取亚毫秒级调度间隔时使用
+     *
+     * @param unit
+     *            时间单位
+     *
+     * @return 调度间隔
+     */
+    default long fixedDelay(TimeUnit unit) {
+        return unit.convert(fixedDelay(), TimeUnit.MILLISECONDS);
+    }
+
     /**
      * 设置调度间隔
      * 
@@ -50,6 +64,18 @@ public interface SchedulerTask {
      */
     void setFixedDelay(long fixedDelay);
 
+    /**
+     * 设置指定单位的调度间隔，需要亚毫秒级调度间隔时使用
+     *
+     * @param fixedDelay
+     *            调度间隔，启动前设置立即生效，启动后设置在下次调度生效
+     * @param unit
+     *            时间单位
+     */
+    default void setFixedDelay(long fixedDelay, TimeUnit unit) {
+        setFixedDelay(unit.toMillis(fixedDelay));
+    }
+
     /**
      * 初始调度延迟
      * 
@@ -65,4 +91,13 @@ public interface SchedulerTask {
      */
     void setInitialDelay(long initialDelay);
 
+    /**
+     * 获取任务的运行指标快照
+     *
+     * @return 任务指标快照，任务未开启指标时返回null
+     */
+    default TaskMetrics.Snapshot metrics() {
+        return null;
+    }
+
 }
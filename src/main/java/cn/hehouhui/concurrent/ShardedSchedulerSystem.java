@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 分片多任务调度系统，任务按照ID的hash分配到N个相互独立的{@link SchedulerSystemImpl}分片上，每个分片拥有自己的调度线程、唤醒信号量和到期时间索引，
+ * 适合同一时间有大量任务被唤醒、单个调度线程成为瓶颈的场景；
+ * <p>
+ * 注意：所有分片共用同一个任务执行线程池，同一个任务ID始终落在同一个分片上
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class ShardedSchedulerSystem implements SchedulerSystem {
+
+    /**
+     * 调度系统分片
+     */
+    private final SchedulerSystemImpl[] shards;
+
+    /**
+     * 默认构造器，分片数量为当前CPU核数
+     *
+     * @param name
+     *            调度系统名称
+     * @param executorService
+     *            任务执行线程池
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     */
+    public ShardedSchedulerSystem(final String name, final ExecutorService executorService,
+        final boolean mergeScheduler) {
+        this(name, executorService, mergeScheduler, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构造器
+     *
+     * @param name
+     *            调度系统名称，分片的调度线程名为 name-分片序号
+     * @param executorService
+     *            任务执行线程池
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     * @param shardCount
+     *            分片数量，必须大于0
+     */
+    public ShardedSchedulerSystem(final String name, final ExecutorService executorService,
+        final boolean mergeScheduler, final int shardCount) {
+        this(name, executorService, mergeScheduler, shardCount, false);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param name
+     *            调度系统名称，分片的调度线程名为 name-分片序号
+     * @param executorService
+     *            任务执行线程池
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     * @param shardCount
+     *            分片数量，必须大于0
+     * @param metricsEnabled
+     *            是否记录任务运行指标
+     */
+    public ShardedSchedulerSystem(final String name, final ExecutorService executorService,
+        final boolean mergeScheduler, final int shardCount, final boolean metricsEnabled) {
+        this(name, executorService, mergeScheduler, shardCount, metricsEnabled, DispatchPolicy.RESCHEDULE, 0);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param name
+     *            调度系统名称，分片的调度线程名为 name-分片序号
+     * @param executorService
+     *            任务执行线程池
+     * @param mergeScheduler
+     *            是否合并调度，如果合并调度，任务连续多次被调度可能只会执行一次（PS：保证合并调度的最后一次调度肯定会被执行）
+     * @param shardCount
+     *            分片数量，必须大于0
+     * @param metricsEnabled
+     *            是否记录任务运行指标
+     * @param dispatchPolicy
+     *            任务分发被拒绝时的处理策略
+     * @param maxPendingDispatch
+     *            单个分片已经分发到线程池但是还未开始执行的任务数上限，小于等于0表示不限制
+     */
+    public ShardedSchedulerSystem(final String name, final ExecutorService executorService,
+        final boolean mergeScheduler, final int shardCount, final boolean metricsEnabled,
+        final DispatchPolicy dispatchPolicy, final int maxPendingDispatch) {
+        Assert.notBlank(name, "调度系统名称不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(shardCount > 0, "调度系统分片数量必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        this.shards = new SchedulerSystemImpl[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new SchedulerSystemImpl(name + "-" + i, executorService, mergeScheduler, metricsEnabled,
+                dispatchPolicy, maxPendingDispatch);
+        }
+    }
+
+    /**
+     * 设置状态日志，所有分片共用同一个日志，只能在调度系统启动前设置
+     *
+     * @param journal
+     *            状态日志，为空表示不记录任务执行进度
+     * @param misfirePolicy
+     *            从状态日志恢复任务时的错过执行策略
+     */
+    public void setJournal(final SchedulerJournal journal, final MisfirePolicy misfirePolicy) {
+        for (final SchedulerSystemImpl shard : shards) {
+            shard.setJournal(journal, misfirePolicy);
+        }
+    }
+
+    @Override
+    public void start() {
+        for (final SchedulerSystemImpl shard : shards) {
+            shard.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (final SchedulerSystemImpl shard : shards) {
+            shard.stop();
+        }
+    }
+
+    @Override
+    public TaskDescriptor registerTask(final TaskDescriptor taskDescriptor) {
+        Assert.notNull(taskDescriptor, "要注册的任务说明不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notBlank(taskDescriptor.getId(), "要注册的任务ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return shard(taskDescriptor.getId()).registerTask(taskDescriptor);
+    }
+
+    @Override
+    public TaskDescriptor removeTask(final String id) {
+        Assert.notBlank(id, "要移除的任务ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return shard(id).removeTask(id);
+    }
+
+    @Override
+    public List<TaskDescriptor> getAll() {
+        List<TaskDescriptor> all = new ArrayList<>();
+        for (final SchedulerSystemImpl shard : shards) {
+            all.addAll(shard.getAll());
+        }
+        return all;
+    }
+
+    @Override
+    public CompletableFuture<Void> runGraph(final TaskGraph graph) {
+        Assert.notNull(graph, "要执行的任务图不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return shard(graph.getId()).runGraph(graph);
+    }
+
+    @Override
+    public List<TaskMetrics.Snapshot> metrics() {
+        List<TaskMetrics.Snapshot> all = new ArrayList<>();
+        for (final SchedulerSystemImpl shard : shards) {
+            all.addAll(shard.metrics());
+        }
+        return all;
+    }
+
+    /**
+     * 所有分片中已经分发到线程池但是还未开始执行的任务数
+     *
+     * @return 待执行任务数
+     */
+    public int pendingDispatchCount() {
+        int count = 0;
+        for (final SchedulerSystemImpl shard : shards) {
+            count += shard.pendingDispatchCount();
+        }
+        return count;
+    }
+
+    /**
+     * 所有分片任务分发被拒绝的总次数
+     *
+     * @return 被拒绝次数
+     */
+    public long rejectedCount() {
+        long count = 0;
+        for (final SchedulerSystemImpl shard : shards) {
+            count += shard.rejectedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void scheduler(final String id, final boolean throwIfTaskNotFound) {
+        Assert.notBlank(id, "要调度的任务ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        shard(id).scheduler(id, throwIfTaskNotFound);
+    }
+
+    /**
+     * 获取任务ID对应的分片
+     *
+     * @param id
+     *            任务ID
+     *
+     * @return 分片
+     */
+    private SchedulerSystem shard(String id) {
+        int hash = id.hashCode();
+        // 扰动一下，避免hash低位分布不均
+        hash ^= hash >>> 16;
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+
+}
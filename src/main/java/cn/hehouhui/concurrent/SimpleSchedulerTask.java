@@ -19,10 +19,16 @@ import lombok.CustomLog;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * 简单调度任务
+ * <p>
+ * 默认按照固定间隔{@link #setFixedDelay(long)}执行；通过{@link #adaptive(BooleanSupplier, String, boolean)}创建的任务可以返回本轮是否处理到了数据，
+ * 设置{@link #setAdaptiveDelay(long, long, TimeUnit)}后进入自适应间隔模式：持续有数据时间隔逐步减半直到最小间隔，空闲时间隔逐步翻倍直到最大间隔，
+ * 适合轮询队列之类的任务，空闲时不会以固定频率空轮询；任何模式下{@link #scheduler()}都会立即结束当前等待
  *
  * @author HEHH
  * @date 2024/12/02
@@ -34,15 +40,20 @@ public class SimpleSchedulerTask implements SchedulerTask {
 
     private final ExecutorService executorService;
 
+    /**
+     * 未指定线程池时用于创建任务线程的线程工厂
+     */
+    private final ThreadFactory threadFactory;
+
     /**
      * 任务名
      */
     private final String taskName;
 
     /**
-     * 真正执行的任务，注意，该任务中不要做while true之类的逻辑，调度任务会自动定义执行该任务
+     * 真正执行的任务，返回本轮是否处理到了数据；注意，该任务中不要做while true之类的逻辑，调度任务会自动定义执行该任务
      */
-    private final Runnable task;
+    private final BooleanSupplier task;
 
     /**
      * 调度信号量
@@ -60,15 +71,30 @@ public class SimpleSchedulerTask implements SchedulerTask {
     private volatile boolean start;
 
     /**
-     * 任务调度间隔（上次任务结束到下次任务开始）
+     * 任务调度间隔（上次任务结束到下次任务开始），单位纳秒
      */
     private volatile long fixedDelay;
 
     /**
-     * 初始延迟时间
+     * 自适应模式的最小调度间隔，单位纳秒，0表示不使用自适应模式
+     */
+    private volatile long minDelay;
+
+    /**
+     * 自适应模式的最大调度间隔，单位纳秒
+     */
+    private volatile long maxDelay;
+
+    /**
+     * 初始延迟时间，单位纳秒
      */
     private volatile long initialDelay;
 
+    /**
+     * 任务运行指标，未开启指标时为null
+     */
+    private volatile TaskMetrics metrics;
+
     /**
      * 任务
      */
@@ -80,6 +106,11 @@ public class SimpleSchedulerTask implements SchedulerTask {
 
     public SimpleSchedulerTask(Runnable task, String taskName, boolean mergeScheduler,
         ExecutorService executorService) {
+        this(toSupplier(task), taskName, mergeScheduler, executorService, null);
+    }
+
+    private SimpleSchedulerTask(BooleanSupplier task, String taskName, boolean mergeScheduler,
+        ExecutorService executorService, ThreadFactory threadFactory) {
         Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
         Assert.notBlank(taskName, "任务名不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
 
@@ -87,27 +118,110 @@ public class SimpleSchedulerTask implements SchedulerTask {
         this.taskName = taskName;
         this.mergeScheduler = mergeScheduler;
         this.executorService = executorService;
+        this.threadFactory = threadFactory == null ? run -> {
+            Thread thread = new Thread(run, taskName);
+            thread.setDaemon(false);
+            return thread;
+        } : threadFactory;
         this.semaphore = new Semaphore(0);
         this.start = false;
         this.fixedDelay = 0;
+        this.minDelay = 0;
+        this.maxDelay = 0;
         this.initialDelay = 0;
     }
 
     /**
-     * 尝试获取信号量，最多等待指定时间，超时后返回，不会被中断，注意，不要并发调用
+     * 创建一个运行在虚拟线程上的调度任务，任务等待调度期间只会挂起虚拟线程，不会占用平台线程，适合单个JVM中存在大量调度任务的场景；
+     * <p>
+     * 注意：虚拟线程都是守护线程，不会阻止JVM退出
+     *
+     * @param task
+     *            要执行的任务
+     * @param taskName
+     *            任务名，同时也是虚拟线程名
+     * @param mergeScheduler
+     *            是否合并调度
+     *
+     * @return 调度任务
+     */
+    public static SimpleSchedulerTask ofVirtual(Runnable task, String taskName, boolean mergeScheduler) {
+        return new SimpleSchedulerTask(toSupplier(task), taskName, mergeScheduler, null,
+            Thread.ofVirtual().name(taskName).factory());
+    }
+
+    /**
+     * 创建一个可以使用自适应间隔模式的调度任务，需要调用{@link #setAdaptiveDelay(long, long, TimeUnit)}设置间隔范围，未设置时按照固定间隔执行
+     *
+     * @param task
+     *            要执行的任务，返回true表示本轮处理到了数据，返回false或者抛出异常表示空闲
+     * @param taskName
+     *            任务名
+     * @param mergeScheduler
+     *            是否合并调度
+     *
+     * @return 调度任务
+     */
+    public static SimpleSchedulerTask adaptive(BooleanSupplier task, String taskName, boolean mergeScheduler) {
+        return adaptive(task, taskName, mergeScheduler, null);
+    }
+
+    /**
+     * 创建一个可以使用自适应间隔模式的调度任务，需要调用{@link #setAdaptiveDelay(long, long, TimeUnit)}设置间隔范围，未设置时按照固定间隔执行
+     *
+     * @param task
+     *            要执行的任务，返回true表示本轮处理到了数据，返回false或者抛出异常表示空闲
+     * @param taskName
+     *            任务名
+     * @param mergeScheduler
+     *            是否合并调度
+     * @param executorService
+     *            执行任务的线程池，为空时使用独立线程
+     *
+     * @return 调度任务
+     */
+    public static SimpleSchedulerTask adaptive(BooleanSupplier task, String taskName, boolean mergeScheduler,
+        ExecutorService executorService) {
+        return new SimpleSchedulerTask(task, taskName, mergeScheduler, executorService, null);
+    }
+
+    /**
+     * 将普通任务转换为始终返回处理到数据的任务
+     *
+     * @param task
+     *            普通任务
+     *
+     * @return 转换后的任务
+     */
+    private static BooleanSupplier toSupplier(Runnable task) {
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return () -> {
+            task.run();
+            return true;
+        };
+    }
+
+    /**
+     * 尝试获取信号量，最多等待指定时间，超时后返回，不会被中断，注意，不要并发调用；等待基于单调时钟的截止时间，不受系统时间调整影响
      * 
      * @param time
-     *            超时时间，单位毫秒
+     *            超时时间，单位纳秒
      */
     private void tryAcquire(long time) {
-        long start = System.currentTimeMillis();
-        while (System.currentTimeMillis() - start <= time) {
+        long deadline = System.nanoTime() + time;
+        long remaining = time;
+        while (remaining > 0) {
             try {
                 // 注意，tryAcquire不会并发调用，所以这里的两次semaphore.availablePermits()调用不存在并发问题
-                if (semaphore.tryAcquire(time - (System.currentTimeMillis() - start), TimeUnit.MILLISECONDS)
-                    && mergeScheduler && semaphore.availablePermits() > 0) {
+                if (semaphore.tryAcquire(remaining, TimeUnit.NANOSECONDS) && mergeScheduler
+                    && semaphore.availablePermits() > 0) {
                     // 如果合并调度，则将所有的semaphore消耗完毕
-                    semaphore.acquire(semaphore.availablePermits());
+                    int permits = semaphore.availablePermits();
+                    semaphore.acquire(permits);
+                    TaskMetrics metrics = this.metrics;
+                    if (metrics != null) {
+                        metrics.recordMerged(permits);
+                    }
                 }
                 break;
             } catch (InterruptedException e) {
@@ -116,6 +230,7 @@ public class SimpleSchedulerTask implements SchedulerTask {
                     return;
                 }
             }
+            remaining = deadline - System.nanoTime();
         }
     }
 
@@ -127,29 +242,59 @@ public class SimpleSchedulerTask implements SchedulerTask {
                 return;
             }
 
-            Assert.assertTrue(fixedDelay > 0, StrUtil.format("当前任务 [{}] fixedDelay还未初始化，请初始化后启动", taskName),
+            Assert.assertTrue(fixedDelay > 0 || minDelay > 0,
+                StrUtil.format("当前任务 [{}] fixedDelay还未初始化，请初始化后启动", taskName),
                 ExceptionProviderConst.IllegalStateExceptionProvider);
 
             start = true;
             Runnable run = () -> {
+                // 本轮计划执行时间，用于计算执行延迟
+                long plannedTime = System.nanoTime() + initialDelay;
                 if (initialDelay > 0) {
                     tryAcquire(initialDelay);
                 }
+                // 自适应模式下的当前调度间隔，从最小间隔开始
+                long adaptiveDelay = 0;
 
                 while (start) {
+                    TaskMetrics metrics = this.metrics;
+                    long runStart = metrics == null ? 0 : System.nanoTime();
+                    if (metrics != null && runStart - plannedTime >= 0) {
+                        // 只记录晚于计划时间的执行，被主动调度提前执行的不计入延迟
+                        metrics.recordLag(TimeUnit.NANOSECONDS.toMicros(runStart - plannedTime));
+                    }
+
+                    boolean success = true;
+                    boolean busy = false;
                     try {
-                        task.run();
+                        busy = task.getAsBoolean();
                     } catch (Throwable throwable) {
+                        success = false;
                         LOGGER.warn(throwable, "定时任务 [{}] 本轮执行失败（不影响后续执行）", taskName);
                     }
 
-                    tryAcquire(fixedDelay);
+                    if (metrics != null) {
+                        metrics.recordRun(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - runStart), success);
+                    }
+
+                    long delay;
+                    long min = minDelay;
+                    if (min > 0) {
+                        // 有数据时间隔减半，空闲时间隔翻倍，都限制在[min, max]范围内
+                        long max = maxDelay;
+                        adaptiveDelay = adaptiveDelay == 0 ? min : busy ? adaptiveDelay >> 1 : adaptiveDelay << 1;
+                        adaptiveDelay = Math.min(Math.max(adaptiveDelay, min), max);
+                        delay = adaptiveDelay;
+                    } else {
+                        delay = fixedDelay;
+                    }
+                    plannedTime = System.nanoTime() + delay;
+                    tryAcquire(delay);
                 }
             };
 
             if (executorService == null) {
-                taskThread = new Thread(run, taskName);
-                taskThread.setDaemon(false);
+                taskThread = threadFactory.newThread(run);
                 taskThread.start();
             } else {
                 executorService.submit(run);
@@ -173,26 +318,80 @@ public class SimpleSchedulerTask implements SchedulerTask {
 
     @Override
     public void scheduler() {
+        TaskMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordTrigger();
+        }
         semaphore.release();
     }
 
+    @Override
+    public TaskMetrics.Snapshot metrics() {
+        TaskMetrics metrics = this.metrics;
+        return metrics == null ? null : metrics.snapshot(taskName);
+    }
+
+    /**
+     * 设置是否记录任务运行指标，开启后可以通过{@link #metrics()}获取指标快照，关闭时没有任何记录开销；重新开启时指标将重新开始统计
+     *
+     * @param metricsEnabled
+     *            是否记录任务运行指标
+     */
+    public void setMetricsEnabled(final boolean metricsEnabled) {
+        this.metrics = metricsEnabled ? new TaskMetrics() : null;
+    }
+
     @Override
     public long fixedDelay() {
-        return fixedDelay;
+        long delay = fixedDelay;
+        // 亚毫秒级的间隔直接截断会变成0，与未设置间隔无法区分，所以向上取整为1毫秒
+        return delay > 0 ? Math.max(TimeUnit.NANOSECONDS.toMillis(delay), 1) : 0;
+    }
+
+    @Override
+    public long fixedDelay(final TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return unit.convert(fixedDelay, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void setFixedDelay(final long fixedDelay) {
-        this.fixedDelay = fixedDelay;
+        setFixedDelay(fixedDelay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setFixedDelay(final long fixedDelay, final TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.fixedDelay = unit.toNanos(fixedDelay);
+    }
+
+    /**
+     * 设置自适应间隔模式的间隔范围，只对通过{@link #adaptive(BooleanSupplier, String, boolean)}创建的任务有意义，普通任务始终按照最小间隔执行；
+     * 设置后{@link #setFixedDelay(long)}不再生效
+     *
+     * @param minDelay
+     *            最小间隔，持续有数据时的调度间隔，必须大于0
+     * @param maxDelay
+     *            最大间隔，长时间空闲时的调度间隔，不能小于最小间隔
+     * @param unit
+     *            时间单位
+     */
+    public void setAdaptiveDelay(final long minDelay, final long maxDelay, final TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(minDelay > 0 && maxDelay >= minDelay, "自适应间隔的最小间隔必须大于0并且不能大于最大间隔",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        // 先设置最大间隔，保证调度线程读到最小间隔时最大间隔已经生效
+        this.maxDelay = unit.toNanos(maxDelay);
+        this.minDelay = unit.toNanos(minDelay);
     }
 
     @Override
     public long initialDelay() {
-        return initialDelay;
+        return TimeUnit.NANOSECONDS.toMillis(initialDelay);
     }
 
     @Override
     public void setInitialDelay(final long initialDelay) {
-        this.initialDelay = initialDelay;
+        this.initialDelay = TimeUnit.MILLISECONDS.toNanos(initialDelay);
     }
 }
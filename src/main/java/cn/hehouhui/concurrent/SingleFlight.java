@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并，同一个key的并发调用只会真正执行一次，其他调用等待并共享这次执行的结果或者异常，例如大量线程同时查询同一个缓存未命中的key时，只有一个线程会访问数据库；
+ * <p>
+ * 可选结果保留时长：执行成功后结果继续保留指定时长，期间同一个key的调用直接返回该结果；保留时长为0或者执行失败时执行完成后立即移除，之后的调用会重新执行；
+ * <p>
+ * 命中已有执行时只有一次Map读取，同步调用不会产生额外的对象；
+ * <p>
+ * 注意：同步调用在执行线程中直接调用加载函数，加载函数中不能再以相同的key调用当前对象，否则会死锁
+ *
+ * @param <K>
+ *            key类型
+ * @param <V>
+ *            结果类型
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * 保留时长不为0时，每新增多少次执行清理一次过期结果
+     */
+    private static final int PURGE_INTERVAL = 64;
+
+    /**
+     * 结果保留时长，单位纳秒
+     */
+    private final long ttl;
+
+    /**
+     * 进行中或者还在保留期的执行
+     */
+    private final Map<K, Call<V>> calls;
+
+    /**
+     * 新增执行计数，用于触发过期清理
+     */
+    private final AtomicInteger created;
+
+    /**
+     * 默认构造器，执行完成后结果立即移除
+     */
+    public SingleFlight() {
+        this(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param ttl
+     *            执行成功后结果保留时长，小于等于0表示不保留，执行失败时始终不保留
+     * @param unit
+     *            时间单位
+     */
+    public SingleFlight(final long ttl, final TimeUnit unit) {
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.ttl = Math.max(unit.toNanos(ttl), 0);
+        this.calls = new ConcurrentHashMap<>();
+        this.created = new AtomicInteger(0);
+    }
+
+    /**
+     * 同步执行，同一个key同一时间只有一个调用会执行加载函数，其他调用阻塞等待其结果
+     *
+     * @param key
+     *            key
+     * @param loader
+     *            加载函数
+     *
+     * @return 结果
+     *
+     * @throws RuntimeException
+     *             加载函数抛出的异常，所有等待的调用都会收到同一个异常
+     */
+    public V execute(K key, Supplier<V> loader) {
+        Assert.notNull(loader, "加载函数不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        Call<V> call = find(key);
+        if (call == null) {
+            Call<V> fresh = new Call<>();
+            call = calls.putIfAbsent(key, fresh);
+            if (call == null) {
+                call = fresh;
+                try {
+                    complete(key, fresh, loader.get(), null);
+                } catch (Throwable throwable) {
+                    complete(key, fresh, null, throwable);
+                }
+            }
+        }
+
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步执行，同一个key同一时间只有一个调用会执行加载函数，其他调用共享其结果，该方法不会阻塞
+     *
+     * @param key
+     *            key
+     * @param loader
+     *            异步加载函数
+     *
+     * @return 结果，返回的是共享结果的副本，调用方取消或者完成该结果不影响其他调用
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<? extends CompletionStage<V>> loader) {
+        Assert.notNull(loader, "加载函数不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        Call<V> call = find(key);
+        if (call == null) {
+            Call<V> fresh = new Call<>();
+            call = calls.putIfAbsent(key, fresh);
+            if (call == null) {
+                call = fresh;
+                try {
+                    loader.get().whenComplete((value, error) -> complete(key, fresh, value, error));
+                } catch (Throwable throwable) {
+                    complete(key, fresh, null, throwable);
+                }
+            }
+        }
+        return call.copy();
+    }
+
+    /**
+     * 移除指定key的执行结果，进行中的执行不受影响，但是之后的调用会重新执行
+     *
+     * @param key
+     *            key
+     */
+    public void forget(K key) {
+        calls.remove(key);
+    }
+
+    /**
+     * 当前进行中或者还在保留期的执行数量
+     *
+     * @return 执行数量
+     */
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * 查找可以复用的执行，过期的执行会被移除
+     *
+     * @param key
+     *            key
+     *
+     * @return 可以复用的执行，不存在时返回null
+     */
+    private Call<V> find(K key) {
+        Assert.notNull(key, "key不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Call<V> call = calls.get(key);
+        if (call != null && call.expired(System.nanoTime())) {
+            calls.remove(key, call);
+            return null;
+        }
+        return call;
+    }
+
+    /**
+     * 完成执行
+     *
+     * @param key
+     *            key
+     * @param call
+     *            执行
+     * @param value
+     *            结果
+     * @param error
+     *            异常
+     */
+    private void complete(K key, Call<V> call, V value, Throwable error) {
+        // 失败结果不保留，避免一次偶发失败在整个保留期内都返回给所有调用
+        if (ttl == 0 || error != null) {
+            calls.remove(key, call);
+        } else {
+            call.expireAt = System.nanoTime() + ttl;
+            if (created.incrementAndGet() % PURGE_INTERVAL == 0) {
+                long now = System.nanoTime();
+                calls.values().removeIf(c -> c.expired(now));
+            }
+        }
+
+        if (error == null) {
+            call.complete(value);
+        } else {
+            call.completeExceptionally(
+                error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        }
+    }
+
+    /**
+     * 一次执行
+     *
+     * @param <V>
+     *            结果类型
+     */
+    private static final class Call<V> extends CompletableFuture<V> {
+
+        /**
+         * 结果过期时间，{@link System#nanoTime()}时钟；0表示还在执行中
+         */
+        private volatile long expireAt;
+
+        /**
+         * 判断结果是否过期
+         *
+         * @param now
+         *            当前时间
+         *
+         * @return true表示已经过期
+         */
+        private boolean expired(long now) {
+            long expire = expireAt;
+            return expire != 0 && expire - now <= 0;
+        }
+    }
+}
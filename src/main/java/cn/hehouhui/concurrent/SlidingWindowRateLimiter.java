@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 滑动窗口计数限流器，保证任意一个窗口时长内通过的许可数不超过上限，不允许突发；
+ * <p>
+ * 使用两个相邻的固定窗口近似滑动窗口：当前时刻的计数 = 上一个窗口的计数 * 上一个窗口仍在滑动窗口内的比例 + 当前窗口的计数，只需要两个计数器，内存占用与窗口内的请求数无关；
+ * <p>
+ * 窗口状态是一个不可变对象，每次获取许可通过一次CAS替换，没有锁；滑动窗口不支持预定未来的许可，许可不足时预定直接失败，阻塞获取会按照{@link #retryAfter(int)}估算的时间重试
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class SlidingWindowRateLimiter implements RateLimiter {
+
+    /**
+     * 窗口内允许通过的最大许可数
+     */
+    private final int limit;
+
+    /**
+     * 窗口时长，单位纳秒
+     */
+    private final long windowSize;
+
+    /**
+     * 时钟起点，窗口序号从该时间开始计算
+     */
+    private final long origin;
+
+    /**
+     * 当前窗口状态
+     */
+    private final AtomicReference<Window> window;
+
+    /**
+     * 构造器
+     *
+     * @param limit
+     *            窗口内允许通过的最大许可数，必须大于0
+     * @param window
+     *            窗口时长，必须大于0
+     * @param unit
+     *            时间单位
+     */
+    public SlidingWindowRateLimiter(final int limit, final long window, final TimeUnit unit) {
+        Assert.assertTrue(limit > 0, "滑动窗口许可数必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(unit, "时间单位不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(window > 0, "滑动窗口时长必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.limit = limit;
+        this.windowSize = unit.toNanos(window);
+        this.origin = System.nanoTime();
+        this.window = new AtomicReference<>(new Window(0, 0, 0));
+    }
+
+    @Override
+    public long reserve(final int permits, final long maxWait) {
+        Assert.assertTrue(permits > 0 && permits <= limit, "申请的许可数必须在1到窗口许可数之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        while (true) {
+            long elapsed = System.nanoTime() - origin;
+            Window current = window.get();
+            Window rolled = current.roll(elapsed / windowSize);
+            if (rolled.estimate(elapsed % windowSize, windowSize) + permits > limit) {
+                return -1;
+            }
+            if (window.compareAndSet(current, new Window(rolled.index, rolled.previous, rolled.current + permits))) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public long retryAfter(final int permits) {
+        long elapsed = System.nanoTime() - origin;
+        long offset = elapsed % windowSize;
+        Window rolled = window.get().roll(elapsed / windowSize);
+
+        // 当前窗口内：previous * (1 - t / windowSize) + current + permits <= limit，求解t
+        long allowed = limit - rolled.current - permits;
+        if (allowed >= 0 && rolled.previous > 0) {
+            long t = windowSize - (long)((double)allowed / rolled.previous * windowSize);
+            if (t < windowSize) {
+                return Math.max(t - offset, 1);
+            }
+        }
+
+        // 当前窗口内无法满足，下个窗口中当前窗口的计数成为previous，再次求解
+        long t = windowSize - (long)((double)(limit - permits) / Math.max(rolled.current, 1) * windowSize);
+        return windowSize - offset + Math.max(t, 0);
+    }
+
+    /**
+     * 获取当前窗口内估算的已使用许可数
+     *
+     * @return 已使用许可数
+     */
+    public double usedPermits() {
+        long elapsed = System.nanoTime() - origin;
+        return window.get().roll(elapsed / windowSize).estimate(elapsed % windowSize, windowSize);
+    }
+
+    /**
+     * 获取窗口内允许通过的最大许可数
+     *
+     * @return 最大许可数
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 窗口状态
+     */
+    private static final class Window {
+
+        /**
+         * 当前固定窗口的序号
+         */
+        private final long index;
+
+        /**
+         * 上一个固定窗口的计数
+         */
+        private final long previous;
+
+        /**
+         * 当前固定窗口的计数
+         */
+        private final long current;
+
+        private Window(final long index, final long previous, final long current) {
+            this.index = index;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /**
+         * 滚动到指定的固定窗口
+         *
+         * @param target
+         *            目标窗口序号
+         *
+         * @return 目标窗口的状态，序号没有变化时返回当前对象
+         */
+        private Window roll(long target) {
+            if (target == index) {
+                return this;
+            }
+            // 只前进了一个窗口时当前计数成为上一个窗口的计数，前进多个窗口时两个计数都已经过期
+            return new Window(target, target == index + 1 ? current : 0, 0);
+        }
+
+        /**
+         * 估算滑动窗口内的计数
+         *
+         * @param offset
+         *            当前时间在固定窗口内的偏移
+         * @param windowSize
+         *            窗口时长
+         *
+         * @return 估算的计数
+         */
+        private double estimate(long offset, long windowSize) {
+            return previous * (1 - (double)offset / windowSize) + current;
+        }
+    }
+}
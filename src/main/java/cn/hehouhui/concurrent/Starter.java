@@ -15,19 +15,17 @@ package cn.hehouhui.concurrent;
 import cn.hehouhui.constant.ExceptionProviderConst;
 import cn.hehouhui.util.Assert;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 /**
- * 启动器
+ * 启动器，启动、关闭与{@link #runWithStarted(Runnable)}之间的互斥由{@link LifecycleGate}保证，已经启动后的常规调用不会产生多核共享写
  *
  * @author HEHH
  * @date 2024/12/02
  */
 public class Starter {
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LifecycleGate gate = new LifecycleGate();
 
     private volatile boolean start;
 
@@ -38,7 +36,7 @@ public class Starter {
      *            用户启动任务，执行异常时启动失败
      */
     public void start(Runnable startTask) {
-        LockTask.runWithLock(lock.writeLock(), () -> {
+        gate.runExclusive(() -> {
             if (!start) {
                 startTask.run();
                 start = true;
@@ -53,7 +51,7 @@ public class Starter {
      *            用户关闭任务，执行异常时关闭失败
      */
     public void stop(Runnable stopTask) {
-        LockTask.runWithLock(lock.writeLock(), () -> {
+        gate.runExclusive(() -> {
             if (start) {
                 stopTask.run();
                 start = false;
@@ -61,6 +59,15 @@ public class Starter {
         });
     }
 
+    /**
+     * 当前服务是否已经启动
+     *
+     * @return true表示已经启动
+     */
+    public boolean isStarted() {
+        return start;
+    }
+
     /**
      * 在开启状态下执行任务，保证任务执行完成前服务不会关闭
      *
@@ -71,7 +78,7 @@ public class Starter {
      *             如果当前服务尚未开启，则抛出该异常
      */
     public void runWithStarted(Runnable task) throws IllegalStateException {
-        LockTask.runWithLock(lock.readLock(), () -> {
+        gate.runShared(() -> {
             Assert.assertTrue(start, "当前尚未启动，无法执行", ExceptionProviderConst.IllegalStateExceptionProvider);
             task.run();
         });
@@ -89,7 +96,7 @@ public class Starter {
      *             如果当前服务尚未开启，则抛出该异常
      */
     public <T> T runWithStarted(Supplier<T> task) throws IllegalStateException {
-        return LockTask.runWithLock(lock.readLock(), () -> {
+        return gate.runShared(() -> {
             Assert.assertTrue(start, "当前尚未启动，无法执行", ExceptionProviderConst.IllegalStateExceptionProvider);
             return task.get();
         });
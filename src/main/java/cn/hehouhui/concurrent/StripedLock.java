@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 分段锁，固定数量的锁按照key的hash选择，不同key大概率落到不同的锁上，相同key一定落到同一个锁上；
+ * <p>
+ * 内存占用固定，与key的数量无关，代价是不同key可能共用同一个锁（伪冲突），分段数越大伪冲突越少；
+ * <p>
+ * 需要同时锁定多个key时使用{@link #runWithLocks(Collection, Supplier)}，会按照固定顺序加锁，避免死锁
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class StripedLock {
+
+    /**
+     * 所有锁
+     */
+    private final Lock[] locks;
+
+    /**
+     * 分段掩码，分段数是2的幂
+     */
+    private final int mask;
+
+    /**
+     * 构造器
+     *
+     * @param stripes
+     *            分段数，必须大于0，会向上取整为2的幂
+     */
+    public StripedLock(final int stripes) {
+        Assert.assertTrue(stripes > 0 && stripes <= 1 << 30, "分段数必须在1到2^30之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 获取指定key对应的锁
+     *
+     * @param key
+     *            key
+     *
+     * @return 锁
+     */
+    public Lock get(Object key) {
+        return locks[indexOf(key)];
+    }
+
+    /**
+     * 锁定指定key运行任务，有返回值
+     *
+     * @param key
+     *            key
+     * @param task
+     *            任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     */
+    public <T> T runWithLock(Object key, Supplier<T> task) {
+        return LockTask.runWithLock(get(key), task);
+    }
+
+    /**
+     * 锁定指定key运行任务，无返回值
+     *
+     * @param key
+     *            key
+     * @param task
+     *            任务
+     */
+    public void runWithLock(Object key, Runnable task) {
+        LockTask.runWithLock(get(key), task);
+    }
+
+    /**
+     * 锁定指定key运行可被中断的任务
+     *
+     * @param key
+     *            key
+     * @param task
+     *            可被中断的任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     *
+     * @throws Exception
+     *             任务异常
+     */
+    public <T> T runInterruptedTaskWithLock(Object key, Callable<T> task) throws Exception {
+        return LockTask.runInterruptedTaskWithLock(get(key), task);
+    }
+
+    /**
+     * 同时锁定多个key运行任务，按照分段序号从小到大加锁，所以任意两个调用之间不会死锁；多个key落到同一个分段时该分段只加锁一次
+     *
+     * @param keys
+     *            所有key
+     * @param task
+     *            任务
+     * @param <T>
+     *            结果类型
+     *
+     * @return 结果
+     */
+    public <T> T runWithLocks(Collection<?> keys, Supplier<T> task) {
+        Assert.notNull(keys, "要锁定的key不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(task, "任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        int[] indexes = keys.stream().mapToInt(this::indexOf).sorted().distinct().toArray();
+        int locked = 0;
+        try {
+            for (final int index : indexes) {
+                locks[index].lock();
+                locked++;
+            }
+            return task.get();
+        } finally {
+            // 按照加锁的相反顺序解锁
+            for (int i = locked - 1; i >= 0; i--) {
+                locks[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * 分段数
+     *
+     * @return 分段数
+     */
+    public int size() {
+        return locks.length;
+    }
+
+    /**
+     * 计算key对应的分段序号，对hash做一次扰动，避免低位相同的hash集中到同一个分段
+     *
+     * @param key
+     *            key
+     *
+     * @return 分段序号
+     */
+    private int indexOf(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & mask;
+    }
+}
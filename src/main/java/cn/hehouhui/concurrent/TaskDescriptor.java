@@ -16,6 +16,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 任务描述
  *
@@ -33,7 +35,7 @@ public class TaskDescriptor {
     private String id;
 
     /**
-     * 任务执行时间间隔，单位毫秒，执行间隔从上一次执行完成后开始计算；
+     * 任务执行时间间隔，单位见{@link #executeIntervalUnit}，执行间隔从上一次执行完成后开始计算；指定了{@link #cron}时忽略该值
      */
     private long executeInterval;
 
@@ -47,7 +49,46 @@ public class TaskDescriptor {
      */
     private Boolean mergeScheduler;
 
+    /**
+     * cron触发规则，为空表示按照{@link #executeInterval}固定间隔执行，不为空时任务上一次执行完成后按照cron计算下次执行时间；
+     */
+    private CronExpression cron;
+
+    /**
+     * 任务已经分发到线程池但是还未开始执行时，是否跳过新的触发；true表示跳过，此时排队中的那次执行会覆盖新的触发
+     */
+    private boolean skipIfQueued;
+
+    /**
+     * 任务执行时间间隔单位，为空表示毫秒，需要亚毫秒级间隔时可以指定为微秒或者纳秒
+     */
+    private TimeUnit executeIntervalUnit;
+
     public TaskDescriptor(final String id, final long executeInterval, final Runnable task) {
         this(id, executeInterval, task, null);
     }
+
+    public TaskDescriptor(final String id, final long executeInterval, final TimeUnit executeIntervalUnit,
+        final Runnable task) {
+        this(id, executeInterval, task, null, null, false, executeIntervalUnit);
+    }
+
+    public TaskDescriptor(final String id, final long executeInterval, final Runnable task,
+        final Boolean mergeScheduler) {
+        this(id, executeInterval, task, mergeScheduler, null);
+    }
+
+    public TaskDescriptor(final String id, final long executeInterval, final Runnable task,
+        final Boolean mergeScheduler, final CronExpression cron) {
+        this(id, executeInterval, task, mergeScheduler, cron, false);
+    }
+
+    public TaskDescriptor(final String id, final long executeInterval, final Runnable task,
+        final Boolean mergeScheduler, final CronExpression cron, final boolean skipIfQueued) {
+        this(id, executeInterval, task, mergeScheduler, cron, skipIfQueued, null);
+    }
+
+    public TaskDescriptor(final String id, final CronExpression cron, final Runnable task) {
+        this(id, 0, task, null, cron);
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.StrUtil;
+import lombok.CustomLog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务依赖图（DAG），图中每个节点是一个任务，节点可以声明依赖的其他节点；执行时没有依赖关系的分支并行执行，每个节点在其最后一个依赖节点执行完成后立即执行；
+ * <p>
+ * 注意：
+ * <li>节点依赖的节点必须先添加，所以图在构造时就保证了无环；</li>
+ * <li>某个节点执行失败时，直接或间接依赖它的节点都不会执行，其他分支不受影响，整个图的执行结果为失败；</li>
+ * <li>同一个图可以多次执行，每次执行相互独立；</li>
+ * <li>所有节点都在调用{@link #run(Executor)}的线程的上下文（{@link ContextSnapshot}）中执行；</li>
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@CustomLog
+public class TaskGraph {
+
+    /**
+     * 通过调度系统执行节点时，节点临时任务ID的前缀
+     */
+    private static final String SCHEDULER_TASK_PREFIX = "__task_graph__";
+
+    /**
+     * 节点临时任务的执行间隔，临时任务只通过主动调度执行一次，执行完成后就会移除，所以间隔只需要足够大即可
+     */
+    private static final long SCHEDULER_TASK_INTERVAL = TimeUnit.DAYS.toMillis(365);
+
+    /**
+     * 节点临时任务ID序列，保证同一个图并发执行时临时任务ID也不会冲突
+     */
+    private static final AtomicLong SCHEDULER_TASK_SEQUENCE = new AtomicLong();
+
+    /**
+     * 图ID
+     */
+    private final String id;
+
+    /**
+     * 图中所有节点，按照添加顺序排列，添加顺序同时也是一个合法的拓扑顺序
+     */
+    private final Map<String, Node> nodes;
+
+    public TaskGraph(final String id) {
+        Assert.notBlank(id, "任务图ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.id = id;
+        this.nodes = new LinkedHashMap<>();
+    }
+
+    /**
+     * 添加一个节点
+     *
+     * @param nodeId
+     *            节点ID，图内唯一
+     * @param task
+     *            节点任务
+     * @param dependencies
+     *            依赖的节点ID，依赖的节点必须已经添加到图中
+     *
+     * @return 当前任务图
+     */
+    public synchronized TaskGraph addNode(String nodeId, Runnable task, String... dependencies) {
+        Assert.notBlank(nodeId, "任务图节点ID不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.notNull(task, "任务图节点任务不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertFalse(nodes.containsKey(nodeId),
+            () -> StrUtil.format("任务图 [{}] 中节点 [{}] 已经存在", id, nodeId),
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        Node[] depends = new Node[dependencies == null ? 0 : dependencies.length];
+        for (int i = 0; i < depends.length; i++) {
+            String dependency = dependencies[i];
+            depends[i] = nodes.get(dependency);
+            Assert.notNull(depends[i], () -> StrUtil.format("任务图 [{}] 中节点 [{}] 依赖的节点 [{}] 不存在，请先添加依赖节点", id,
+                nodeId, dependency), ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        }
+
+        nodes.put(nodeId, new Node(nodeId, task, depends));
+        return this;
+    }
+
+    /**
+     * 获取图ID
+     *
+     * @return 图ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 在指定线程池中执行整个图，该方法不会阻塞
+     *
+     * @param executor
+     *            节点执行使用的线程池
+     *
+     * @return 整个图的执行结果，所有节点执行完成（或者因为依赖失败被跳过）后完成，存在节点执行失败时以第一个失败原因异常完成
+     */
+    public synchronized CompletableFuture<Void> run(Executor executor) {
+        Assert.notNull(executor, "任务图执行线程池不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        Map<Node, CompletableFuture<Void>> futures = new LinkedHashMap<>((int)(nodes.size() / 0.75f) + 1);
+        ContextSnapshot context = ContextSnapshot.capture();
+        // 按照拓扑顺序构建，保证构建某个节点时其依赖节点的future已经存在
+        for (final Node node : nodes.values()) {
+            CompletableFuture<Void> future;
+            if (node.dependencies.length == 0) {
+                future = CompletableFuture.runAsync(context.wrap(() -> runNode(node)), executor);
+            } else {
+                CompletableFuture<?>[] depends = new CompletableFuture<?>[node.dependencies.length];
+                for (int i = 0; i < depends.length; i++) {
+                    depends[i] = futures.get(node.dependencies[i]);
+                }
+                CompletableFuture<Void> prerequisite =
+                    depends.length == 1 ? futures.get(node.dependencies[0]) : CompletableFuture.allOf(depends);
+                future = prerequisite.thenRunAsync(context.wrap(() -> runNode(node)), executor);
+            }
+            futures.put(node, future);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 将调度系统适配为执行任务图的线程池，每个节点注册为一个临时任务并立即主动调度，执行完成后移除该临时任务；
+     * <p>
+     * 适用于没有直接暴露任务执行线程池的{@link SchedulerSystem}实现
+     *
+     * @param system
+     *            调度系统
+     * @param graphId
+     *            图ID，用于生成临时任务ID
+     *
+     * @return 通过调度系统执行任务的线程池
+     */
+    static Executor schedulerExecutor(SchedulerSystem system, String graphId) {
+        Assert.notNull(system, "任务图执行使用的调度系统不能为空", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        return command -> {
+            String taskId = SCHEDULER_TASK_PREFIX + graphId + "_" + SCHEDULER_TASK_SEQUENCE.incrementAndGet();
+            AtomicBoolean executed = new AtomicBoolean();
+            Runnable once = () -> {
+                // 临时任务只执行一次，即使调度系统按照间隔再次触发也不会重复执行节点
+                if (!executed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    system.removeTask(taskId);
+                }
+            };
+            system.registerTask(new TaskDescriptor(taskId, SCHEDULER_TASK_INTERVAL, once));
+            system.scheduler(taskId);
+        };
+    }
+
+    /**
+     * 执行单个节点
+     *
+     * @param node
+     *            节点
+     */
+    private void runNode(Node node) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("任务图 [{}] 开始执行节点 [{}]", id, node.id);
+        }
+
+        try {
+            node.task.run();
+        } catch (Throwable throwable) {
+            LOGGER.warn(throwable, "任务图 [{}] 节点 [{}] 执行失败，依赖该节点的节点将不会执行", id, node.id);
+            throw throwable;
+        }
+    }
+
+    /**
+     * 图节点
+     */
+    private static class Node {
+
+        /**
+         * 节点ID
+         */
+        private final String id;
+
+        /**
+         * 节点任务
+         */
+        private final Runnable task;
+
+        /**
+         * 依赖的节点
+         */
+        private final Node[] dependencies;
+
+        private Node(final String id, final Runnable task, final Node[] dependencies) {
+            this.id = id;
+            this.task = task;
+            this.dependencies = dependencies;
+        }
+    }
+}
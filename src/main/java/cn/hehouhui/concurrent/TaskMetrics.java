@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个调度任务的运行指标，所有记录方法都是无锁的；调度器关闭指标时不会创建该对象，也就不会产生任何记录开销
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class TaskMetrics {
+
+    /**
+     * 任务被触发的次数（定时到期或者主动调度）
+     */
+    private final LongAdder triggered;
+
+    /**
+     * 任务实际执行的次数
+     */
+    private final LongAdder executed;
+
+    /**
+     * 任务执行失败的次数
+     */
+    private final LongAdder failed;
+
+    /**
+     * 因为合并调度而被合并掉（没有实际执行）的触发次数
+     */
+    private final LongAdder merged;
+
+    /**
+     * 任务分发被拒绝的次数
+     */
+    private final LongAdder rejected;
+
+    /**
+     * 因为任务已经在线程池中排队而被跳过的触发次数
+     */
+    private final LongAdder skipped;
+
+    /**
+     * 任务实际开始执行时间相对计划执行时间的延迟
+     */
+    private final LatencyHistogram lag;
+
+    /**
+     * 任务单次执行耗时
+     */
+    private final LatencyHistogram runTime;
+
+    public TaskMetrics() {
+        this.triggered = new LongAdder();
+        this.executed = new LongAdder();
+        this.failed = new LongAdder();
+        this.merged = new LongAdder();
+        this.rejected = new LongAdder();
+        this.skipped = new LongAdder();
+        this.lag = new LatencyHistogram();
+        this.runTime = new LatencyHistogram();
+    }
+
+    /**
+     * 记录一次触发
+     */
+    public void recordTrigger() {
+        triggered.increment();
+    }
+
+    /**
+     * 记录被合并的触发次数
+     *
+     * @param count
+     *            被合并的触发次数
+     */
+    public void recordMerged(long count) {
+        if (count > 0) {
+            merged.add(count);
+        }
+    }
+
+    /**
+     * 记录一次分发被拒绝
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * 记录一次因为任务已经在排队而被跳过的触发
+     */
+    public void recordSkipped() {
+        skipped.increment();
+    }
+
+    /**
+     * 记录任务开始执行时相对计划执行时间的延迟
+     *
+     * @param micros
+     *            延迟，单位微秒
+     */
+    public void recordLag(long micros) {
+        lag.record(micros);
+    }
+
+    /**
+     * 记录一次任务执行
+     *
+     * @param micros
+     *            执行耗时，单位微秒
+     * @param success
+     *            是否执行成功
+     */
+    public void recordRun(long micros, boolean success) {
+        executed.increment();
+        if (!success) {
+            failed.increment();
+        }
+        runTime.record(micros);
+    }
+
+    /**
+     * 获取指标快照
+     *
+     * @param id
+     *            任务ID
+     *
+     * @return 指标快照
+     */
+    public Snapshot snapshot(String id) {
+        return new Snapshot(id, triggered.sum(), executed.sum(), failed.sum(), merged.sum(), rejected.sum(),
+            skipped.sum(), lag.snapshot(), runTime.snapshot());
+    }
+
+    /**
+     * 任务指标快照
+     */
+    @Getter
+    @ToString
+    public static class Snapshot {
+
+        /**
+         * 任务ID
+         */
+        private final String id;
+
+        /**
+         * 任务被触发的次数（定时到期或者主动调度）
+         */
+        private final long triggered;
+
+        /**
+         * 任务实际执行的次数
+         */
+        private final long executed;
+
+        /**
+         * 任务执行失败的次数
+         */
+        private final long failed;
+
+        /**
+         * 因为合并调度而被合并掉（没有实际执行）的触发次数
+         */
+        private final long merged;
+
+        /**
+         * 任务分发被拒绝的次数
+         */
+        private final long rejected;
+
+        /**
+         * 因为任务已经在线程池中排队而被跳过的触发次数
+         */
+        private final long skipped;
+
+        /**
+         * 任务实际开始执行时间相对计划执行时间的延迟，单位微秒
+         */
+        private final LatencyHistogram.Snapshot lag;
+
+        /**
+         * 任务单次执行耗时，单位微秒
+         */
+        private final LatencyHistogram.Snapshot runTime;
+
+        Snapshot(String id, long triggered, long executed, long failed, long merged, long rejected, long skipped,
+            LatencyHistogram.Snapshot lag, LatencyHistogram.Snapshot runTime) {
+            this.id = id;
+            this.triggered = triggered;
+            this.executed = executed;
+            this.failed = failed;
+            this.merged = merged;
+            this.rejected = rejected;
+            this.skipped = skipped;
+            this.lag = lag;
+            this.runTime = runTime;
+        }
+    }
+}
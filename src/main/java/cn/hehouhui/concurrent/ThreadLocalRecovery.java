@@ -1,19 +1,25 @@
 package cn.hehouhui.concurrent;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * 线程本地恢复 子实例尽量为静态常量 减少类的构建次数
- * 
+ *
  * @author HEHH
  * @date 2024/05/30
+ * @deprecated 值不会传递到线程池线程中，并且{@link InheritableThreadLocal}会在每次创建线程时复制值；请使用{@link ContextKey}，
+ *             通过{@link ContextSnapshot#wrap(Runnable)}跨线程传递上下文
  */
+@Deprecated
 public abstract class ThreadLocalRecovery<T> {
 
-    // 所有实例
-    private static final List<ThreadLocalRecovery<?>> instances = new ArrayList<>(64);
+    // 所有实例，弱引用持有，实例不再使用时自动移除
+    private static final Set<ThreadLocalRecovery<?>> instances =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     public final ThreadLocal<T> threadLocal = new InheritableThreadLocal<>();
 
@@ -25,7 +31,12 @@ public abstract class ThreadLocalRecovery<T> {
      * 重置
      */
     public static void reset() {
-        instances.stream().filter(Objects::nonNull).forEach(ThreadLocalRecovery::clean);
+        // 先复制再遍历，避免遍历期间其他线程新增实例
+        List<ThreadLocalRecovery<?>> copy;
+        synchronized (instances) {
+            copy = new ArrayList<>(instances);
+        }
+        copy.forEach(ThreadLocalRecovery::clean);
     }
 
     /**
@@ -34,20 +45,4 @@ public abstract class ThreadLocalRecovery<T> {
     void clean() {
         threadLocal.remove();
     }
-
-    /**
-     * 被垃圾回收器 回收时调用
-     *
-     * @throws Throwable
-     *             可丢弃
-     */
-    @Override
-    protected void finalize() throws Throwable {
-        try {
-            instances.remove(this);
-        } catch (Exception ignored) {
-        }
-
-        super.finalize();
-    }
 }
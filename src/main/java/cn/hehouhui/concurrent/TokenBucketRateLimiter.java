@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import cn.hehouhui.constant.ExceptionProviderConst;
+import cn.hehouhui.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶限流器，桶容量决定允许的突发量，令牌按照固定速率补充；
+ * <p>
+ * 实现上不保存令牌数，而是只保存一个"桶被填满的时间点"（{@link System#nanoTime()}时钟），令牌数由当前时间与该时间点的差值按需计算，获取令牌就是将该时间点向后推，
+ * 整个过程只有一次CAS，没有锁也没有后台补充线程；令牌不足时可以预定未来的令牌，调用方只需要等待到令牌补充的时间即可
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    /**
+     * 生成一个令牌需要的时间，单位纳秒
+     */
+    private final long interval;
+
+    /**
+     * 桶容量
+     */
+    private final int capacity;
+
+    /**
+     * 桶从空到满需要的时间，单位纳秒
+     */
+    private final long fillTime;
+
+    /**
+     * 桶被填满的时间点，{@link System#nanoTime()}时钟；小于等于当前时间表示桶是满的
+     */
+    private final AtomicLong fullTime;
+
+    /**
+     * 构造器，桶初始是满的
+     *
+     * @param permitsPerSecond
+     *            每秒补充的令牌数，必须大于0
+     * @param capacity
+     *            桶容量，即允许的最大突发量，必须大于0
+     */
+    public TokenBucketRateLimiter(final double permitsPerSecond, final int capacity) {
+        Assert.assertTrue(permitsPerSecond > 0, "每秒补充的令牌数必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        Assert.assertTrue(capacity > 0, "令牌桶容量必须大于0", ExceptionProviderConst.IllegalArgumentExceptionProvider);
+        this.interval = Math.max((long)(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond), 1);
+        this.capacity = capacity;
+        this.fillTime = interval * capacity;
+        this.fullTime = new AtomicLong(System.nanoTime());
+    }
+
+    @Override
+    public long reserve(final int permits, final long maxWait) {
+        Assert.assertTrue(permits > 0 && permits <= capacity, "申请的令牌数必须在1到桶容量之间",
+            ExceptionProviderConst.IllegalArgumentExceptionProvider);
+
+        long cost = interval * permits;
+        while (true) {
+            long current = fullTime.get();
+            long now = System.nanoTime();
+            // 桶满的时间点早于当前时间说明桶是满的，多出来的令牌丢弃，从当前时间开始计算
+            long base = current - now < 0 ? now : current;
+            long next = base + cost;
+            // 桶满的时间点距离现在超过桶的填充时间，说明令牌不足，需要等待超出的部分
+            long wait = Math.max(next - now - fillTime, 0);
+            if (wait > maxWait) {
+                return -1;
+            }
+            if (fullTime.compareAndSet(current, next)) {
+                return wait;
+            }
+        }
+    }
+
+    @Override
+    public long retryAfter(final int permits) {
+        long now = System.nanoTime();
+        long current = fullTime.get();
+        long base = current - now < 0 ? now : current;
+        return Math.max(base + interval * permits - now - fillTime, 0);
+    }
+
+    /**
+     * 获取当前可用的令牌数
+     *
+     * @return 可用令牌数，存在预定的未来令牌时返回0
+     */
+    public int availablePermits() {
+        long remaining = fullTime.get() - System.nanoTime();
+        if (remaining <= 0) {
+            return capacity;
+        }
+        return (int)Math.max((fillTime - remaining) / interval, 0);
+    }
+
+    /**
+     * 获取桶容量
+     *
+     * @return 桶容量
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
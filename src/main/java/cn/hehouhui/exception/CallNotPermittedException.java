@@ -0,0 +1,20 @@
+package cn.hehouhui.exception;
+
+import java.io.Serial;
+
+/**
+ * 调用被拒绝异常，熔断器打开或者隔离舱已满时抛出；该异常用于快速失败，不收集堆栈
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 3846209731765291870L;
+
+    public CallNotPermittedException(final String message) {
+        super(message, null, false, false);
+    }
+
+}
@@ -1,5 +1,7 @@
 package cn.hehouhui.function;
 
+import cn.hehouhui.concurrent.RateLimiter;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -35,6 +37,9 @@ public class BatchQuery<ID, T> {
     /** 锁 */
     private final ReentrantLock lock;
 
+    /** 查询限流器，每次查询前获取1个许可，为空表示不限流 */
+    private RateLimiter rateLimiter;
+
     public BatchQuery(BiFunction<Integer, ID, List<T>> queryFunc, Function<T, ID> mapper) {
         this(1000, queryFunc, mapper);
     }
@@ -89,6 +94,21 @@ public class BatchQuery<ID, T> {
         });
     }
 
+    /**
+     * 查询限流，每次调用查询函数前获取1个许可，许可不足时阻塞等待
+     *
+     * @param rateLimiter
+     *            限流器，为空表示不限流
+     *
+     * @return {@link BatchQuery }<{@link ID },{@link T }>
+     */
+    public BatchQuery<ID, T> rateLimiter(RateLimiter rateLimiter) {
+        return concurrent(() -> {
+            this.rateLimiter = rateLimiter;
+            return this;
+        });
+    }
+
     /**
      * 获取查询结果 （无限查询直到查不到为止）
      *
@@ -212,6 +232,10 @@ public class BatchQuery<ID, T> {
             // 循环进行查询操作
             do {
                 try {
+                    // 限流
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
                     // 执行查询操作并获取结果列表
                     List<T> rows = this.queryFunc.apply(batch, idx.get());
                     boolean notEmpty = rows != null && !rows.isEmpty();
@@ -231,6 +255,11 @@ public class BatchQuery<ID, T> {
                         hasNext = false;
                     }
                 } catch (Throwable e) {
+                    if (e instanceof InterruptedException) {
+                        // 等待限流时被中断，恢复中断标记并停止查询
+                        Thread.currentThread().interrupt();
+                        hasNext = false;
+                    }
                     // 如果异常消费者不为空，则使用异常消费者处理异常
                     if (throwableConsumer != null) {
                         throwableConsumer.accept(e);
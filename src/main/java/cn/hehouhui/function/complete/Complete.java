@@ -1,5 +1,6 @@
 package cn.hehouhui.function.complete;
 
+import cn.hehouhui.concurrent.ContextSnapshot;
 import cn.hehouhui.util.EmptyUtil;
 
 import java.util.ArrayList;
@@ -159,9 +160,10 @@ public class Complete<E> {
         if (executor == null) {
             actuator.stream().map(Prepare::finish).reduce(Consumer::andThen).ifPresent(collection::forEach);
         } else {
-            // 使用CompletableFuture来并行执行这些操作，以提高效率
-            List<CompletableFuture<Consumer<E>>> futures =
-                actuator.stream().map(prepare -> CompletableFuture.supplyAsync(prepare::finish, executor)).toList();
+            // 使用CompletableFuture来并行执行这些操作，以提高效率，同时将调用线程的上下文传递到执行线程
+            ContextSnapshot context = ContextSnapshot.capture();
+            List<CompletableFuture<Consumer<E>>> futures = actuator.stream()
+                .map(prepare -> CompletableFuture.supplyAsync(context.wrapSupplier(prepare::finish), executor)).toList();
             futures.stream().map(CompletableFuture::join).reduce(Consumer::andThen).ifPresent(collection::forEach);
         }
 
@@ -541,23 +541,22 @@ public class ClassUtil {
         } else if (srcType.equals(targetType)) {
             return nowGap;
         } else if (targetType.isInterface()) {
-            // 接口要特殊处理
-            int min = Integer.MIN_VALUE;
-
+            // 接口要特殊处理，有可能存在这种情况，有一个接口A，继承接口B，B继承接口C，C继承接口D，同时B也继承接口D，那么A到D就有两个gap，
+            // 一个是3，一个是2，选用小的；另外接口也可能是通过父类实现的，父类这条路径也要计算
+            int min = Integer.MAX_VALUE;
             for (Class<?> anInterface : srcType.getInterfaces()) {
-                // 先判断该接口是否是指定类型，
-                if (anInterface.equals(targetType)) {
-                    // 如果是，直接min = 1，退出循环
-                    min = 1;
-                    break;
-                } else if (targetType.isAssignableFrom(anInterface)) {
-                    // 如果不是，则判断接口是不是目标类的子类，如果是，则递归计算，然后选用上次选出来最小的，因为有可能存在这种情况，有一个接
-                    // 口A，继承接口B，B继承接口C，C继承接口D，同时B也继承接口D，那么A到D就有两个gap，一个是3，一个是2，选用小的
-                    min = Math.min(min, calcGap(targetType, anInterface, nowGap));
+                if (targetType.isAssignableFrom(anInterface)) {
+                    min = Math.min(min, calcGap(targetType, anInterface, nowGap + 1));
                 }
             }
-
-            return min + nowGap;
+            Class<?> superclass = srcType.getSuperclass();
+            if (superclass != null && targetType.isAssignableFrom(superclass)) {
+                min = Math.min(min, calcGap(targetType, superclass, nowGap + 1));
+            }
+            return min;
+        } else if (srcType.getSuperclass() == null) {
+            // 接口没有父类，此时targetType只可能是Object，接口视为直接继承Object
+            return nowGap + 1 + OBJECT_DEEP;
         } else {
             return calcGap(targetType, srcType.getSuperclass(), nowGap + 1);
         }
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.reflect.bean;
+
+import cn.hehouhui.constant.ErrorCodeEnum;
+import cn.hehouhui.exception.CommonException;
+import cn.hehouhui.reflect.type.JavaTypeUtil;
+import cn.hehouhui.util.Assert;
+import cn.hehouhui.util.ReflectUtil;
+import lombok.CustomLog;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * bean复制器，将一对（源类型，目标类型）的复制计划编译一次后反复使用，规则与{@link BeanUtil#copyFromObjToObj(Object, Object)}一致：
+ * <li>源对象的所有字段（包含静态字段）按字段名匹配目标字段，匹配不到时按源字段上的{@link Alias}匹配；</li>
+ * <li>源字段值为null时跳过；</li>
+ * <li>类型不兼容并且目标字段不是原始类型时使用{@link TypeConverterRegistry}中的转换器转换，找不到转换器时跳过；</li>
+ * <li>写入目标字段时优先调用set方法，写入失败时忽略；</li>
+ * <p>
+ * 字段匹配、转换器查找都在创建复制计划时完成（源字段类型是final类型时转换器直接绑定，否则运行时按实际类型查找），每个字段的读取、转换、写入都是一个
+ * {@link MethodHandle}；然后通过byte-buddy为每一对类型生成一个{@link BeanCopier}子类，这些MethodHandle保存在子类的static final字段中，
+ * {@link #copy(Object, Object)}中每个字段都是一段独立的读取、转换、写入代码，JIT可以把MethodHandle当作常量直接内联到字段读写；
+ * 当前环境没有byte-buddy或者生成失败时退化为按复制计划循环复制
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@CustomLog
+public abstract class BeanCopier {
+
+    /**
+     * 转换结果为该值时表示找不到转换器，跳过该字段
+     */
+    protected static final Object SKIP = new Object();
+
+    /**
+     * 生成的子类初始化时从这里获取复制计划，依次为读取、转换、写入的MethodHandle，没有转换的字段对应位置为null
+     */
+    protected static final ThreadLocal<MethodHandle[][]> PLAN = new ThreadLocal<>();
+
+    /**
+     * 超过该字段数时不生成代码，生成的方法过大时JIT不会编译，反而比循环更慢
+     */
+    private static final int MAX_GENERATED_FIELDS = 200;
+
+    /**
+     * {@link TypeConverter#convert(Object, Annotation[], Class)}
+     */
+    private static final MethodHandle CONVERT;
+
+    /**
+     * {@link #lookup(Object, Annotation[], Class)}
+     */
+    private static final MethodHandle LOOKUP;
+
+    /**
+     * {@link PropertyEditor#write(Object, Object)}
+     */
+    private static final MethodHandle WRITE;
+
+    /**
+     * {@link ReflectUtil#getFieldValue(Object, Field)}
+     */
+    private static final MethodHandle GET_FIELD_VALUE;
+
+    /**
+     * 复制器缓存，复制计划中绑定了创建时查找到的转换器，{@link TypeConverterRegistry}注册新的转换器后整体替换
+     */
+    private static volatile Copiers copiers = new Copiers(TypeConverterRegistry.version());
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            CONVERT = lookup.findVirtual(TypeConverter.class, "convert",
+                MethodType.methodType(Object.class, Object.class, Annotation[].class, Class.class));
+            LOOKUP = lookup.findStatic(BeanCopier.class, "lookup",
+                MethodType.methodType(Object.class, Object.class, Annotation[].class, Class.class));
+            WRITE = lookup.findVirtual(PropertyEditor.class, "write",
+                MethodType.methodType(void.class, Object.class, Object.class));
+            GET_FIELD_VALUE = lookup.findStatic(ReflectUtil.class, "getFieldValue",
+                MethodType.methodType(Object.class, Object.class, Field.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 获取复制器，同一对类型只会创建一次
+     *
+     * @param sourceClass
+     *            源类型
+     * @param targetClass
+     *            目标类型
+     *
+     * @return 复制器
+     */
+    public static BeanCopier get(Class<?> sourceClass, Class<?> targetClass) {
+        Assert.argNotNull(sourceClass, "sourceClass");
+        Assert.argNotNull(targetClass, "targetClass");
+        Copiers current = copiers;
+        int version = TypeConverterRegistry.version();
+        if (current.version != version) {
+            // 注册了新的转换器，之前的复制计划可能绑定了旧的转换器或者跳过了当时找不到转换器的字段
+            current = new Copiers(version);
+            copiers = current;
+        }
+        return current.cache.get(sourceClass).get(targetClass);
+    }
+
+    /**
+     * 将源对象的字段复制到目标对象
+     *
+     * @param source
+     *            源对象，必须是创建复制器时的源类型
+     * @param target
+     *            目标对象，必须是创建复制器时的目标类型，目标类型是{@link Class}时表示复制到该类的静态字段
+     */
+    public abstract void copy(Object source, Object target);
+
+    /**
+     * 创建复制计划并生成复制器
+     *
+     * @param sourceClass
+     *            源类型
+     * @param targetClass
+     *            目标类型
+     *
+     * @return 复制器
+     */
+    private static BeanCopier create(Class<?> sourceClass, Class<?> targetClass) {
+        BeanUtil.BeanMetadata targetMetadata = BeanUtil.metadata(targetClass);
+        List<MethodHandle> readers = new ArrayList<>();
+        List<MethodHandle> converters = new ArrayList<>();
+        List<MethodHandle> writers = new ArrayList<>();
+
+        for (BeanUtil.BeanProperty srcProperty : BeanUtil.metadata(sourceClass).properties) {
+            Field srcField = srcProperty.field;
+            BeanUtil.BeanProperty targetProperty = targetMetadata.property(srcField.getName());
+            if (targetProperty == null && srcProperty.alias != null) {
+                targetProperty = targetMetadata.property(srcProperty.alias.value());
+            }
+            // 目标字段不存在
+            if (targetProperty == null) {
+                continue;
+            }
+
+            Class<?> srcType = MethodType.methodType(srcField.getType()).wrap().returnType();
+            Class<?> targetType = targetProperty.field.getType();
+            MethodHandle converter = null;
+            // 目标类型是原始类型时直接写入（装箱拆箱太麻烦，这里不处理），类型兼容时也不需要转换
+            if (!JavaTypeUtil.isGeneralType(targetType) && !targetType.isAssignableFrom(srcType)) {
+                if (srcField.getType().isPrimitive() || Modifier.isFinal(srcType.getModifiers())) {
+                    // 源字段的值只可能是声明的类型，直接绑定转换器，找不到转换器时该字段永远无法注入
+                    TypeConverter bound = TypeConverterRegistry.findConverter(srcType, targetType);
+                    if (bound == null) {
+                        continue;
+                    }
+                    converter = MethodHandles.insertArguments(CONVERT.bindTo(bound), 1, srcProperty.annotations,
+                        targetType);
+                } else {
+                    converter = MethodHandles.insertArguments(LOOKUP, 1, srcProperty.annotations, targetType);
+                }
+            }
+
+            MethodHandle reader = GeneratedPropertyEditor.fieldReader(srcField);
+            readers.add(reader == null ? MethodHandles.insertArguments(GET_FIELD_VALUE, 1, srcField) : reader);
+            converters.add(converter);
+            writers.add(writer(targetProperty.editor));
+        }
+
+        MethodHandle[][] plan = {readers.toArray(new MethodHandle[0]), converters.toArray(new MethodHandle[0]),
+            writers.toArray(new MethodHandle[0])};
+        if (plan[0].length > 0 && plan[0].length <= MAX_GENERATED_FIELDS) {
+            try {
+                return BeanCopierGenerator.generate(plan);
+            } catch (Throwable throwable) {
+                // byte-buddy是可选依赖，不存在时会抛出NoClassDefFoundError
+                LOGGER.debug(throwable, "生成[{}] -> [{}]的复制器失败，使用默认实现", sourceClass, targetClass);
+            }
+        }
+        return new PlanCopier(plan);
+    }
+
+    /**
+     * 获取字段编辑器的写入MethodHandle
+     *
+     * @param editor
+     *            字段编辑器
+     *
+     * @return 类型为(Object, Object)void的MethodHandle
+     */
+    private static MethodHandle writer(PropertyEditor editor) {
+        if (editor instanceof GeneratedPropertyEditor) {
+            try {
+                return ((GeneratedPropertyEditor)editor).writeHandle();
+            } catch (Throwable throwable) {
+                // 无法直接访问时通过编辑器写入
+            }
+        }
+        return WRITE.bindTo(editor);
+    }
+
+    /**
+     * 按照源字段值的实际类型查找转换器并转换
+     *
+     * @param value
+     *            源字段值
+     * @param annotations
+     *            源字段上的注解
+     * @param targetType
+     *            目标类型
+     *
+     * @return 转换后的值，找不到转换器时返回{@link #SKIP}
+     */
+    private static Object lookup(Object value, Annotation[] annotations, Class<?> targetType) {
+        if (targetType.isAssignableFrom(value.getClass())) {
+            return value;
+        }
+        TypeConverter converter = TypeConverterRegistry.findConverter(value.getClass(), targetType);
+        return converter == null ? SKIP : converter.convert(value, annotations, targetType);
+    }
+
+    /**
+     * 按复制计划循环复制的复制器
+     */
+    private static final class PlanCopier extends BeanCopier {
+
+        /**
+         * 源字段的读取MethodHandle
+         */
+        private final MethodHandle[] readers;
+
+        /**
+         * 转换MethodHandle，与{@link #readers}一一对应，为null时表示不需要转换
+         */
+        private final MethodHandle[] converters;
+
+        /**
+         * 目标字段的写入MethodHandle，与{@link #readers}一一对应
+         */
+        private final MethodHandle[] writers;
+
+        private PlanCopier(final MethodHandle[][] plan) {
+            this.readers = plan[0];
+            this.converters = plan[1];
+            this.writers = plan[2];
+        }
+
+        @Override
+        public void copy(final Object source, final Object target) {
+            for (int i = 0; i < readers.length; i++) {
+                Object value;
+                try {
+                    value = readers[i].invokeExact(source);
+                    if (value != null && converters[i] != null) {
+                        value = converters[i].invokeExact(value);
+                    }
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable throwable) {
+                    throw new CommonException(ErrorCodeEnum.UNKNOWN_EXCEPTION, "复制字段失败", throwable);
+                }
+                if (value == null || value == SKIP) {
+                    continue;
+                }
+                try {
+                    writers[i].invokeExact(target, value);
+                } catch (Throwable throwable) {
+                    // 忽略异常
+                }
+            }
+        }
+    }
+
+    /**
+     * 某个注册表版本下的复制器缓存
+     */
+    private static final class Copiers {
+
+        /**
+         * 创建时的注册表版本
+         */
+        private final int version;
+
+        /**
+         * 复制器缓存，外层key为源类型，内层key为目标类型；内层同样使用ClassValue，复制器（以及其中引用目标类型的MethodHandle）挂在目标类型上，
+         * 源类型不会强引用目标类型，父加载器中的源类型不会导致子加载器无法卸载
+         */
+        private final ClassValue<ClassValue<BeanCopier>> cache = new ClassValue<>() {
+
+            @Override
+            protected ClassValue<BeanCopier> computeValue(final Class<?> sourceClass) {
+                return new ClassValue<>() {
+
+                    @Override
+                    protected BeanCopier computeValue(final Class<?> targetClass) {
+                        return create(sourceClass, targetClass);
+                    }
+                };
+            }
+        };
+
+        private Copiers(final int version) {
+            this.version = version;
+        }
+    }
+}
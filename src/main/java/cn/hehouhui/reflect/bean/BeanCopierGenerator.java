@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.reflect.bean;
+
+import cn.hehouhui.proxy.ProxyClassLoader;
+import cn.hehouhui.util.CollUtil;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.asm.AsmVisitorWrapper;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 使用byte-buddy生成{@link BeanCopier}子类，复制计划中的每个MethodHandle保存为子类的一个static final字段，
+ * 生成的{@link BeanCopier#copy(Object, Object)}对每个字段展开为：
+ *
+ * <pre>
+ * Object value = (Object)READER_i.invokeExact(source);
+ * if (value != null) {
+ *     value = (Object)CONVERTER_i.invokeExact(value); // 只有需要转换的字段才有这一步
+ *     if (value != SKIP) {
+ *         try {
+ *             WRITER_i.invokeExact(target, value);
+ *         } catch (Throwable ignore) {
+ *         }
+ *     }
+ * }
+ * </pre>
+ * <p>
+ * 单独放在一个类中，byte-buddy不存在时只有该类无法加载，不影响{@link BeanCopier}
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+final class BeanCopierGenerator {
+
+    /**
+     * 生成的类名序号
+     */
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    /**
+     * 复制计划中读取、转换、写入MethodHandle对应的字段名前缀
+     */
+    private static final String[] PREFIXES = {"READER_", "CONVERTER_", "WRITER_"};
+
+    private static final String COPIER = Type.getInternalName(BeanCopier.class);
+
+    private static final String METHOD_HANDLE = Type.getInternalName(MethodHandle.class);
+
+    private static final String METHOD_HANDLE_DESC = Type.getDescriptor(MethodHandle.class);
+
+    private BeanCopierGenerator() {}
+
+    /**
+     * 生成复制器
+     *
+     * @param plan
+     *            复制计划，依次为读取、转换、写入的MethodHandle，没有转换的字段对应位置为null
+     *
+     * @return 复制器
+     *
+     * @throws Exception
+     *             生成失败
+     */
+    static BeanCopier generate(MethodHandle[][] plan) throws Exception {
+        DynamicType.Builder<BeanCopier> builder = new ByteBuddy(ClassFileVersion.JAVA_V8)
+            .subclass(BeanCopier.class, ConstructorStrategy.Default.IMITATE_SUPER_CLASS_OPENING)
+            .name(BeanCopier.class.getName() + "$Generated$" + COUNTER.incrementAndGet());
+        for (int kind = 0; kind < plan.length; kind++) {
+            for (int i = 0; i < plan[kind].length; i++) {
+                if (plan[kind][i] != null) {
+                    builder = builder.defineField(PREFIXES[kind] + i, MethodHandle.class,
+                        Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL);
+                }
+            }
+        }
+
+        // 生成的类只依赖BeanCopier和JDK，每个类使用单独的ClassLoader，不再使用时可以被卸载
+        ProxyClassLoader loader = new ProxyClassLoader(BeanCopier.class.getClassLoader());
+        Class<? extends BeanCopier> type = builder.initializer(new InitializerAppender(plan))
+            .method(ElementMatchers.named("copy")).intercept(new Implementation.Simple(new CopyAppender(plan)))
+            .visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES)).make()
+            .load(loader, (classLoader, types) -> CollUtil.convert(types, classLoader::buildClass)).getLoaded();
+
+        // 类初始化时从PLAN中读取复制计划
+        BeanCopier.PLAN.set(plan);
+        try {
+            Class.forName(type.getName(), true, loader);
+        } finally {
+            BeanCopier.PLAN.remove();
+        }
+        return type.getConstructor().newInstance();
+    }
+
+    /**
+     * 生成类初始化方法的字节码，把复制计划中的MethodHandle依次写入static final字段
+     */
+    private static final class InitializerAppender implements ByteCodeAppender {
+
+        /**
+         * 复制计划
+         */
+        private final MethodHandle[][] plan;
+
+        private InitializerAppender(final MethodHandle[][] plan) {
+            this.plan = plan;
+        }
+
+        @Override
+        public Size apply(final MethodVisitor mv, final Implementation.Context context,
+            final MethodDescription method) {
+            String owner = context.getInstrumentedType().getInternalName();
+            // MethodHandle[][] plan = PLAN.get()
+            mv.visitFieldInsn(Opcodes.GETSTATIC, COPIER, "PLAN", Type.getDescriptor(ThreadLocal.class));
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(ThreadLocal.class), "get",
+                "()Ljava/lang/Object;", false);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(MethodHandle[][].class));
+            mv.visitVarInsn(Opcodes.ASTORE, 0);
+            for (int kind = 0; kind < plan.length; kind++) {
+                for (int i = 0; i < plan[kind].length; i++) {
+                    if (plan[kind][i] != null) {
+                        // FIELD = plan[kind][i]
+                        mv.visitVarInsn(Opcodes.ALOAD, 0);
+                        pushInt(mv, kind);
+                        mv.visitInsn(Opcodes.AALOAD);
+                        pushInt(mv, i);
+                        mv.visitInsn(Opcodes.AALOAD);
+                        mv.visitFieldInsn(Opcodes.PUTSTATIC, owner, PREFIXES[kind] + i, METHOD_HANDLE_DESC);
+                    }
+                }
+            }
+            return new Size(2, 1);
+        }
+    }
+
+    /**
+     * 生成copy方法的字节码
+     */
+    private static final class CopyAppender implements ByteCodeAppender {
+
+        /**
+         * 复制计划
+         */
+        private final MethodHandle[][] plan;
+
+        private CopyAppender(final MethodHandle[][] plan) {
+            this.plan = plan;
+        }
+
+        @Override
+        public Size apply(final MethodVisitor mv, final Implementation.Context context,
+            final MethodDescription method) {
+            String owner = context.getInstrumentedType().getInternalName();
+            // 局部变量：0 this，1 source，2 target，3 value
+            int count = plan[0].length;
+            Label[] starts = new Label[count];
+            Label[] ends = new Label[count];
+            Label[] handlers = new Label[count];
+            Label[] nexts = new Label[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = new Label();
+                ends[i] = new Label();
+                handlers[i] = new Label();
+                nexts[i] = new Label();
+                // 异常表必须在label之前声明
+                mv.visitTryCatchBlock(starts[i], ends[i], handlers[i], "java/lang/Throwable");
+            }
+
+            for (int i = 0; i < count; i++) {
+                // value = READER_i.invokeExact(source)
+                mv.visitFieldInsn(Opcodes.GETSTATIC, owner, PREFIXES[0] + i, METHOD_HANDLE_DESC);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact",
+                    "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+                mv.visitVarInsn(Opcodes.ASTORE, 3);
+                mv.visitVarInsn(Opcodes.ALOAD, 3);
+                mv.visitJumpInsn(Opcodes.IFNULL, nexts[i]);
+
+                if (plan[1][i] != null) {
+                    // value = CONVERTER_i.invokeExact(value); if (value == SKIP) continue
+                    mv.visitFieldInsn(Opcodes.GETSTATIC, owner, PREFIXES[1] + i, METHOD_HANDLE_DESC);
+                    mv.visitVarInsn(Opcodes.ALOAD, 3);
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact",
+                        "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+                    mv.visitVarInsn(Opcodes.ASTORE, 3);
+                    mv.visitVarInsn(Opcodes.ALOAD, 3);
+                    mv.visitFieldInsn(Opcodes.GETSTATIC, COPIER, "SKIP", Type.getDescriptor(Object.class));
+                    mv.visitJumpInsn(Opcodes.IF_ACMPEQ, nexts[i]);
+                }
+
+                // try { WRITER_i.invokeExact(target, value) } catch (Throwable ignore) {}
+                mv.visitLabel(starts[i]);
+                mv.visitFieldInsn(Opcodes.GETSTATIC, owner, PREFIXES[2] + i, METHOD_HANDLE_DESC);
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitVarInsn(Opcodes.ALOAD, 3);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)V", false);
+                mv.visitLabel(ends[i]);
+                mv.visitJumpInsn(Opcodes.GOTO, nexts[i]);
+                mv.visitLabel(handlers[i]);
+                mv.visitInsn(Opcodes.POP);
+                mv.visitLabel(nexts[i]);
+            }
+            mv.visitInsn(Opcodes.RETURN);
+            return new Size(3, 4);
+        }
+    }
+
+    /**
+     * 将int常量压入操作数栈
+     *
+     * @param mv
+     *            MethodVisitor
+     * @param value
+     *            常量，不超过short范围
+     */
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        }
+    }
+}
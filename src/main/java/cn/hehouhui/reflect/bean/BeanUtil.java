@@ -23,17 +23,26 @@ import lombok.CustomLog;
 import lombok.NoArgsConstructor;
 
 import java.io.File;
+import java.io.Serial;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * bean工具
+ * <p>
+ * 每个类的字段、字段编辑器、别名以及注解在第一次使用时解析并缓存在{@link ClassValue}中，之后同一个类的所有操作都直接使用缓存，类卸载时缓存随之回收
  *
  * @author HEHH
  * @date 2024/12/02
@@ -42,6 +51,22 @@ import java.util.stream.Collectors;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class BeanUtil {
 
+    /**
+     * 并行批量复制时每个子任务最多处理的元素数，元素数不超过该值时不拆分
+     */
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    /**
+     * 每个类的bean元数据缓存
+     */
+    private static final ClassValue<BeanMetadata> METADATA = new ClassValue<>() {
+
+        @Override
+        protected BeanMetadata computeValue(final Class<?> type) {
+            return new BeanMetadata(type);
+        }
+    };
+
     /**
      * 获取对象中指定字段的值 此方法用于批量获取对象中指定字段的值如果目标对象为null或字段名称列表为空， 则返回一个空的映射通过将目标对象转换为映射，并根据字段名称列表进行过滤和收集，
      * 最终返回一个包含指定字段及其对应值的新映射如果指定的字段在目标对象中不存在， 则该字段在返回的映射中的值为空字符串
@@ -213,22 +238,17 @@ public class BeanUtil {
 
             // 防止递归
             if (set.add(pojo)) {
-                PropertyEditor[] propertyDescriptors = getPropertyDescriptors(pojoClass);
-                for (PropertyEditor propertyDescriptor : propertyDescriptors) {
+                for (BeanProperty property : METADATA.get(pojoClass).properties) {
                     // 跳过静态字段和transient字段
-                    Field original = propertyDescriptor.original();
-                    if (AccessorUtil.isStatic(original) || AccessorUtil.isTransient(original)) {
+                    if (property.staticOrTransient) {
                         continue;
                     }
 
                     String name = null;
                     try {
-                        Object value = propertyDescriptor.read(pojo);
+                        Object value = property.editor.read(pojo);
 
-                        Alias alias = propertyDescriptor.getAnnotation(Alias.class);
-                        name = (alias == null || EmptyUtil.isEmpty(alias.value())) ? propertyDescriptor.name()
-                            : alias.value();
-                        name = EmptyUtil.isEmpty(prefix) ? name : prefix + StringConst.DOT + name;
+                        name = EmptyUtil.isEmpty(prefix) ? property.name : prefix + StringConst.DOT + property.name;
 
                         convertToPlaceholder(value, name, resultMap, hasNull, set);
                     } catch (Throwable e) {
@@ -274,19 +294,18 @@ public class BeanUtil {
         LOGGER.debug("获取[{}]的字段映射", pojo);
         Assert.argNotNull(pojo, "pojo");
 
-        Field[] fields = ReflectUtil.getAllFields(pojo.getClass());
-        Map<String, T> map = new HashMap<>();
-        if (fields.length == 0) {
+        BeanMetadata metadata = METADATA.get(pojo.getClass());
+        if (metadata.properties.length == 0) {
             return Collections.emptyMap();
         }
-        for (Field field : fields) {
-            LOGGER.debug("获取字段[{}]的值", field);
-            Alias alias = field.getDeclaredAnnotation(Alias.class);
-
-            String name = (alias == null || EmptyUtil.isEmpty(alias.value())) ? field.getName() : alias.value();
+        Map<String, T> map = new HashMap<>();
+        for (BeanProperty property : metadata.properties) {
+            LOGGER.debug("获取字段[{}]的值", property.field);
+            String name = property.name;
 
             try {
-                Object value = ReflectUtil.getFieldValue(pojo, field.getName());
+                // 父类与子类存在同名字段时按字段名读取到的是子类的字段
+                Object value = ReflectUtil.getFieldValue(pojo, metadata.property(property.field.getName()).field);
                 if (value == null && !hasNull) {
                     LOGGER.debug("字段[{}]值为null，当前不包含null值，忽略字段[{}]", name, name);
                     continue;
@@ -313,15 +332,12 @@ public class BeanUtil {
      */
     public static boolean setProperty(Object obj, String propName, Object value) {
         try {
-            Field field = ReflectUtil.getField(obj, propName, true);
-            if (field == null) {
+            BeanProperty property = metadata(obj).property(propName);
+            if (property == null) {
                 return false;
             }
 
-            PropertyEditor propertyEditor =
-                buildPropertyEditor(field, obj instanceof Class ? (Class<?>)obj : obj.getClass());
-
-            propertyEditor.write(obj, value);
+            property.editor.write(obj, value);
             return true;
         } catch (Throwable e) {
             return false;
@@ -342,12 +358,14 @@ public class BeanUtil {
      */
 
     public static <T> T getProperty(Object obj, String propName) {
-        Field field = ReflectUtil.getField(obj, propName, true);
-
-        PropertyEditor propertyEditor =
-            buildPropertyEditor(field, obj instanceof Class ? (Class<?>)obj : obj.getClass());
+        Assert.argNotNull(obj, "obj");
+        BeanProperty property = metadata(obj).property(propName);
+        if (property == null) {
+            throw new CommonException(ErrorCodeEnum.REFLECT_SECURE_EXCEPTION,
+                StrUtil.format("[{}]中不存在字段[{}]", obj, propName));
+        }
 
-        return propertyEditor.read(obj);
+        return property.editor.read(obj);
     }
 
     /**
@@ -431,10 +449,15 @@ public class BeanUtil {
         }
 
         if (source instanceof Map) {
+            BeanMetadata destMetadata = metadata(dest);
             ((Map<?, ?>)source).forEach((key, value) -> {
                 if (key instanceof String && value != null) {
+                    BeanProperty property = destMetadata.property((String)key);
+                    if (property == null) {
+                        return;
+                    }
                     try {
-                        Field field = ReflectUtil.getField(dest, (String)key);
+                        Field field = property.field;
                         // 如果value是字段类型的子类型或者跟字段类型相同，那么设置为字段值
                         Object injectValue = value;
 
@@ -453,8 +476,7 @@ public class BeanUtil {
                         }
 
                         // 这里要使用字段属性访问器去写入，优先调用set方法，不存在set方法再直接反射注入
-                        PropertyEditor propertyEditor = buildPropertyEditor(field, dest.getClass());
-                        propertyEditor.write(dest, injectValue);
+                        property.editor.write(dest, injectValue);
                     } catch (Throwable throwable) {
                         // 字段不存在或者其他异常，应该无法注入了，忽略
                     }
@@ -464,60 +486,8 @@ public class BeanUtil {
             return dest;
         }
 
-        Class<?> sourceClass = source.getClass();
-        String sourceName = sourceClass.getName();
-
-        Field[] srcFields = ReflectUtil.getAllFields(sourceClass);
-
-        if (srcFields.length == 0) {
-            LOGGER.debug("源{}中不存在已经声明的字段", sourceName);
-            return dest;
-        }
-
-        for (Field srcField : srcFields) {
-            String fieldName = srcField.getName();
-
-            // 要注入的数据
-            Object srcData = ReflectUtil.getFieldValue(source, srcField);
-            if (srcData == null) {
-                continue;
-            }
-
-            Field targetField = ReflectUtil.getField(dest, fieldName, true, false);
-            Alias alias;
-            if (targetField == null && (alias = srcField.getAnnotation(Alias.class)) != null) {
-                targetField = ReflectUtil.getField(dest, alias.value(), true, false);
-            }
-
-            // 目标字段不存在
-            if (targetField == null) {
-                continue;
-            }
-
-            Class<?> targetType = targetField.getType();
-
-            // 如果源数据不是目标字段的字类，并且目标数据类型不是原始类型（装箱拆箱太麻烦，这里不处理），则尝试转换；
-            if (!targetType.isAssignableFrom(srcData.getClass()) && !JavaTypeUtil.isGeneralType(targetType)) {
-                TypeConverter converter = TypeConverterRegistry.findConverter(srcData.getClass(), targetType);
-                // 找不到转换器，该字段无法注入
-                if (converter == null) {
-                    continue;
-                }
-                // 将源数据转换为目标数据类型
-                srcData = converter.convert(srcData, srcField.getAnnotations(), targetType);
-            }
-
-            try {
-                // 这里使用PropertyEditor的方式写入字段值，也就是优先调用set方法
-                PropertyEditor propertyEditor =
-                    buildPropertyEditor(targetField, dest instanceof Class ? (Class<?>)dest : dest.getClass());
-                propertyEditor.write(dest, srcData);
-            } catch (Throwable throwable) {
-                // 忽略异常
-            }
-
-        }
-
+        // 字段匹配、转换器查找以及字段读写都已经编译到复制器中，这里只需要执行
+        BeanCopier.get(source.getClass(), dest instanceof Class ? (Class<?>)dest : dest.getClass()).copy(source, dest);
         return dest;
     }
 
@@ -536,18 +506,65 @@ public class BeanUtil {
      * @return targetClass的实例的数组
      */
     public static <E, S> List<E> copyFromMultiObjToClass(Class<E> targetClass, List<S> sourceList) {
-        if (sourceList == null || sourceList.isEmpty()) {
+        if (sourceList == null || sourceList.isEmpty() || targetClass == null) {
             return Collections.emptyList();
         }
-        List<E> list = new ArrayList<>(sourceList.size());
+        return copyFromMultiObjToClass(targetClass, sourceList, new ArrayList<>(sourceList.size()), false);
+    }
 
-        for (S source : sourceList) {
-            E e = copyFromObjToClass(targetClass, source);
-            if (e != null) {
-                list.add(e);
+    /**
+     * 将sources中的对象与targetClass同名的字段从source中复制到targetClass的实例中，并按照sources的顺序添加到collection中，sources中的null会被忽略；
+     * <p>
+     * 与逐个调用{@link #copyFromObjToClass(Class, Object)}相比，targetClass的构造器只解析一次，相邻的同类型源对象复用同一个{@link BeanCopier}，
+     * 适合大批量数据转换
+     *
+     * @param targetClass
+     *            要复制的目标对象的class对象
+     * @param sources
+     *            被复制的源对象
+     * @param collection
+     *            复制结果添加到的集合
+     * @param parallel
+     *            是否并行复制，为true并且数据量较大时拆分到{@link ForkJoinPool#commonPool()}中执行，此时源对象先复制到一个数组中，
+     *            复制完成后再按顺序添加到collection中；collection只会在调用线程中添加，不需要是线程安全的
+     * @param <S>
+     *            源对象的实际类型
+     * @param <E>
+     *            目标对象的实际类型
+     * @param <C>
+     *            集合的实际类型
+     *
+     * @return collection
+     */
+    @SuppressWarnings("unchecked")
+    public static <E, S, C extends Collection<? super E>> C copyFromMultiObjToClass(Class<E> targetClass,
+        Collection<S> sources, C collection, boolean parallel) {
+        Assert.argNotNull(targetClass, "targetClass");
+        Assert.argNotNull(collection, "collection");
+        if (sources == null || sources.isEmpty()) {
+            return collection;
+        }
+
+        MethodHandle constructor = constructor(targetClass);
+        if (!parallel || sources.size() <= PARALLEL_THRESHOLD) {
+            BulkCopier<E> copier = new BulkCopier<>(targetClass, constructor);
+            for (S source : sources) {
+                if (source != null) {
+                    collection.add(copier.copy(source));
+                }
             }
+            return collection;
         }
-        return list;
+
+        // 在数组中原地把源对象替换为复制结果
+        Object[] array = sources.toArray();
+        ForkJoinPool.commonPool().invoke(new BulkCopyTask<>(targetClass, constructor, array, 0, array.length));
+        for (Object target : array) {
+            if (target != null) {
+                collection.add((E)target);
+            }
+        }
+        return collection;
     }
 
     /**
@@ -563,33 +580,76 @@ public class BeanUtil {
             throw new CommonException(ErrorCodeEnum.CODE_ERROR, "clazz为null");
         }
 
-        Field[] fields = ReflectUtil.getAllFields(clazz);
-        PropertyEditor[] descriptors = new PropertyEditor[fields.length];
+        // 返回副本，避免外部修改缓存
+        return METADATA.get(clazz).editors.clone();
+    }
 
-        if (fields.length == 0) {
-            return descriptors;
-        }
+    /**
+     * 获取字段编辑器，字段属于指定class时直接返回缓存的编辑器
+     *
+     * @param field
+     *            字段
+     * @param clazz
+     *            字段所属class
+     *
+     * @return 字段编辑器
+     */
+    public static PropertyEditor buildPropertyEditor(Field field, Class<?> clazz) {
+        Assert.argNotNull(field, "field");
+        Assert.argNotNull(clazz, "clazz");
+        PropertyEditor editor = METADATA.get(clazz).editorsByField.get(field);
+        // 不在缓存中的字段只会使用一次，不值得生成代码
+        return editor == null ? createPropertyEditor(field, clazz, false) : editor;
+    }
 
-        int j = 0;
-        for (Field field : fields) {
-            PropertyEditor descriptor = buildPropertyEditor(field, clazz);
-            descriptors[j++] = descriptor;
-        }
+    /**
+     * 获取对象对应的bean元数据
+     *
+     * @param obj
+     *            对象，如果是Class则返回该Class的元数据
+     *
+     * @return bean元数据
+     */
+    static BeanMetadata metadata(Object obj) {
+        return METADATA.get(obj instanceof Class ? (Class<?>)obj : obj.getClass());
+    }
 
-        return descriptors;
+    /**
+     * 解析目标类的无参构造器，与{@link #copyFromObjToClass(Class, Object)}一样要求构造器对当前类可见
+     *
+     * @param targetClass
+     *            目标类
+     *
+     * @return 类型为()Object的MethodHandle
+     */
+    private static MethodHandle constructor(Class<?> targetClass) {
+        try {
+            if (Modifier.isAbstract(targetClass.getModifiers())) {
+                throw new InstantiationException(targetClass.getName());
+            }
+            return MethodHandles.lookup().unreflectConstructor(targetClass.getDeclaredConstructor())
+                .asType(MethodType.methodType(Object.class));
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new CommonException(ErrorCodeEnum.REFLECT_SECURE_EXCEPTION,
+                StrUtil.format("target[{}]生成失败，请检查代码", targetClass), e);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
-     * 构建字段编辑器
+     * 构建字段编辑器，优先使用字段的get/set方法
      *
      * @param field
      *            字段
      * @param clazz
      *            字段所属class
+     * @param generated
+     *            是否优先使用{@link GeneratedPropertyEditor}，无法生成时使用{@link SimplePropertyEditor}
      *
      * @return 字段编辑器
      */
-    public static PropertyEditor buildPropertyEditor(Field field, Class<?> clazz) {
+    private static PropertyEditor createPropertyEditor(Field field, Class<?> clazz, boolean generated) {
         String fieldName = field.getName();
 
         // 首字母大写
@@ -610,6 +670,12 @@ public class BeanUtil {
             writeMethod = getMethod("set" + fieldName.substring(2), clazz, field.getType());
         }
 
+        if (generated) {
+            PropertyEditor editor = GeneratedPropertyEditor.create(field, clazz, readMethod, writeMethod);
+            if (editor != null) {
+                return editor;
+            }
+        }
         return new SimplePropertyEditor(field, clazz, readMethod, writeMethod);
     }
 
@@ -635,6 +701,230 @@ public class BeanUtil {
         return method;
     }
 
+    /**
+     * 单个类的bean元数据，不可变
+     */
+    static final class BeanMetadata {
+
+        /**
+         * 所有字段，顺序与{@link ReflectUtil#getAllFields(Class)}一致
+         */
+        final BeanProperty[] properties;
+
+        /**
+         * 所有字段的编辑器，与{@link #properties}一一对应，优先使用{@link GeneratedPropertyEditor}
+         */
+        private final PropertyEditor[] editors;
+
+        /**
+         * 按字段名查找时可见的字段，父类与子类存在同名字段时取子类的字段
+         */
+        private final Map<String, BeanProperty> propertiesByName;
+
+        /**
+         * 字段对应的编辑器
+         */
+        private final Map<Field, PropertyEditor> editorsByField;
+
+        private BeanMetadata(final Class<?> type) {
+            Field[] fields = ReflectUtil.getAllFields(type);
+            this.properties = new BeanProperty[fields.length];
+            this.editors = new PropertyEditor[fields.length];
+            this.propertiesByName = new HashMap<>();
+            this.editorsByField = new HashMap<>();
+            for (int i = 0; i < fields.length; i++) {
+                BeanProperty property = new BeanProperty(fields[i], createPropertyEditor(fields[i], type, true));
+                properties[i] = property;
+                editors[i] = property.editor;
+                propertiesByName.putIfAbsent(fields[i].getName(), property);
+                editorsByField.put(fields[i], property.editor);
+            }
+        }
+
+        /**
+         * 按字段名查找字段（包含父类字段）
+         *
+         * @param name
+         *            字段名
+         *
+         * @return 字段，不存在时返回null
+         */
+        BeanProperty property(String name) {
+            return propertiesByName.get(name);
+        }
+    }
+
+    /**
+     * 单个字段的元数据
+     */
+    static final class BeanProperty {
+
+        /**
+         * 字段
+         */
+        final Field field;
+
+        /**
+         * 字段编辑器
+         */
+        final PropertyEditor editor;
+
+        /**
+         * 字段上的{@link Alias}注解，可能为null
+         */
+        final Alias alias;
+
+        /**
+         * 转换为map时使用的名字，有别名时使用别名，否则使用字段名
+         */
+        private final String name;
+
+        /**
+         * 字段上的所有注解
+         */
+        final Annotation[] annotations;
+
+        /**
+         * 是否是静态字段或者transient字段
+         */
+        private final boolean staticOrTransient;
+
+        private BeanProperty(final Field field, final PropertyEditor editor) {
+            this.field = field;
+            this.editor = editor;
+            this.alias = field.getAnnotation(Alias.class);
+            this.name = (alias == null || EmptyUtil.isEmpty(alias.value())) ? field.getName() : alias.value();
+            this.annotations = field.getAnnotations();
+            this.staticOrTransient = AccessorUtil.isStatic(field) || AccessorUtil.isTransient(field);
+        }
+    }
+
+    /**
+     * 批量复制到同一个目标类，非线程安全，并行复制时每个子任务使用一个实例
+     *
+     * @param <E>
+     *            目标对象的实际类型
+     */
+    private static final class BulkCopier<E> {
+
+        /**
+         * 目标类
+         */
+        private final Class<E> targetClass;
+
+        /**
+         * 目标类的无参构造器
+         */
+        private final MethodHandle constructor;
+
+        /**
+         * 上一个源对象的类型
+         */
+        private Class<?> sourceClass;
+
+        /**
+         * 上一个源对象类型对应的复制器
+         */
+        private BeanCopier copier;
+
+        private BulkCopier(final Class<E> targetClass, final MethodHandle constructor) {
+            this.targetClass = targetClass;
+            this.constructor = constructor;
+        }
+
+        /**
+         * 创建目标对象并从源对象复制字段
+         *
+         * @param source
+         *            源对象，不能为null
+         *
+         * @return 目标对象
+         */
+        @SuppressWarnings("unchecked")
+        private E copy(Object source) {
+            E target;
+            try {
+                target = (E)(Object)constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new RuntimeException(throwable);
+            }
+
+            if (source instanceof Map) {
+                return copyFromObjToObj(target, source);
+            }
+            if (source.getClass() != sourceClass) {
+                sourceClass = source.getClass();
+                copier = BeanCopier.get(sourceClass, targetClass);
+            }
+            copier.copy(source, target);
+            return target;
+        }
+    }
+
+    /**
+     * 并行批量复制任务，把数组中指定范围内的源对象原地替换为复制结果
+     *
+     * @param <E>
+     *            目标对象的实际类型
+     */
+    private static final class BulkCopyTask<E> extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = -3518923407826649215L;
+
+        /**
+         * 目标类
+         */
+        private final Class<E> targetClass;
+
+        /**
+         * 目标类的无参构造器
+         */
+        private final transient MethodHandle constructor;
+
+        /**
+         * 源对象，复制后替换为目标对象
+         */
+        private final transient Object[] array;
+
+        /**
+         * 起始下标，包含
+         */
+        private final int from;
+
+        /**
+         * 结束下标，不包含
+         */
+        private final int to;
+
+        private BulkCopyTask(final Class<E> targetClass, final MethodHandle constructor, final Object[] array,
+            final int from, final int to) {
+            this.targetClass = targetClass;
+            this.constructor = constructor;
+            this.array = array;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                BulkCopier<E> copier = new BulkCopier<>(targetClass, constructor);
+                for (int i = from; i < to; i++) {
+                    if (array[i] != null) {
+                        array[i] = copier.copy(array[i]);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BulkCopyTask<>(targetClass, constructor, array, from, middle),
+                new BulkCopyTask<>(targetClass, constructor, array, middle, to));
+        }
+    }
+
     public final static class SimplePropertyEditor implements PropertyEditor {
 
         /**
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.reflect.bean;
+
+import cn.hehouhui.constant.ErrorCodeEnum;
+import cn.hehouhui.exception.CommonException;
+import cn.hehouhui.reflect.AccessorUtil;
+import cn.hehouhui.util.StrUtil;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 基于生成代码的属性编辑器，get/set方法通过{@link LambdaMetafactory}生成{@link Function}/{@link BiConsumer}的实现类直接调用，
+ * 没有get/set方法的字段以及静态成员通过{@link MethodHandle}访问；
+ * <p>
+ * 与{@link BeanUtil.SimplePropertyEditor}相比，读写不再经过反射调用，没有可变参数数组以及反射异常包装，可以被JIT内联；
+ * 代价是创建时需要生成类，所以只适合缓存后反复使用，{@link BeanUtil#getPropertyDescriptors(Class)}默认返回该编辑器
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+public final class GeneratedPropertyEditor implements PropertyEditor {
+
+    /**
+     * 原始字段
+     */
+    private final Field field;
+
+    /**
+     * 字段所属类
+     */
+    private final Class<?> owner;
+
+    /**
+     * 是否有读取方法
+     */
+    private final boolean hasReadMethod;
+
+    /**
+     * 写入方法，可能为null
+     */
+    private final Method writeMethod;
+
+    /**
+     * 读取函数，优先调用get方法
+     */
+    private final Function<Object, Object> getter;
+
+    /**
+     * 写入函数，优先调用set方法
+     */
+    private final BiConsumer<Object, Object> setter;
+
+    private GeneratedPropertyEditor(final Field field, final Class<?> owner, final Method readMethod,
+        final Method writeMethod) throws Throwable {
+        this.field = field;
+        this.owner = owner;
+        this.hasReadMethod = readMethod != null;
+        this.writeMethod = writeMethod;
+        this.getter = getter(field, readMethod);
+        this.setter = setter(field, writeMethod);
+    }
+
+    /**
+     * 创建属性编辑器
+     *
+     * @param field
+     *            字段
+     * @param owner
+     *            字段所属类
+     * @param readMethod
+     *            读取方法，为空时直接读取字段
+     * @param writeMethod
+     *            写入方法，为空时直接写入字段
+     *
+     * @return 属性编辑器，当前环境无法生成（例如模块限制）时返回null
+     */
+    static GeneratedPropertyEditor create(Field field, Class<?> owner, Method readMethod, Method writeMethod) {
+        try {
+            return new GeneratedPropertyEditor(field, owner, readMethod, writeMethod);
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+
+    /**
+     * 创建直接读取字段（不经过get方法）的MethodHandle
+     *
+     * @param field
+     *            字段
+     *
+     * @return 类型为(Object)Object的MethodHandle，当前环境无法访问该字段时返回null
+     */
+    static MethodHandle fieldReader(Field field) {
+        try {
+            return readHandle(field, null);
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取与{@link #write(Object, Object)}写入方式相同的MethodHandle，调用时不包装异常
+     *
+     * @return 类型为(Object, Object)void的MethodHandle
+     *
+     * @throws Throwable
+     *             无法访问字段或者方法
+     */
+    MethodHandle writeHandle() throws Throwable {
+        return writeHandle(field, writeMethod);
+    }
+
+    @Override
+    public boolean hasWriteMethod() {
+        return writeMethod != null;
+    }
+
+    @Override
+    public boolean hasReadMethod() {
+        return hasReadMethod;
+    }
+
+    @Override
+    public void write(final Object target, final Object value) {
+        try {
+            setter.accept(target, value);
+        } catch (CommonException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new CommonException(ErrorCodeEnum.REFLECT_SECURE_EXCEPTION,
+                StrUtil.format("写入字段[{}]失败，值：[{}]", field, value), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T read(final Object target) {
+        try {
+            return (T)getter.apply(target);
+        } catch (CommonException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new CommonException(ErrorCodeEnum.REFLECT_SECURE_EXCEPTION, StrUtil.format("读取字段[{}]失败", field),
+                e);
+        }
+    }
+
+    @Override
+    public Field original() {
+        return field;
+    }
+
+    @Override
+    public String name() {
+        return field.getName();
+    }
+
+    @Override
+    public Class<?> type() {
+        return field.getType();
+    }
+
+    @Override
+    public Type getGenericType() {
+        return field.getGenericType();
+    }
+
+    @Override
+    public Class<?> owner() {
+        return owner;
+    }
+
+    @Override
+    public <T extends Annotation> T getAnnotation(final Class<T> annotationClass) {
+        return field.getAnnotation(annotationClass);
+    }
+
+    /**
+     * 构建读取函数
+     *
+     * @param field
+     *            字段
+     * @param readMethod
+     *            读取方法，可能为null
+     *
+     * @return 读取函数
+     *
+     * @throws Throwable
+     *             无法访问字段或者方法
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(Field field, Method readMethod) throws Throwable {
+        if (readMethod != null && !AccessorUtil.isStatic(readMethod)) {
+            MethodHandles.Lookup lookup =
+                MethodHandles.privateLookupIn(readMethod.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(readMethod);
+            return (Function<Object, Object>)LambdaMetafactory
+                .metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle,
+                    MethodType.methodType(wrap(readMethod.getReturnType()), readMethod.getDeclaringClass()))
+                .getTarget().invokeExact();
+        }
+
+        MethodHandle generic = readHandle(field, readMethod);
+        return target -> {
+            try {
+                return generic.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new CommonException(ErrorCodeEnum.UNKNOWN_EXCEPTION,
+                    StrUtil.format("读取字段[{}]失败", field), throwable);
+            }
+        };
+    }
+
+    /**
+     * 构建写入函数
+     *
+     * @param field
+     *            字段
+     * @param writeMethod
+     *            写入方法，可能为null
+     *
+     * @return 写入函数
+     *
+     * @throws Throwable
+     *             无法访问字段或者方法
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(Field field, Method writeMethod) throws Throwable {
+        if (writeMethod != null && !AccessorUtil.isStatic(writeMethod)) {
+            MethodHandles.Lookup lookup =
+                MethodHandles.privateLookupIn(writeMethod.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(writeMethod);
+            // set方法可能有返回值（链式set），生成的函数会丢弃返回值
+            return (BiConsumer<Object, Object>)LambdaMetafactory
+                .metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), handle,
+                    MethodType.methodType(void.class, writeMethod.getDeclaringClass(),
+                        wrap(writeMethod.getParameterTypes()[0])))
+                .getTarget().invokeExact();
+        }
+
+        MethodHandle generic = writeHandle(field, writeMethod);
+        return (target, value) -> {
+            try {
+                generic.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new CommonException(ErrorCodeEnum.UNKNOWN_EXCEPTION,
+                    StrUtil.format("写入字段[{}]失败", field), throwable);
+            }
+        };
+    }
+
+    /**
+     * 构建读取字段的MethodHandle
+     *
+     * @param field
+     *            字段
+     * @param readMethod
+     *            读取方法，可能为null
+     *
+     * @return 类型为(Object)Object的MethodHandle
+     *
+     * @throws Throwable
+     *             无法访问字段或者方法
+     */
+    private static MethodHandle readHandle(Field field, Method readMethod) throws Throwable {
+        MethodHandle handle = readMethod == null ? lookup(field).unreflectGetter(field)
+            : MethodHandles.privateLookupIn(readMethod.getDeclaringClass(), MethodHandles.lookup())
+                .unreflect(readMethod);
+        if (readMethod == null ? AccessorUtil.isStatic(field) : AccessorUtil.isStatic(readMethod)) {
+            // 静态成员忽略传入的对象
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    /**
+     * 构建写入字段的MethodHandle
+     *
+     * @param field
+     *            字段
+     * @param writeMethod
+     *            写入方法，可能为null
+     *
+     * @return 类型为(Object, Object)void的MethodHandle
+     *
+     * @throws Throwable
+     *             无法访问字段或者方法
+     */
+    private static MethodHandle writeHandle(Field field, Method writeMethod) throws Throwable {
+        MethodHandle handle = writeMethod == null ? lookup(field).unreflectSetter(field)
+            : MethodHandles.privateLookupIn(writeMethod.getDeclaringClass(), MethodHandles.lookup())
+                .unreflect(writeMethod);
+        if (writeMethod == null ? AccessorUtil.isStatic(field) : AccessorUtil.isStatic(writeMethod)) {
+            // 静态成员忽略传入的对象
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    /**
+     * 获取可以访问指定字段的Lookup，字段已经设置了访问权限时使用当前类的Lookup即可
+     *
+     * @param field
+     *            字段
+     *
+     * @return Lookup
+     *
+     * @throws IllegalAccessException
+     *             无法访问
+     */
+    private static MethodHandles.Lookup lookup(Field field) throws IllegalAccessException {
+        return field.trySetAccessible() ? MethodHandles.lookup()
+            : MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+    }
+
+    /**
+     * 原始类型转换为包装类型，LambdaMetafactory只能在包装类型与原始类型之间自动装箱拆箱
+     *
+     * @param type
+     *            类型
+     *
+     * @return 包装类型，非原始类型原样返回
+     */
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -12,15 +12,22 @@
  */
 package cn.hehouhui.reflect.bean;
 
+import cn.hehouhui.reflect.ClassUtil;
 import cn.hehouhui.reflect.bean.converter.*;
+import cn.hehouhui.util.Assert;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * 类型转换器注册表
+ * <p>
+ * 查找规则：优先级高的转换器优先；优先级相同时，选择声明的源类型与实际源类型在类继承关系上距离（{@link ClassUtil#calcGap(Class, Class)}）最近的，
+ * 距离也相同时选择先注册的；查找结果（包含找不到转换器的结果）按照（源类型，目标类型）缓存，注册新的转换器时清空缓存
  *
  * @author HEHH
  * @date 2024/12/02
@@ -28,23 +35,96 @@ import java.util.List;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class TypeConverterRegistry {
 
-    private static final List<TypeConverter> TYPE_CONVERTER_LIST = new ArrayList<>();
+    /**
+     * 默认优先级
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    /**
+     * 缓存中表示找不到转换器
+     */
+    private static final Object NONE = new Object();
+
+    /**
+     * 所有转换器，按优先级从高到低、注册先后排序，注册时整体替换
+     */
+    private static volatile Registration[] registrations = new Registration[0];
+
+    /**
+     * 查找结果缓存，外层key为源类型，内层key为目标类型，value为转换器（找不到时为{@link #NONE}），注册时整体替换；注意，必须在{@link #registrations}之后写入
+     * <p>
+     * 内层同样使用ClassValue，查找结果挂在目标类型上，源类型（例如String）不会强引用目标类型，目标类型的类加载器可以正常卸载
+     */
+    private static volatile ClassValue<ClassValue<Object>> cache = newCache();
+
+    /**
+     * 注册表版本，每次注册后递增，依赖查找结果的其他缓存（例如{@link BeanCopier}）通过该版本判断是否失效；注意，必须在{@link #cache}之后写入
+     */
+    private static volatile int version;
 
     static {
-        TYPE_CONVERTER_LIST.add(new ClassHierarchicalTypeConverter());
-        TYPE_CONVERTER_LIST.add(new StringToBasicTypeConverter());
-        TYPE_CONVERTER_LIST.add(new StringToFileTypeConverter());
-        TYPE_CONVERTER_LIST.add(new AllToStringTypeConverter());
-        TYPE_CONVERTER_LIST.add(new StringToEnumConverter());
+        register(new ClassHierarchicalTypeConverter(), Object.class, DEFAULT_PRIORITY);
+        register(new StringToBasicTypeConverter(), String.class, DEFAULT_PRIORITY);
+        register(new StringToFileTypeConverter(), String.class, DEFAULT_PRIORITY);
+        register(new AllToStringTypeConverter(), Object.class, DEFAULT_PRIORITY);
+        register(new StringToEnumConverter(), String.class, DEFAULT_PRIORITY);
     }
 
     /**
      * 获取所有的类型转换器
      * 
-     * @return 所有的类型转换器
+     * @return 所有的类型转换器，按照查找时的优先顺序排列
      */
     public static List<TypeConverter> getAllTypeConverter() {
-        return new ArrayList<>(TYPE_CONVERTER_LIST);
+        List<TypeConverter> converters = new ArrayList<>();
+        for (Registration registration : registrations) {
+            converters.add(registration.converter);
+        }
+        return converters;
+    }
+
+    /**
+     * 注册类型转换器，转换器适用于所有源类型
+     *
+     * @param converter
+     *            类型转换器
+     * @param priority
+     *            优先级，越大越优先，内置转换器的优先级为{@link #DEFAULT_PRIORITY}
+     */
+    public static void register(TypeConverter converter, int priority) {
+        register(converter, Object.class, priority);
+    }
+
+    /**
+     * 注册类型转换器
+     *
+     * @param converter
+     *            类型转换器
+     * @param srcType
+     *            转换器面向的源类型，优先级相同的多个转换器都可以转换时，该类型与实际源类型距离越近越优先
+     * @param priority
+     *            优先级，越大越优先，内置转换器的优先级为{@link #DEFAULT_PRIORITY}
+     */
+    public static synchronized void register(TypeConverter converter, Class<?> srcType, int priority) {
+        Assert.argNotNull(converter, "converter");
+        Assert.argNotNull(srcType, "srcType");
+
+        Registration[] current = registrations;
+        Registration[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Registration(converter, srcType, priority, current.length);
+        Arrays.sort(updated, Comparator.comparingInt((Registration r) -> -r.priority).thenComparingInt(r -> r.order));
+        registrations = updated;
+        cache = newCache();
+        version++;
+    }
+
+    /**
+     * 获取注册表版本，每次注册新的转换器后版本都会变化
+     *
+     * @return 注册表版本
+     */
+    static int version() {
+        return version;
     }
 
     /**
@@ -54,15 +134,110 @@ public class TypeConverterRegistry {
      *            原类型
      * @param targetType
      *            目标类型
-     * @return 转换器
+     * @return 转换器，找不到时返回null
      */
     public static TypeConverter findConverter(Class<?> srcType, Class<?> targetType) {
-        for (TypeConverter converter : TYPE_CONVERTER_LIST) {
-            if (converter.test(srcType, targetType)) {
-                return converter;
+        Assert.argNotNull(srcType, "srcType");
+        Assert.argNotNull(targetType, "targetType");
+
+        Object converter = cache.get(srcType).get(targetType);
+        return converter == NONE ? null : (TypeConverter)converter;
+    }
+
+    /**
+     * 在所有转换器中查找最合适的转换器
+     *
+     * @param srcType
+     *            原类型
+     * @param targetType
+     *            目标类型
+     *
+     * @return 转换器，找不到时返回{@link #NONE}
+     */
+    private static Object resolve(Class<?> srcType, Class<?> targetType) {
+        Registration best = null;
+        int bestGap = Integer.MAX_VALUE;
+        for (Registration registration : registrations) {
+            // 已经按优先级排序，优先级更低的不再考虑
+            if (best != null && registration.priority < best.priority) {
+                break;
+            }
+            if (!registration.converter.test(srcType, targetType)) {
+                continue;
+            }
+            int gap = registration.gap(srcType);
+            if (best == null || gap < bestGap) {
+                best = registration;
+                bestGap = gap;
             }
         }
-        return null;
+        return best == null ? NONE : best.converter;
     }
 
+    /**
+     * 创建查找结果缓存
+     *
+     * @return 查找结果缓存
+     */
+    private static ClassValue<ClassValue<Object>> newCache() {
+        return new ClassValue<>() {
+
+            @Override
+            protected ClassValue<Object> computeValue(final Class<?> srcType) {
+                return new ClassValue<>() {
+
+                    @Override
+                    protected Object computeValue(final Class<?> targetType) {
+                        return resolve(srcType, targetType);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * 转换器注册信息
+     */
+    private static final class Registration {
+
+        /**
+         * 类型转换器
+         */
+        private final TypeConverter converter;
+
+        /**
+         * 转换器面向的源类型
+         */
+        private final Class<?> srcType;
+
+        /**
+         * 优先级
+         */
+        private final int priority;
+
+        /**
+         * 注册顺序
+         */
+        private final int order;
+
+        private Registration(final TypeConverter converter, final Class<?> srcType, final int priority,
+            final int order) {
+            this.converter = converter;
+            this.srcType = srcType;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        /**
+         * 计算实际源类型到转换器面向的源类型的距离
+         *
+         * @param type
+         *            实际源类型
+         *
+         * @return 距离，实际源类型不是转换器面向的源类型的子类（例如原始类型）时返回{@link Integer#MAX_VALUE}
+         */
+        private int gap(Class<?> type) {
+            return srcType.isAssignableFrom(type) ? ClassUtil.calcGap(srcType, type) : Integer.MAX_VALUE;
+        }
+    }
 }
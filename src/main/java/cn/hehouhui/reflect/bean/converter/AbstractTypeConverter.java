@@ -37,8 +37,9 @@ public abstract class AbstractTypeConverter implements TypeConverter {
         }
 
         Class<S> srcType = (Class<S>)src.getClass();
+        // 不按转换器实例缓存校验结果：缓存挂在源类型上会让String等系统类强引用转换器及其类加载器
         Assert.assertTrue(test(srcType, targetType),
-            StrUtil.format("类型[{}]不能使用类型转换器[{}]转换为[{}]", srcType, this.getClass(), targetType),
+            () -> StrUtil.format("类型[{}]不能使用类型转换器[{}]转换为[{}]", srcType, this.getClass(), targetType),
             ExceptionProviderConst.IllegalStateExceptionProvider);
         return convert(srcType, targetType, src, annotations);
     }
@@ -27,7 +27,8 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * 反射工具，注意：本类设计上并无缓存，所以外部如果需要频繁访问某个字段、方法或者构造器，请自行缓存，否则会导致性能较低，同时内存可能也会增大，因为 每次反射获取到的字段、方法、构造器都是全新（即使是获取的同一个字段、方法、构造器）；
+ * 反射工具，注意：字段以及{@link #getAllMethod(Class)}的结果按类缓存在{@link ClassValue}中（类卸载时缓存随之回收），同一个类的字段只会查找、设置访问权限一次，
+ * 返回的是同一个Field实例；其他方法、构造器没有缓存，外部如果需要频繁访问，请自行缓存；
  *
  * @author HEHH
  * @date 2024/12/02
@@ -35,6 +36,28 @@ import java.util.stream.Collectors;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ReflectUtil {
 
+    /**
+     * 每个类的字段缓存
+     */
+    private static final ClassValue<FieldTable> FIELD_TABLES = new ClassValue<>() {
+
+        @Override
+        protected FieldTable computeValue(final Class<?> type) {
+            return new FieldTable(type);
+        }
+    };
+
+    /**
+     * 每个类的{@link #getAllMethod(Class)}结果缓存
+     */
+    private static final ClassValue<List<Method>> ALL_METHODS = new ClassValue<>() {
+
+        @Override
+        protected List<Method> computeValue(final Class<?> type) {
+            return Collections.unmodifiableList(new ArrayList<>(getAllMethod(type, new HashMap<>()).values()));
+        }
+    };
+
     /**
      * 获取指定Class的指定参数构造器
      *
@@ -145,8 +168,8 @@ public class ReflectUtil {
      * @return 指定类型和其父类型、接口中声明的所有方法（除了Object中声明的方法）
      */
     public static List<Method> getAllMethod(Class<?> clazz) {
-        Map<String, Method> methodMap = getAllMethod(clazz, new HashMap<>());
-        return new ArrayList<>(methodMap.values());
+        Assert.argNotNull(clazz, "clazz");
+        return new ArrayList<>(ALL_METHODS.get(clazz));
     }
 
     /**
@@ -260,7 +283,8 @@ public class ReflectUtil {
      * @return 带有指定注解的方法集合
      */
     public static List<Method> getAllAnnotationPresentMethod(Class<?> type, Class<? extends Annotation> annotation) {
-        List<Method> methods = getAllMethod(type);
+        Assert.argNotNull(type, "type");
+        List<Method> methods = ALL_METHODS.get(type);
 
         if (methods.isEmpty()) {
             return Collections.emptyList();
@@ -282,7 +306,7 @@ public class ReflectUtil {
      * @return 指定对象中指定字段名对应字段的值，字段不存在时抛异常
      */
     public static <T> T getFieldValue(Object obj, String fieldName) {
-        Field field = getField(obj, fieldName, true);
+        Field field = lookupField(obj, fieldName, true, true);
         return getFieldValue(obj, field);
     }
 
@@ -326,7 +350,7 @@ public class ReflectUtil {
      *            字段值的类型
      */
     public static <T> void setFieldValue(Object obj, String fieldName, T fieldValue) {
-        Field field = getField(obj, fieldName, true);
+        Field field = lookupField(obj, fieldName, true, true);
 
         setFieldValue(obj, field, fieldValue);
     }
@@ -400,32 +424,8 @@ public class ReflectUtil {
      * @return 要获取的Field，不存在时返回null
      */
     public static Field getField(Object obj, String fieldName, boolean isRecursive, boolean throwIfAbsent) {
-        Assert.argNotNull(obj, "obj");
-        Assert.argNotNull(fieldName, "fieldName");
-
-        Class<?> clazz;
-        if (obj instanceof Class) {
-            clazz = (Class<?>)obj;
-        } else {
-            clazz = obj.getClass();
-        }
-
-        try {
-            return allowAccess(clazz.getDeclaredField(fieldName));
-        } catch (NoSuchFieldException e) {
-            Class<?> superClass = clazz.getSuperclass();
-            // 判断父类是否是Object
-            if (superClass.equals(Object.class) || !isRecursive) {
-                if (throwIfAbsent) {
-                    throw new CommonException(ErrorCodeEnum.REFLECT_SECURE_EXCEPTION,
-                        StrUtil.format("[{}]中不存在字段[{}]", obj, fieldName));
-                } else {
-                    return null;
-                }
-            } else {
-                return getField(superClass, fieldName, isRecursive, throwIfAbsent);
-            }
-        }
+        Field field = lookupField(obj, fieldName, isRecursive, throwIfAbsent);
+        return field == null ? null : copyOf(field);
     }
 
     /**
@@ -439,16 +439,12 @@ public class ReflectUtil {
     public static Field[] getAllFields(Class<?> clazz) {
         Assert.argNotNull(clazz, "clazz");
 
-        List<Field> fields = new ArrayList<>(Arrays.asList(clazz.getDeclaredFields()));
-
-        // 查找是否存在父类，如果存在且不是Object那么查找父类的field
-        Class<?> superClass = clazz.getSuperclass();
-
-        // 遍历设置访问权限，同时加入单个field的缓存
-        fields.forEach(ReflectUtil::allowAccess);
-
-        if (superClass != null && superClass != Object.class) {
-            fields.addAll(Arrays.asList(getAllFields(superClass)));
+        // getDeclaredFields每次返回新的Field实例，调用方修改访问权限不会影响缓存以及其他调用方
+        List<Field> fields = new ArrayList<>();
+        for (final Class<?> current : FIELD_TABLES.get(clazz).hierarchy) {
+            for (final Field field : current.getDeclaredFields()) {
+                fields.add(allowAccess(field));
+            }
         }
         return fields.toArray(new Field[0]);
     }
@@ -526,4 +522,113 @@ public class ReflectUtil {
         return null;
     }
 
+    /**
+     * 从字段缓存中查找字段，返回的是缓存内部的Field实例，只能在本类内部使用，不能返回给调用方
+     *
+     * @param obj
+     *            字段所属的对象或者class
+     * @param fieldName
+     *            字段名
+     * @param isRecursive
+     *            是否递归获取父类中的字段
+     * @param throwIfAbsent
+     *            如果字段不存在是否抛出异常
+     *
+     * @return 缓存的Field，不存在时返回null
+     */
+    private static Field lookupField(Object obj, String fieldName, boolean isRecursive, boolean throwIfAbsent) {
+        Assert.argNotNull(obj, "obj");
+        Assert.argNotNull(fieldName, "fieldName");
+
+        Class<?> clazz;
+        if (obj instanceof Class) {
+            clazz = (Class<?>)obj;
+        } else {
+            clazz = obj.getClass();
+        }
+
+        FieldTable table = FIELD_TABLES.get(clazz);
+        Field field = isRecursive ? table.fields.get(fieldName) : table.declaredFields.get(fieldName);
+        if (field == null) {
+            if (throwIfAbsent) {
+                throw new CommonException(ErrorCodeEnum.REFLECT_SECURE_EXCEPTION,
+                    StrUtil.format("[{}]中不存在字段[{}]", obj, fieldName));
+            }
+            return null;
+        }
+        // 存在无法设置访问权限的字段时，重新设置一次以抛出异常
+        return table.accessible ? field : allowAccess(field);
+    }
+
+    /**
+     * 复制一个新的Field实例并设置访问权限，避免将缓存的Field暴露给调用方
+     *
+     * @param field
+     *            缓存的Field
+     *
+     * @return 新的Field实例
+     */
+    private static Field copyOf(Field field) {
+        try {
+            return allowAccess(field.getDeclaringClass().getDeclaredField(field.getName()));
+        } catch (NoSuchFieldException e) {
+            throw new CommonException(ErrorCodeEnum.CODE_ERROR, e);
+        }
+    }
+
+    /**
+     * 单个类的字段缓存，缓存中的Field实例只在本类内部使用，不会返回给调用方
+     */
+    private static final class FieldTable {
+
+        /**
+         * 本类以及父类（不包含Object），本类在前
+         */
+        private final Class<?>[] hierarchy;
+
+        /**
+         * 是否所有字段都成功设置了访问权限，例如JDK内部类的字段可能因为模块限制无法设置
+         */
+        private final boolean accessible;
+
+        /**
+         * 本类声明的字段，key是字段名
+         */
+        private final Map<String, Field> declaredFields;
+
+        /**
+         * 按字段名查找时可见的字段，父类与子类存在同名字段时取子类的字段，key是字段名
+         */
+        private final Map<String, Field> fields;
+
+        private FieldTable(final Class<?> type) {
+            List<Field> all = new ArrayList<>();
+            List<Class<?>> classes = new ArrayList<>();
+            Class<?> current = type;
+            do {
+                classes.add(current);
+                all.addAll(Arrays.asList(current.getDeclaredFields()));
+                current = current.getSuperclass();
+            } while (current != null && current != Object.class);
+            this.hierarchy = classes.toArray(new Class<?>[0]);
+
+            boolean accessible = true;
+            for (final Field field : all) {
+                accessible &= field.trySetAccessible();
+            }
+            this.accessible = accessible;
+
+            Map<String, Field> declared = new HashMap<>();
+            Map<String, Field> visible = new HashMap<>();
+            for (final Field field : all) {
+                if (field.getDeclaringClass() == type) {
+                    declared.put(field.getName(), field);
+                }
+                visible.putIfAbsent(field.getName(), field);
+            }
+            this.declaredFields = declared;
+            this.fields = visible;
+        }
+    }
+
 }
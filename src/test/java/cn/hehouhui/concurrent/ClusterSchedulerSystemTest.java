@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ClusterSchedulerSystem}测试：任务所有权划分、节点退出或者租约存储不可用时的故障转移以及leader交接
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class ClusterSchedulerSystemTest {
+
+    /**
+     * 租约有效期，单位毫秒，每隔1/3续约一次
+     */
+    private static final long LEASE_TTL = 300;
+
+    /**
+     * 任务执行间隔，足够大，保证测试期间只有主动调度会触发任务
+     */
+    private static final long INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 用于校验所有权的任务数
+     */
+    private static final int TASKS = 200;
+
+    private ExecutorService workers;
+
+    private InMemoryLeaseStore store;
+
+    private List<ClusterSchedulerSystem> nodes;
+
+    @BeforeEach
+    void setUp() {
+        workers = Executors.newFixedThreadPool(4);
+        store = new InMemoryLeaseStore();
+        nodes = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ClusterSchedulerSystem::stop);
+        workers.shutdownNow();
+    }
+
+    @Test
+    void everyTaskHasExactlyOneOwner() throws Exception {
+        ClusterSchedulerSystem a = start("a", store, ClusterMode.PARTITIONED);
+        ClusterSchedulerSystem b = start("b", store, ClusterMode.PARTITIONED);
+        awaitTrue(() -> a.liveNodes().equals(Set.of("a", "b")) && b.liveNodes().equals(Set.of("a", "b")));
+
+        int ownedByA = 0;
+        for (int i = 0; i < TASKS; i++) {
+            String id = "task-" + i;
+            assertNotEquals(a.isOwner(id), b.isOwner(id), "任务 [" + id + "] 必须有且只有一个所有者");
+            if (a.isOwner(id)) {
+                ownedByA++;
+            }
+        }
+        assertTrue(ownedByA > 0 && ownedByA < TASKS, "任务应该分散到各个节点，a负责的任务数：" + ownedByA);
+
+        // 两个节点注册同一个任务并同时调度，只有所有者真正执行
+        AtomicInteger executed = new AtomicInteger();
+        a.registerTask(new TaskDescriptor("job", INTERVAL, executed::incrementAndGet));
+        b.registerTask(new TaskDescriptor("job", INTERVAL, executed::incrementAndGet));
+        a.scheduler("job", true);
+        b.scheduler("job", true);
+        awaitTrue(() -> executed.get() > 0);
+        Thread.sleep(100);
+        assertEquals(1, executed.get());
+    }
+
+    @Test
+    void tasksFailOverWhenNodeLeaves() throws Exception {
+        ClusterSchedulerSystem a = start("a", store, ClusterMode.PARTITIONED);
+        ClusterSchedulerSystem b = start("b", store, ClusterMode.PARTITIONED);
+        awaitTrue(() -> b.liveNodes().equals(Set.of("a", "b")));
+        assertFalse(ownsAll(b));
+
+        // 主动退出时释放租约，其他节点下次续约即可接管，不用等待租约过期
+        a.stop();
+        assertFalse(a.isOwner("task-0"));
+        awaitTrue(() -> b.liveNodes().equals(Set.of("b")));
+        assertTrue(ownsAll(b));
+    }
+
+    @Test
+    void nodeStopsOwningBeforeOthersTakeOverWhenStoreIsUnavailable() throws Exception {
+        FlakyLeaseStore flaky = new FlakyLeaseStore(store);
+        ClusterSchedulerSystem a = start("a", flaky, ClusterMode.PARTITIONED);
+        ClusterSchedulerSystem b = start("b", store, ClusterMode.PARTITIONED);
+        awaitTrue(() -> a.liveNodes().equals(Set.of("a", "b")) && b.liveNodes().equals(Set.of("a", "b")));
+
+        // a无法续约，所有权在租约过期前失效；b在a的租约过期后接管所有任务，期间任务不会在两个节点上同时执行
+        flaky.broken = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!ownsAll(b) && System.nanoTime() - deadline < 0) {
+            for (int i = 0; i < TASKS; i++) {
+                String id = "task-" + i;
+                assertFalse(a.isOwner(id) && b.isOwner(id), "任务 [" + id + "] 不能同时属于两个节点");
+            }
+            Thread.sleep(1);
+        }
+        assertTrue(ownsAll(b));
+        for (int i = 0; i < TASKS; i++) {
+            assertFalse(a.isOwner("task-" + i));
+        }
+    }
+
+    @Test
+    void leaderIsHandedOverWhenLeaderLeaves() throws Exception {
+        ClusterSchedulerSystem a = start("a", store, ClusterMode.LEADER);
+        ClusterSchedulerSystem b = start("b", store, ClusterMode.LEADER);
+        assertTrue(a.isLeader());
+        assertFalse(b.isLeader());
+        assertTrue(ownsAll(a));
+        for (int i = 0; i < TASKS; i++) {
+            assertFalse(b.isOwner("task-" + i));
+        }
+
+        a.stop();
+        assertFalse(a.isLeader());
+        awaitTrue(b::isLeader);
+        assertTrue(ownsAll(b));
+
+        // 原leader重新加入后不会抢占leader
+        ClusterSchedulerSystem rejoined = start("a", store, ClusterMode.LEADER);
+        Thread.sleep(LEASE_TTL);
+        assertFalse(rejoined.isLeader());
+        assertTrue(b.isLeader());
+    }
+
+    private ClusterSchedulerSystem start(String nodeId, LeaseStore leaseStore, ClusterMode mode) {
+        ClusterSchedulerSystem node =
+            new ClusterSchedulerSystem(new SchedulerSystemImpl("cluster-" + nodeId, workers, false), leaseStore,
+                nodeId, mode);
+        node.setLeaseTtl(LEASE_TTL, TimeUnit.MILLISECONDS);
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static boolean ownsAll(ClusterSchedulerSystem node) {
+        for (int i = 0; i < TASKS; i++) {
+            if (!node.isOwner("task-" + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等待条件成立，最多等待30秒
+     */
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * 可以模拟不可用的租约存储
+     */
+    private static final class FlakyLeaseStore implements LeaseStore {
+
+        private final LeaseStore delegate;
+
+        private volatile boolean broken;
+
+        private FlakyLeaseStore(final LeaseStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean tryAcquire(final String key, final String owner, final long ttl, final TimeUnit unit) {
+            check();
+            return delegate.tryAcquire(key, owner, ttl, unit);
+        }
+
+        @Override
+        public void release(final String key, final String owner) {
+            check();
+            delegate.release(key, owner);
+        }
+
+        @Override
+        public Map<String, String> leases(final String prefix) {
+            check();
+            return delegate.leases(prefix);
+        }
+
+        private void check() {
+            if (broken) {
+                throw new IllegalStateException("租约存储不可用");
+            }
+        }
+    }
+}
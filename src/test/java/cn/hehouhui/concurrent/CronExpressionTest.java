@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CronExpression}测试：整数运算的快速计算结果必须与java.time的计算结果一致，并且偏移量不变期间计算不创建对象
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class CronExpressionTest {
+
+    private static final String[] EXPRESSIONS = {"0 * * * * ?", "*/15 * * * * ?", "0 30 2 * * ?", "0 0 1,2,3 * * ?",
+        "0 0 12 ? * MON-FRI", "0 15 10 31 * ?", "0 0 0 29 2 ?", "0 0/5 14,18 * * ?",
+        "0 0 9 1-7 * MON", "30 59 23 31 12 ?"};
+
+    private static final String[] ZONES =
+        {"UTC", "Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Lord_Howe", "America/Santiago"};
+
+    @Test
+    void fastPathMatchesJavaTime() {
+        SplittableRandom random = new SplittableRandom(20241202L);
+        long from = ZonedDateTime.of(1990, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        long to = ZonedDateTime.of(2060, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        for (String zone : ZONES) {
+            for (String expression : EXPRESSIONS) {
+                CronExpression cron = CronExpression.parse(expression, ZoneId.of(zone));
+                for (int i = 0; i < 2000; i++) {
+                    long after = random.nextLong(from, to);
+                    assertEquals(cron.nextByZonedTime(after), cron.next(after),
+                        () -> expression + " " + zone + " " + after);
+                }
+            }
+        }
+    }
+
+    @Test
+    void consecutiveFiresAcrossDstTransitionsMatchJavaTime() {
+        for (String zone : ZONES) {
+            CronExpression cron = CronExpression.parse("0 */10 * * * ?", ZoneId.of(zone));
+            long time = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.of(zone)).toInstant().toEpochMilli();
+            long end = ZonedDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneId.of(zone)).toInstant().toEpochMilli();
+            while (time < end) {
+                long next = cron.next(time);
+                assertEquals(cron.nextByZonedTime(time), next, zone + " " + time);
+                assertTrue(next > time);
+                time = next;
+            }
+        }
+    }
+
+    @Test
+    void nextDoesNotAllocateWithinAnOffsetPeriod() {
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (String zone : new String[] {"Asia/Shanghai", "America/New_York"}) {
+            CronExpression cron = CronExpression.parse("0 */5 * * * ?", ZoneId.of(zone));
+            // 7月中旬，前后都不跨夏令时切换
+            long start = ZonedDateTime.of(2024, 7, 10, 0, 0, 0, 0, ZoneId.of(zone)).toInstant().toEpochMilli();
+            long sink = run(cron, start, 20_000);
+
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            sink += run(cron, start, 20_000);
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            assertTrue(sink != 0);
+            // 允许读取分配计数本身的少量开销
+            assertTrue(allocated < 1024, () -> zone + " 计算下次触发时间分配了 " + allocated + " 字节");
+        }
+    }
+
+    private static long run(CronExpression cron, long start, int times) {
+        long time = start;
+        for (int i = 0; i < times; i++) {
+            time = cron.next(time);
+        }
+        return time;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 周期任务触发时间抖动测试：每次操作从上一次触发后开始，等待任务的下一次触发，采样得到的耗时就是相邻两次触发的实际间隔，
+ * 与设置的执行间隔对比，各分位数与执行间隔的差值就是触发时间的抖动；
+ * <p>
+ * 操作之间JMH自身的开销期间如果恰好发生了一次触发，该次采样会接近0，所以关注中位数与高分位数即可；
+ * <p>
+ * 类名不以Test结尾，单元测试不会执行；需要时先执行mvn test-compile，再以测试classpath运行{@link #main(String[])}
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FireJitterBenchmark {
+
+    /**
+     * 执行间隔，单位微秒
+     */
+    @Param({"100", "1000", "10000"})
+    private long intervalMicros;
+
+    /**
+     * 调度方式，simpleTask是{@link SimpleSchedulerTask}，schedulerSystem是{@link SchedulerSystemImpl}
+     */
+    @Param({"simpleTask", "schedulerSystem"})
+    private String mode;
+
+    /**
+     * 任务每次触发释放一个许可
+     */
+    private final Semaphore fired = new Semaphore(0);
+
+    private SimpleSchedulerTask simpleTask;
+
+    private SchedulerSystemImpl system;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        Runnable task = fired::release;
+        if ("simpleTask".equals(mode)) {
+            simpleTask = new SimpleSchedulerTask(task, "jitter", false);
+            simpleTask.setFixedDelay(intervalMicros, TimeUnit.MICROSECONDS);
+            simpleTask.start();
+        } else {
+            executor = Executors.newSingleThreadExecutor();
+            system = new SchedulerSystemImpl("jitter", executor, false);
+            system.start();
+            system.registerTask(new TaskDescriptor("task", intervalMicros, TimeUnit.MICROSECONDS, task));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (simpleTask != null) {
+            simpleTask.stop();
+        }
+        if (system != null) {
+            system.stop();
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void nextFire() throws InterruptedException {
+        fired.acquire();
+        // 丢弃等待期间堆积的触发，保证下次操作等待的是下一次触发
+        fired.drainPermits();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(FireJitterBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * {@link LifecycleGate#runShared(Supplier)}与改造前使用的{@link ReentrantReadWriteLock}读锁路径的多线程吞吐量对比；
+ * <p>
+ * 包括只有共享操作的稳态场景（单线程、8线程），以及7个线程共享操作、1个线程持续独占操作的竞争场景，竞争场景中独占操作远比启动、关闭频繁，
+ * 只用于观察慢速路径的开销；
+ * <p>
+ * 类名不以Test结尾，单元测试不会执行；需要时先执行mvn test-compile，再以测试classpath运行{@link #main(String[])}，
+ * 或者运行org.openjdk.jmh.Main并通过命令行参数调整线程数
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LifecycleGateBenchmark {
+
+    private final LifecycleGate gate = new LifecycleGate();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 共享操作中执行的任务，模拟已经启动时的状态检查
+     */
+    private volatile boolean started = true;
+
+    private final Supplier<Boolean> task = () -> started;
+
+    @Benchmark
+    @Threads(1)
+    public boolean gateSharedSingleThread() {
+        return gate.runShared(task);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean lockSharedSingleThread() {
+        return LockTask.runWithLock(lock.readLock(), task);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean gateShared() {
+        return gate.runShared(task);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean lockShared() {
+        return LockTask.runWithLock(lock.readLock(), task);
+    }
+
+    @Benchmark
+    @Group("gateContended")
+    @GroupThreads(7)
+    public boolean gateContendedShared() {
+        return gate.runShared(task);
+    }
+
+    @Benchmark
+    @Group("gateContended")
+    @GroupThreads(1)
+    public void gateContendedExclusive() {
+        gate.runExclusive(() -> Blackhole.consumeCPU(16));
+        Blackhole.consumeCPU(1024);
+    }
+
+    @Benchmark
+    @Group("lockContended")
+    @GroupThreads(7)
+    public boolean lockContendedShared() {
+        return LockTask.runWithLock(lock.readLock(), task);
+    }
+
+    @Benchmark
+    @Group("lockContended")
+    @GroupThreads(1)
+    public void lockContendedExclusive() {
+        LockTask.runWithLock(lock.writeLock(), () -> Blackhole.consumeCPU(16));
+        Blackhole.consumeCPU(1024);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(LifecycleGateBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
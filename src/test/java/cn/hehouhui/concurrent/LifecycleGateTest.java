@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link LifecycleGate}的互斥测试：共享操作之间可以并发，独占操作（启动、关闭）与共享操作互斥，并且支持重入
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class LifecycleGateTest {
+
+    private final LifecycleGate gate = new LifecycleGate();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void exclusiveWaitsForInFlightShared() throws Exception {
+        CountDownLatch sharedEntered = new CountDownLatch(1);
+        CountDownLatch releaseShared = new CountDownLatch(1);
+        AtomicBoolean sharedRunning = new AtomicBoolean();
+        Future<?> shared = executor.submit(() -> gate.runShared(() -> {
+            sharedRunning.set(true);
+            sharedEntered.countDown();
+            await(releaseShared);
+            sharedRunning.set(false);
+        }));
+        assertTrue(sharedEntered.await(10, TimeUnit.SECONDS));
+
+        AtomicBoolean overlapped = new AtomicBoolean();
+        Future<?> exclusive = executor.submit(() -> gate.runExclusive(() -> overlapped.set(sharedRunning.get())));
+        // 共享操作还没有结束，独占操作必须一直等待
+        assertThrows(TimeoutException.class, () -> exclusive.get(200, TimeUnit.MILLISECONDS));
+
+        releaseShared.countDown();
+        shared.get(10, TimeUnit.SECONDS);
+        exclusive.get(10, TimeUnit.SECONDS);
+        assertFalse(overlapped.get(), "独占操作不能与共享操作同时执行");
+    }
+
+    @Test
+    void sharedBlockedWhileExclusiveRuns() throws Exception {
+        CountDownLatch exclusiveEntered = new CountDownLatch(1);
+        CountDownLatch releaseExclusive = new CountDownLatch(1);
+        AtomicBoolean exclusiveRunning = new AtomicBoolean();
+        Future<?> exclusive = executor.submit(() -> gate.runExclusive(() -> {
+            exclusiveRunning.set(true);
+            exclusiveEntered.countDown();
+            await(releaseExclusive);
+            exclusiveRunning.set(false);
+        }));
+        assertTrue(exclusiveEntered.await(10, TimeUnit.SECONDS));
+
+        AtomicBoolean overlapped = new AtomicBoolean();
+        Future<?> shared = executor.submit(() -> gate.runShared(() -> overlapped.set(exclusiveRunning.get())));
+        // 独占操作还没有结束，共享操作必须一直等待
+        assertThrows(TimeoutException.class, () -> shared.get(200, TimeUnit.MILLISECONDS));
+
+        releaseExclusive.countDown();
+        exclusive.get(10, TimeUnit.SECONDS);
+        shared.get(10, TimeUnit.SECONDS);
+        assertFalse(overlapped.get(), "共享操作不能与独占操作同时执行");
+    }
+
+    @Test
+    void sharedCallsRunConcurrently() throws Exception {
+        int parties = 4;
+        // 所有共享操作都进入后屏障才会放行，如果共享操作之间互斥，屏障会超时
+        CyclicBarrier barrier = new CyclicBarrier(parties);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < parties; i++) {
+            futures.add(executor.submit(() -> gate.runShared(() -> {
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get(20, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void reentrantCallsDoNotDeadlock() throws Exception {
+        Future<Integer> result = executor.submit(() -> {
+            AtomicInteger depth = new AtomicInteger();
+            // 共享中嵌套共享
+            gate.runShared(() -> gate.runShared(depth::incrementAndGet));
+            // 独占中嵌套独占、共享
+            gate.runExclusive(() -> {
+                gate.runExclusive(depth::incrementAndGet);
+                gate.runShared(depth::incrementAndGet);
+            });
+            return depth.get();
+        });
+        assertEquals(3, result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void nestedSharedSurvivesPendingExclusive() throws Exception {
+        CountDownLatch outerEntered = new CountDownLatch(1);
+        CountDownLatch exclusiveStarted = new CountDownLatch(1);
+        Future<?> shared = executor.submit(() -> gate.runShared(() -> {
+            outerEntered.countDown();
+            await(exclusiveStarted);
+            // 独占操作已经在等待，此时嵌套的共享操作不能被它阻塞，否则会死锁
+            gate.runShared(() -> { });
+        }));
+        assertTrue(outerEntered.await(10, TimeUnit.SECONDS));
+
+        Future<?> exclusive = executor.submit(() -> {
+            exclusiveStarted.countDown();
+            gate.runExclusive(() -> { });
+        });
+        shared.get(10, TimeUnit.SECONDS);
+        exclusive.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void exclusiveNeverOverlapsSharedUnderContention() throws Exception {
+        int sharedThreads = 8;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        AtomicInteger sharedActive = new AtomicInteger();
+        AtomicBoolean exclusiveActive = new AtomicBoolean();
+        AtomicInteger violations = new AtomicInteger();
+        AtomicLong sharedCalls = new AtomicLong();
+        AtomicLong exclusiveCalls = new AtomicLong();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < sharedThreads; i++) {
+            futures.add(executor.submit(() -> {
+                while (System.nanoTime() - deadline < 0) {
+                    gate.runShared(() -> {
+                        sharedActive.incrementAndGet();
+                        if (exclusiveActive.get()) {
+                            violations.incrementAndGet();
+                        }
+                        sharedCalls.incrementAndGet();
+                        sharedActive.decrementAndGet();
+                    });
+                }
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            while (System.nanoTime() - deadline < 0) {
+                gate.runExclusive(() -> {
+                    exclusiveActive.set(true);
+                    if (sharedActive.get() != 0) {
+                        violations.incrementAndGet();
+                    }
+                    exclusiveCalls.incrementAndGet();
+                    exclusiveActive.set(false);
+                });
+                Thread.yield();
+            }
+        }));
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, violations.get(), "独占操作与共享操作发生了重叠");
+        assertTrue(sharedCalls.get() > 0);
+        assertTrue(exclusiveCalls.get() > 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("等待超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大量周期任务的资源占用对比：启动指定数量的周期任务，等待每个任务都执行一次后记录堆内存增量、平台线程数以及峰值平台线程数
+ * （结果中的heapBytes、platformThreads、peakPlatformThreads），主结果是启动全部任务并完成首次执行的耗时；
+ * <p>
+ * 对比的模式：
+ * <li>simpleVirtual：{@link SimpleSchedulerTask#ofVirtual(Runnable, String, boolean)}，每个任务一个虚拟线程；</li>
+ * <li>systemVirtual：{@link SchedulerSystemImpl#ofVirtual(String, boolean)}，所有任务共用一个调度线程，每次执行一个虚拟线程；</li>
+ * <li>systemPool：{@link SchedulerSystemImpl}使用固定大小的平台线程池；</li>
+ * <li>simplePlatform：每个任务一个平台线程（改造前的默认方式），10万个平台线程会耗尽大多数环境的线程数限制，所以默认不运行，
+ * 需要时通过-p mode=simplePlatform -p tasks=1000等参数指定</li>
+ * <p>
+ * 类名不以Test结尾，单元测试不会执行；需要时先执行mvn test-compile，再以测试classpath运行{@link #main(String[])}
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SchedulerFootprintBenchmark {
+
+    /**
+     * 任务执行间隔，足够大，保证测试期间每个任务只执行一次
+     */
+    private static final long INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 任务数
+     */
+    @Param({"100000"})
+    private int tasks;
+
+    /**
+     * 调度模式
+     */
+    @Param({"simpleVirtual", "systemVirtual", "systemPool"})
+    private String mode;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private List<SimpleSchedulerTask> simpleTasks;
+
+    private SchedulerSystemImpl system;
+
+    private ExecutorService pool;
+
+    /**
+     * 启动任务前的堆内存占用
+     */
+    private long baselineHeap;
+
+    /**
+     * 资源占用，作为附加结果输出
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        /**
+         * 所有任务执行一次后的堆内存增量，单位字节
+         */
+        public long heapBytes;
+
+        /**
+         * 所有任务执行一次后的存活平台线程数
+         */
+        public long platformThreads;
+
+        /**
+         * 启动任务期间的峰值平台线程数
+         */
+        public long peakPlatformThreads;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        baselineHeap = usedHeap();
+        threadBean.resetPeakThreadCount();
+    }
+
+    @Benchmark
+    public void startTasks(Footprint footprint) throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(tasks);
+        Runnable task = ran::countDown;
+        switch (mode) {
+            case "simpleVirtual":
+            case "simplePlatform":
+                simpleTasks = new ArrayList<>(tasks);
+                for (int i = 0; i < tasks; i++) {
+                    String name = "task-" + i;
+                    SimpleSchedulerTask simpleTask = "simpleVirtual".equals(mode)
+                        ? SimpleSchedulerTask.ofVirtual(task, name, false) : new SimpleSchedulerTask(task, name, false);
+                    simpleTask.setFixedDelay(INTERVAL);
+                    simpleTask.start();
+                    simpleTasks.add(simpleTask);
+                }
+                break;
+            case "systemVirtual":
+            case "systemPool":
+                if ("systemVirtual".equals(mode)) {
+                    system = SchedulerSystemImpl.ofVirtual("footprint", false);
+                } else {
+                    pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                    system = new SchedulerSystemImpl("footprint", pool, false);
+                }
+                system.start();
+                for (int i = 0; i < tasks; i++) {
+                    system.registerTask(new TaskDescriptor("task-" + i, INTERVAL, task));
+                }
+                // 调度系统中的任务首次执行在一个间隔之后，这里主动调度一次
+                for (int i = 0; i < tasks; i++) {
+                    system.scheduler("task-" + i);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的模式：" + mode);
+        }
+
+        if (!ran.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("任务没有在5分钟内全部执行");
+        }
+        footprint.platformThreads = threadBean.getThreadCount();
+        footprint.peakPlatformThreads = threadBean.getPeakThreadCount();
+        footprint.heapBytes = usedHeap() - baselineHeap;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        if (simpleTasks != null) {
+            simpleTasks.forEach(SimpleSchedulerTask::stop);
+            simpleTasks = null;
+        }
+        if (system != null) {
+            system.stop();
+            system = null;
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+            pool = null;
+        }
+    }
+
+    /**
+     * 触发GC后的堆内存占用
+     *
+     * @return 已使用的堆内存，单位字节
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(SchedulerFootprintBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
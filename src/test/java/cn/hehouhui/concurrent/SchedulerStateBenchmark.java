@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程同时主动调度同一个任务的吞吐量对比：{@link SchedulerSystemImpl}（任务状态与堆积数量打包为一个状态字，一次CAS完成调度）与
+ * {@link LockBasedSchedulerSystem}（改造前的实现，每次调度获取任务的写锁）；
+ * <p>
+ * 任务执行间隔足够大，测试期间只有主动调度会触发任务；任务本身只消耗少量CPU，执行线程持续消费堆积的调度，与调度线程竞争同一个任务的状态；
+ * <p>
+ * 类名不以Test结尾，单元测试不会执行；需要时先执行mvn test-compile，再以测试classpath运行{@link #main(String[])}，
+ * 或者运行org.openjdk.jmh.Main并通过-t参数调整调度线程数
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerStateBenchmark {
+
+    /**
+     * 任务ID
+     */
+    private static final String TASK_ID = "task";
+
+    /**
+     * 调度系统实现，lockFree是当前实现，lockBased是改造前的实现
+     */
+    @Param({"lockFree", "lockBased"})
+    private String impl;
+
+    /**
+     * 是否合并调度
+     */
+    @Param({"true", "false"})
+    private boolean mergeScheduler;
+
+    private ExecutorService executor;
+
+    private SchedulerSystem system;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newFixedThreadPool(4);
+        system = "lockFree".equals(impl) ? new SchedulerSystemImpl("benchmark", executor, mergeScheduler)
+            : new LockBasedSchedulerSystem("benchmark", executor, mergeScheduler);
+        system.start();
+        system.registerTask(new TaskDescriptor(TASK_ID, TimeUnit.HOURS.toMillis(1), () -> Blackhole.consumeCPU(64)));
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        system.stop();
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void schedulerSingleThread() {
+        system.scheduler(TASK_ID);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void schedulerContended() {
+        system.scheduler(TASK_ID);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(SchedulerStateBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
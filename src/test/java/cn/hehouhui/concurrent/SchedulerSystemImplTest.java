@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SchedulerSystemImpl}测试：多个线程同时主动调度同一个任务时调度不能丢失、任务不能并发执行，任务分发被拒绝、被丢弃时的处理以及上下文传递
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class SchedulerSystemImplTest {
+
+    /**
+     * 并发调度的线程数
+     */
+    private static final int PRODUCERS = 8;
+
+    /**
+     * 每个线程的调度次数
+     */
+    private static final int TRIGGERS_PER_PRODUCER = 20_000;
+
+    /**
+     * 任务执行间隔，足够大，保证测试期间只有主动调度会触发任务
+     */
+    private static final long INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private ExecutorService workers;
+
+    private ExecutorService producers;
+
+    @BeforeEach
+    void setUp() {
+        workers = Executors.newFixedThreadPool(4);
+        producers = Executors.newFixedThreadPool(PRODUCERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        producers.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @Test
+    void everyTriggerRunsExactlyOnceWithoutOverlap() throws Exception {
+        SchedulerSystemImpl system = new SchedulerSystemImpl("stress", workers, false);
+        system.start();
+        try {
+            OverlapProbe probe = new OverlapProbe(new AtomicLong());
+            system.registerTask(new TaskDescriptor("task", INTERVAL, probe));
+
+            triggerConcurrently(system, "task", new AtomicLong());
+
+            long expected = (long)PRODUCERS * TRIGGERS_PER_PRODUCER;
+            awaitValue(probe.executed::get, expected);
+            assertEquals(expected, probe.executed.get());
+            assertEquals(0, probe.overlaps.get(), "同一个任务不能并发执行");
+        } finally {
+            system.stop();
+        }
+    }
+
+    @Test
+    void mergedTriggersNeverOverlapAndAlwaysRunAfterLastTrigger() throws Exception {
+        SchedulerSystemImpl system = new SchedulerSystemImpl("stress-merge", workers, true);
+        system.start();
+        try {
+            AtomicLong triggered = new AtomicLong();
+            OverlapProbe probe = new OverlapProbe(triggered);
+            system.registerTask(new TaskDescriptor("task", INTERVAL, probe));
+
+            triggerConcurrently(system, "task", triggered);
+
+            // 合并调度保证最后一次调度之后一定还有一次执行，该次执行能看到全部调度
+            long expected = (long)PRODUCERS * TRIGGERS_PER_PRODUCER;
+            awaitValue(probe.observed::get, expected);
+            assertEquals(expected, probe.observed.get(), "最后一次调度之后必须还有一次执行");
+            assertTrue(probe.executed.get() >= 1 && probe.executed.get() <= expected);
+            assertEquals(0, probe.overlaps.get(), "同一个任务不能并发执行");
+        } finally {
+            system.stop();
+        }
+    }
+
+    @Test
+    void concurrentTriggersOnManyTasksAreNotLost() throws Exception {
+        SchedulerSystemImpl system = new SchedulerSystemImpl("stress-many", workers, false);
+        system.start();
+        try {
+            int taskCount = 16;
+            List<OverlapProbe> probes = new ArrayList<>();
+            for (int i = 0; i < taskCount; i++) {
+                OverlapProbe probe = new OverlapProbe(new AtomicLong());
+                probes.add(probe);
+                system.registerTask(new TaskDescriptor("task-" + i, INTERVAL, probe));
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                futures.add(producers.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRIGGERS_PER_PRODUCER; i++) {
+                        system.scheduler("task-" + (i % taskCount));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+
+            long expected = (long)PRODUCERS * TRIGGERS_PER_PRODUCER / taskCount;
+            for (OverlapProbe probe : probes) {
+                awaitValue(probe.executed::get, expected);
+                assertEquals(expected, probe.executed.get());
+                assertEquals(0, probe.overlaps.get(), "同一个任务不能并发执行");
+            }
+        } finally {
+            system.stop();
+        }
+    }
+
+    @Test
+    void discardedDispatchesAreRescheduledWithDiscardAwarePolicies() throws Exception {
+        for (RejectedExecutionHandler policy : new RejectedExecutionHandler[] {new ThreadPoolExecutor.DiscardPolicy(),
+            new ThreadPoolExecutor.DiscardOldestPolicy()}) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1),
+                SchedulerSystemImpl.discardAware(policy));
+            SchedulerSystemImpl system = new SchedulerSystemImpl("discard", pool, false);
+            system.start();
+            try {
+                int taskCount = 8;
+                List<AtomicInteger> runs = new ArrayList<>();
+                for (int i = 0; i < taskCount; i++) {
+                    AtomicInteger counter = new AtomicInteger();
+                    runs.add(counter);
+                    system.registerTask(new TaskDescriptor("task-" + i, 5, () -> {
+                        counter.incrementAndGet();
+                        sleep(2);
+                    }));
+                }
+
+                // 线程池远小于任务数，大部分分发都会被丢弃，被丢弃的分发必须重新调度，所有任务最终都能执行
+                for (AtomicInteger counter : runs) {
+                    awaitValue(counter::get, 1);
+                    assertTrue(counter.get() > 0, policy.getClass().getSimpleName() + "丢弃的任务没有重新调度");
+                }
+                assertTrue(system.rejectedCount() > 0);
+            } finally {
+                system.stop();
+                pool.shutdown();
+                assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            }
+            // 调度系统关闭后不会再分发，已经分发的任务全部结算完毕
+            assertEquals(0, system.pendingDispatchCount());
+        }
+    }
+
+    @Test
+    void discardAwareKeepsOtherPoliciesUntouched() {
+        RejectedExecutionHandler abort = new ThreadPoolExecutor.AbortPolicy();
+        assertSame(abort, SchedulerSystemImpl.discardAware(abort));
+    }
+
+    @Test
+    void callerRunsNeverRunsOnSchedulerThread() throws Exception {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        SchedulerSystemImpl system = new SchedulerSystemImpl("caller-runs", pool, false, false,
+            DispatchPolicy.CALLER_RUNS, 0);
+        system.start();
+        try {
+            // 占满线程池
+            CountDownLatch release = new CountDownLatch(1);
+            system.registerTask(new TaskDescriptor("blocker", INTERVAL, () -> await(release)));
+            system.scheduler("blocker");
+
+            // 主动调度被拒绝时在调用方线程执行
+            AtomicReference<Thread> runner = new AtomicReference<>();
+            system.registerTask(new TaskDescriptor("task", INTERVAL, () -> runner.set(Thread.currentThread())));
+            system.scheduler("task");
+            assertSame(Thread.currentThread(), runner.get());
+
+            // 到期唤醒被拒绝时重新调度，不能在调度线程中执行
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            system.registerTask(new TaskDescriptor("periodic", 1, () -> threads.add(Thread.currentThread())));
+            sleep(200);
+            assertTrue(threads.isEmpty(), "线程池已满，到期任务只能重新调度，不能在调度线程中执行");
+            assertTrue(system.rejectedCount() > 1);
+
+            release.countDown();
+            awaitValue(threads::size, 1);
+            assertFalse(threads.isEmpty());
+        } finally {
+            system.stop();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void contextIsCapturedPerDispatchNotAtRegistration() throws Exception {
+        ContextKey<String> tenant = ContextKey.of("tenant");
+        SchedulerSystemImpl system = new SchedulerSystemImpl("context", workers, false);
+        system.start();
+        try {
+            List<String> seen = new CopyOnWriteArrayList<>();
+            AtomicLong executed = new AtomicLong();
+            tenant.runWith("register", () -> system.registerTask(new TaskDescriptor("task", INTERVAL, () -> {
+                seen.add(String.valueOf(tenant.get()));
+                executed.incrementAndGet();
+            })));
+
+            // 主动调度在调用方的上下文中执行，注册时的上下文不会固定在任务上
+            tenant.runWith("first", () -> system.scheduler("task"));
+            awaitValue(executed::get, 1);
+            tenant.runWith("second", () -> system.scheduler("task"));
+            awaitValue(executed::get, 2);
+            system.scheduler("task");
+            awaitValue(executed::get, 3);
+
+            assertEquals(List.of("first", "second", "null"), seen);
+        } finally {
+            system.stop();
+        }
+    }
+
+    @Test
+    void hugeIntervalNeverFires() throws Exception {
+        SchedulerSystemImpl system = new SchedulerSystemImpl("huge-interval", workers, false);
+        system.start();
+        try {
+            // 换算为纳秒时会被截断为Long.MAX_VALUE，计算下次执行时间时不能溢出
+            AtomicLong executed = new AtomicLong();
+            system.registerTask(new TaskDescriptor("task", Long.MAX_VALUE / 2, TimeUnit.DAYS, executed::incrementAndGet));
+            system.scheduler("task");
+            awaitValue(executed::get, 1);
+            sleep(200);
+            assertEquals(1, executed.get(), "执行间隔溢出后任务被反复调度");
+        } finally {
+            system.stop();
+        }
+    }
+
+    /**
+     * 多个线程同时主动调度指定任务，等待所有调度完成
+     */
+    private void triggerConcurrently(SchedulerSystemImpl system, String id, AtomicLong triggered) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            futures.add(producers.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRIGGERS_PER_PRODUCER; i++) {
+                    triggered.incrementAndGet();
+                    system.scheduler(id);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * 等待指定值达到期望值，最多等待30秒
+     */
+    private static void awaitValue(LongSupplier value, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (value.getAsLong() < expected && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 记录执行次数、是否存在并发执行以及执行时已经发生的调度次数
+     */
+    private static final class OverlapProbe implements Runnable {
+
+        private final AtomicLong triggered;
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicInteger overlaps = new AtomicInteger();
+
+        private final AtomicLong executed = new AtomicLong();
+
+        private final AtomicLong observed = new AtomicLong();
+
+        private OverlapProbe(AtomicLong triggered) {
+            this.triggered = triggered;
+        }
+
+        @Override
+        public void run() {
+            observed.accumulateAndGet(triggered.get(), Math::max);
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            executed.incrementAndGet();
+            running.decrementAndGet();
+        }
+    }
+}
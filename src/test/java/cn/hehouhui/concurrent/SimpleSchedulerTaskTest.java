@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link SimpleSchedulerTask}调度间隔测试
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class SimpleSchedulerTaskTest {
+
+    @Test
+    void subMillisecondDelayIsNotTruncatedToZero() {
+        SimpleSchedulerTask task = new SimpleSchedulerTask(() -> { }, "sub-millis", false);
+        assertEquals(0, task.fixedDelay());
+
+        task.setFixedDelay(500, TimeUnit.MICROSECONDS);
+        assertEquals(1, task.fixedDelay());
+        assertEquals(500, task.fixedDelay(TimeUnit.MICROSECONDS));
+
+        task.setFixedDelay(1500, TimeUnit.MICROSECONDS);
+        assertEquals(1, task.fixedDelay());
+        assertEquals(1_500_000, task.fixedDelay(TimeUnit.NANOSECONDS));
+    }
+}
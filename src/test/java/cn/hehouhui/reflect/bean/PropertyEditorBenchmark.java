@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.reflect.bean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GeneratedPropertyEditor}与{@link BeanUtil.SimplePropertyEditor}的读写性能对比；
+ * <p>
+ * 类名不以Test结尾，单元测试不会执行；需要时先执行mvn test-compile，再以测试classpath运行{@link #main(String[])}，
+ * 或者运行org.openjdk.jmh.Main并通过命令行参数调整预热、测量次数
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyEditorBenchmark {
+
+    /**
+     * 字段名，name有get/set方法，age没有，用于对比方法调用与直接字段访问两条路径
+     */
+    @Param({"name", "age"})
+    private String property;
+
+    private PropertyEditor generated;
+
+    private PropertyEditor simple;
+
+    private Bean bean;
+
+    private Object value;
+
+    @Setup
+    public void setup() throws Exception {
+        Field field = Bean.class.getDeclaredField(property);
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        Method readMethod = method(Bean.class, "get" + suffix);
+        Method writeMethod = method(Bean.class, "set" + suffix, field.getType());
+
+        generated = GeneratedPropertyEditor.create(field, Bean.class, readMethod, writeMethod);
+        if (generated == null) {
+            throw new IllegalStateException("当前环境无法生成GeneratedPropertyEditor");
+        }
+
+        // SimplePropertyEditor的构造器是私有的，只能反射创建
+        Constructor<BeanUtil.SimplePropertyEditor> constructor = BeanUtil.SimplePropertyEditor.class
+            .getDeclaredConstructor(Field.class, Class.class, Method.class, Method.class);
+        constructor.setAccessible(true);
+        simple = constructor.newInstance(field, Bean.class, readMethod, writeMethod);
+
+        bean = new Bean();
+        bean.setName("name");
+        bean.age = 18;
+        value = field.getType() == String.class ? "value" : (Object)20;
+    }
+
+    @Benchmark
+    public Object generatedRead() {
+        return generated.read(bean);
+    }
+
+    @Benchmark
+    public Object simpleRead() {
+        return simple.read(bean);
+    }
+
+    @Benchmark
+    public Bean generatedWrite() {
+        generated.write(bean, value);
+        return bean;
+    }
+
+    @Benchmark
+    public Bean simpleWrite() {
+        simple.write(bean, value);
+        return bean;
+    }
+
+    private static Method method(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(PropertyEditorBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 测试用bean
+     */
+    public static class Bean {
+
+        private String name;
+
+        private int age;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
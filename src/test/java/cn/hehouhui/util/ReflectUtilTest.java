@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package cn.hehouhui.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ReflectUtil}字段缓存测试
+ *
+ * @author HEHH
+ * @date 2024/12/02
+ */
+class ReflectUtilTest {
+
+    @Test
+    void returnedFieldsAreNotSharedBetweenCallers() throws Exception {
+        Field field = ReflectUtil.getField(Child.class, "name");
+        assertNotSame(field, ReflectUtil.getField(Child.class, "name"));
+        field.setAccessible(false);
+
+        Field next = ReflectUtil.getField(Child.class, "name");
+        assertTrue(next.canAccess(new Child()));
+
+        Field[] fields = ReflectUtil.getAllFields(Child.class);
+        for (final Field f : fields) {
+            f.setAccessible(false);
+        }
+        for (final Field f : ReflectUtil.getAllFields(Child.class)) {
+            assertTrue(f.canAccess(new Child()));
+        }
+
+        Child child = new Child();
+        ReflectUtil.setFieldValue(child, "name", "child");
+        ReflectUtil.setFieldValue(child, "id", 1);
+        assertEquals("child", ReflectUtil.getFieldValue(child, "name"));
+        assertEquals(1, (int)ReflectUtil.getFieldValue(child, "id"));
+    }
+
+    @Test
+    void allFieldsKeepDeclarationOrderWithSubclassFirst() {
+        Field[] fields = ReflectUtil.getAllFields(Child.class);
+        assertEquals(2, fields.length);
+        assertEquals(Child.class, fields[0].getDeclaringClass());
+        assertEquals(Parent.class, fields[1].getDeclaringClass());
+        assertNull(ReflectUtil.getField(Child.class, "id", false, false));
+        assertEquals(Parent.class, ReflectUtil.getField(Child.class, "id").getDeclaringClass());
+    }
+
+    private static class Parent {
+
+        private int id;
+    }
+
+    private static class Child extends Parent {
+
+        private String name;
+    }
+}